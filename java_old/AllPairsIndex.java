@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Vector;
+
+/**
+ * AllPairsIndex class
+ * 
+ * An AllPairsIndex holds the shortest distance between EVERY pair of Nodes
+ * of a Graph, along with the "next hop" Node on a shortest Path between
+ * them, so that the distance between any two Nodes is a simple array lookup
+ * and Paths only need to be built for the pairs that are actually asked for.
+ * 
+ * Both matrices are stored as flat int arrays indexed by Node ordinal -
+ * distance[i * n + j] is the shortest distance from Node i to Node j, and
+ * next[i * n + j] is the ordinal of the Node that follows Node i on the
+ * shortest Path from Node i to Node j (when there is more than one, the one
+ * with the smallest ordinal).
+ * 
+ * An AllPairsIndex is normally not created directly - it is built lazily by
+ * Graph.allPairsIndex, and thrown away by the Graph when Nodes or Edges are
+ * added to it.
+ * 
+ * @author Steve Rosen
+ */
+public class AllPairsIndex {
+    static final long MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    private FrozenGraph frozen;
+    private Node nodes[];
+    private int numNodes;
+    private int distance[];
+    private int next[];
+
+    /**
+     * AllPairsIndex
+     * 
+     * This constructor builds the index for a Graph by running one Dijkstra
+     * search per Node, filling in the distances to that Node and the next
+     * hop towards it from every other Node
+     * 
+     * @param   graph
+     *          the Graph to index
+     */
+    public AllPairsIndex(Graph graph) {
+        frozen = graph.freeze();
+        nodes = frozen.nodes();
+        numNodes = nodes.length;
+        long size = (long) numNodes * numNodes;
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("an all-pairs index of " + numNodes
+                    + " Nodes needs " + size + " entries, more than the " + MAX_SIZE
+                    + " an array can hold");
+        }
+        distance = new int[(int) size];
+        next = new int[(int) size];
+        Arrays.fill(next, GraphOperations.NO_NEXT);
+
+        // the Graph is undirected, so the search from j gives the distance
+        // from every Node to j - and the next hop from i to j is the first
+        // neighbour of i (in Edge, i.e. ordinal, order) whose own distance
+        // to j makes up the rest of the shortest distance from i to j, and
+        // that was settled before i (so that Edges of weight 0 cannot send
+        // two Nodes back and forth between each other)
+        NodeQueue queue = GraphOperations.nodeQueue(frozen, numNodes);
+        int settleOrder[] = new int[numNodes];
+        IntBuffer offsets = frozen.offsets();
+        IntBuffer targets = frozen.targets();
+        IntBuffer weights = frozen.weights();
+        for (int j = 0; j < numNodes; j++) {
+            int row[] = GraphOperations.shortestDistances(frozen, queue, j, settleOrder);
+            System.arraycopy(row, 0, distance, j * numNodes, numNodes);
+            for (int i = 0; i < numNodes; i++) {
+                if (i == j || row[i] == GraphOperations.INFINITY) {
+                    continue;
+                }
+                for (int a = offsets.get(i); a < offsets.get(i + 1); a++) {
+                    int to = targets.get(a);
+                    if (row[to] != GraphOperations.INFINITY
+                            && weights.get(a) + row[to] == row[i]
+                            && settleOrder[to] < settleOrder[i]) {
+                        next[i * numNodes + j] = to;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * numNodes
+     * 
+     * Gets the number of Nodes covered by this AllPairsIndex
+     * 
+     * @return  the number of Nodes
+     */
+    public int numNodes() {
+        return numNodes;
+    }
+
+    /**
+     * distance
+     * 
+     * Gets the shortest distance between two Nodes
+     * 
+     * @param   src
+     *          the source Node
+     * 
+     * @param   dst
+     *          the destination Node
+     * 
+     * @return  the distance, or GraphOperations.INFINITY if the destination
+     *          Node cannot be reached from the source Node
+     */
+    public int distance(Node src, Node dst) {
+        return distance[src.ordinal() * numNodes + dst.ordinal()];
+    }
+
+    /**
+     * nextHop
+     * 
+     * Gets the Node that follows the source Node on the shortest Path from
+     * the source Node to the destination Node
+     * 
+     * @param   src
+     *          the source Node
+     * 
+     * @param   dst
+     *          the destination Node
+     * 
+     * @return  the next Node, or null if the two Nodes are the same Node or
+     *          the destination Node cannot be reached
+     */
+    public Node nextHop(Node src, Node dst) {
+        int hop = next[src.ordinal() * numNodes + dst.ordinal()];
+        return hop == GraphOperations.NO_NEXT ? null : nodes[hop];
+    }
+
+    /**
+     * path
+     * 
+     * Builds the shortest Path between two Nodes by following the next hops
+     * from the source Node to the destination Node
+     * 
+     * @param   src
+     *          the source Node
+     * 
+     * @param   dst
+     *          the destination Node
+     * 
+     * @return  the Path, or null if the destination Node cannot be reached
+     */
+    public Path path(Node src, Node dst) {
+        if (distance(src, dst) == GraphOperations.INFINITY) {
+            return null;
+        }
+
+        Path path = new Path(nodes[src.ordinal()]);
+        int curr = src.ordinal();
+        int d = dst.ordinal();
+        while (curr != d) {
+            int hop = next[curr * numNodes + d];
+            path.addNode(nodes[hop], distance[curr * numNodes + d] - distance[hop * numNodes + d]);
+            curr = hop;
+        }
+
+        return path;
+    }
+
+    /**
+     * paths
+     * 
+     * Builds ALL the shortest Paths between two Nodes (i.e., including any
+     * "alternate" Paths of equal weight), in the same order as
+     * ShortestPathTree.pathsTo would (see dag).
+     * 
+     * @param   src
+     *          the source Node
+     * 
+     * @param   dst
+     *          the destination Node
+     * 
+     * @return  the vector of shortest Paths (empty if the destination Node
+     *          cannot be reached from the source Node)
+     */
+    public Vector<Path> paths(Node src, Node dst) {
+        return dag(src, dst).paths();
+    }
+
+    /**
+     * dag
+     * 
+     * Builds the ShortestPathDag of all the shortest Paths between two Nodes
+     * - the remaining distance from any Node to the destination Node is
+     * simply read out of the distance matrix, so only Edges whose weight plus
+     * the remaining distance of their "to" Node equals the remaining distance
+     * of their "from" Node are ever followed.
+     * 
+     * @param   src
+     *          the source Node
+     * 
+     * @param   dst
+     *          the destination Node
+     * 
+     * @return  the ShortestPathDag
+     */
+    public ShortestPathDag dag(Node src, Node dst) {
+        final int d = dst.ordinal();
+        return new ShortestPathDag(frozen, nodes[src.ordinal()], nodes[d],
+                new ShortestPathDag.Remaining() {
+                    public int remaining(Node node) {
+                        return distance[node.ordinal() * numNodes + d];
+                    }
+                });
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * BucketQueue class
+ * 
+ * A BucketQueue is a NodeQueue for Graphs whose Edge weights are small
+ * non-negative integers (Dial's algorithm). During a Dijkstra search, every
+ * key still in the queue lies between the key last popped and that key plus
+ * the largest Edge weight - so a circular array of (largest Edge weight + 1)
+ * buckets, one per key, is enough to hold them all, and pushing, lowering
+ * and popping cost a constant amount of work instead of a heap's log factor
+ * (popping may skip over empty buckets, but never more than one full turn
+ * of the array).
+ * 
+ * The buckets are intrusive doubly linked lists threaded through int arrays
+ * indexed by ordinal, so nothing is allocated once the BucketQueue has been
+ * created. Ties between equal keys are popped in no particular order.
+ * 
+ * @author Steve Rosen
+ */
+public class BucketQueue implements NodeQueue {
+    private static final int NONE = -1;
+
+    private int numBuckets;
+    private int bucketHead[];
+    private int next[];
+    private int prev[];
+    private int key[];
+    private boolean queued[];
+    private int size;
+    private int current;
+
+    /**
+     * BucketQueue
+     * 
+     * This constructor creates an empty BucketQueue able to hold the
+     * ordinals 0 through capacity - 1, for keys that grow by no more than
+     * a specified maximum step (the largest Edge weight)
+     * 
+     * @param   capacity
+     *          the number of Nodes (ordinals) this BucketQueue can hold
+     * 
+     * @param   maxStep
+     *          the largest Edge weight of the Graph being searched
+     */
+    public BucketQueue(int capacity, int maxStep) {
+        numBuckets = maxStep + 1;
+        bucketHead = new int[numBuckets];
+        next = new int[capacity];
+        prev = new int[capacity];
+        key = new int[capacity];
+        queued = new boolean[capacity];
+        Arrays.fill(bucketHead, NONE);
+        size = 0;
+        current = 0;
+    }
+
+    /**
+     * isEmpty
+     * 
+     * Whether or not this BucketQueue holds any ordinals
+     * 
+     * @return  true if this BucketQueue is empty; otherwise false
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * push
+     * 
+     * Adds an ordinal to this BucketQueue with a specified key - or, if the
+     * ordinal is already queued, moves it to the bucket of the specified key
+     * (a larger key than the current one is ignored). The key must be no
+     * smaller than the key last popped, and no larger than that key plus the
+     * maximum step - except for the first key pushed into an empty
+     * BucketQueue by a new search, which sets where the keys start.
+     * 
+     * @param   ordinal
+     *          the ordinal to add
+     * 
+     * @param   k
+     *          the key of the ordinal
+     * 
+     * @return  true if the ordinal was added or its key was lowered;
+     *          otherwise false
+     */
+    public boolean push(int ordinal, int k) {
+        if (queued[ordinal]) {
+            if (k >= key[ordinal]) {
+                return false;
+            }
+            unlink(ordinal);
+        } else {
+            // a key outside the window of the key last popped can only be
+            // the first key of a new search - start the window there
+            if (size == 0 && (k < current || k - current >= numBuckets)) {
+                current = k;
+            }
+            queued[ordinal] = true;
+            size++;
+        }
+
+        key[ordinal] = k;
+        int bucket = k % numBuckets;
+        prev[ordinal] = NONE;
+        next[ordinal] = bucketHead[bucket];
+        if (bucketHead[bucket] != NONE) {
+            prev[bucketHead[bucket]] = ordinal;
+        }
+        bucketHead[bucket] = ordinal;
+        return true;
+    }
+
+    /**
+     * peekKey
+     * 
+     * Gets the smallest key in this BucketQueue without removing its ordinal
+     * 
+     * @return  the smallest key
+     * 
+     * @throws  NoSuchElementException
+     *          if this BucketQueue is empty
+     */
+    public int peekKey() {
+        // with nothing queued, no bucket would ever be found
+        if (size == 0) {
+            throw new NoSuchElementException("the BucketQueue is empty");
+        }
+        while (bucketHead[current % numBuckets] == NONE) {
+            current++;
+        }
+        return current;
+    }
+
+    /**
+     * pop
+     * 
+     * Removes an ordinal with the smallest key from this BucketQueue
+     * 
+     * @return  the ordinal
+     * 
+     * @throws  NoSuchElementException
+     *          if this BucketQueue is empty
+     */
+    public int pop() {
+        int top = bucketHead[peekKey() % numBuckets];
+        unlink(top);
+        queued[top] = false;
+        size--;
+        return top;
+    }
+
+    /**
+     * clear
+     * 
+     * Removes all the ordinals from this BucketQueue so it can be reused
+     */
+    public void clear() {
+        for (int bucket = 0; bucket < numBuckets && size > 0; bucket++) {
+            for (int o = bucketHead[bucket]; o != NONE; o = next[o]) {
+                queued[o] = false;
+                size--;
+            }
+            bucketHead[bucket] = NONE;
+        }
+        size = 0;
+    }
+
+    /**
+     * unlink
+     * 
+     * Takes an ordinal out of its bucket's list
+     */
+    private void unlink(int ordinal) {
+        if (prev[ordinal] != NONE) {
+            next[prev[ordinal]] = next[ordinal];
+        } else {
+            bucketHead[key[ordinal] % numBuckets] = next[ordinal];
+        }
+        if (next[ordinal] != NONE) {
+            prev[next[ordinal]] = prev[ordinal];
+        }
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Stack;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CombinationSearch class
+ * 
+ * A CombinationSearch runs the main search of minPaths (see
+ * GraphOperations.minPaths) - it iterates through all the combinations of
+ * one Path from each ShortestPathDag (one DAG per pair of input Nodes, in
+ * order of weight), looking for the best (lightest) set of Paths that
+ * contain ALL of the input Nodes AND are fully connected.
+ * 
+ * The combinations form a tree - the Path taken from the first DAG, then
+ * the Path taken from the second DAG, and so on - and the top few levels of
+ * that tree are cut into numbered Subtrees, in the order the search would
+ * reach them. Any number of CombinationSearches can take Subtrees from the
+ * same Subtrees object, one after another, until there are none left - so
+ * they can run on as many threads as we like, and whichever thread is free
+ * takes on the next Subtree. Each CombinationSearch keeps the best Paths of
+ * the Subtrees it searched, and the winner is the lightest of those, taking
+ * the lowest numbered Subtree when there is a tie - which is exactly what a
+ * single search through the whole tree would have found.
+ * 
+ * When bounding, every CombinationSearch skips a branch as soon as it cannot
+ * beat its own best Paths, or as soon as it cannot even equal the best
+ * Paths of ALL the searches, which they share through an AtomicInteger (a
+ * branch that can only equal those might still win the tie).
+ * 
+ * @author Steve Rosen
+ */
+class CombinationSearch implements Callable<CombinationSearch> {
+    private Subtrees subtrees;
+    private boolean bound;
+    private AtomicInteger sharedWeight;
+    private PartialPaths partial;
+    private Vector<Path> minPaths;
+    private int minPathsWeight;
+    private int minPathsSubtree;
+    private int numTotalIterations;
+    private int numPrunedBranches;
+
+    /**
+     * CombinationSearch
+     * 
+     * This constructor creates a CombinationSearch that takes its Subtrees
+     * from a specified Subtrees object
+     * 
+     * @param   subtrees
+     *          the Subtrees to search
+     * 
+     * @param   bound
+     *          true to skip the branches that cannot win
+     * 
+     * @param   sharedWeight
+     *          the weight of the best Paths found by any search so far, or
+     *          null if this is the only search
+     */
+    CombinationSearch(Subtrees subtrees, boolean bound, AtomicInteger sharedWeight) {
+        this.subtrees = subtrees;
+        this.bound = bound;
+        this.sharedWeight = sharedWeight;
+        partial = new PartialPaths(subtrees.graph, subtrees.inputNodes);
+        minPaths = new Vector<Path>();
+        minPathsWeight = Integer.MAX_VALUE;
+        minPathsSubtree = Integer.MAX_VALUE;
+    }
+
+    /**
+     * call
+     * 
+     * Searches Subtrees until there are none left
+     * 
+     * @return  this CombinationSearch
+     */
+    public CombinationSearch call() {
+        for (Subtree subtree = subtrees.next(); subtree != null; subtree = subtrees.next()) {
+            for (Path path : subtree.prefix) {
+                partial.add(path);
+            }
+            if (!subtree.prefix.isEmpty() && isHopeless()) {
+                numPrunedBranches++;
+            } else if (subtree.complete) {
+                record(subtree.number);
+            } else {
+                search(subtree.number, subtree.prefix.size());
+            }
+            for (int i = 0; i < subtree.prefix.size(); i++) {
+                partial.removeLast();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * search
+     * 
+     * Searches the combinations below the current Paths, taking the next
+     * Path from the DAG at a specified level
+     * 
+     * @param   number
+     *          the number of the Subtree being searched
+     * 
+     * @param   level
+     *          the level (the index of the DAG) the Subtree starts at
+     */
+    private void search(int number, int level) {
+        Vector<ShortestPathDag> dags = subtrees.dags;
+        Vector<Path> currPaths = partial.paths();
+
+        // we use a stack of Path iterators, one per DAG we have taken a
+        // Path from so far - and we seed it with the DAG at the top of this
+        // Subtree. Our current Paths always hold the Path taken from each
+        // DAG below the top of the stack, so only the Paths of the current
+        // combination are ever built.
+        Stack<Iterator<Path>> stack = new Stack<Iterator<Path>>();
+        stack.push(dags.get(level).iterator());
+
+        // now we continue to process our stack until it has been
+        // emptied out - we take the next Path from the DAG on top of
+        // the stack and add it to our current Paths, then check to see
+        // if all our input Nodes are in this vector of current Paths -
+        // if so, the then verify that those Nodes in the current Paths
+        // vector are in a fully connected Graph - and if THAT is also
+        // true, we compare their weight to our current minimum Paths
+        // weight (see record).
+        while (!stack.isEmpty()) {
+            Iterator<Path> alternates = stack.peek();
+            if (!alternates.hasNext()) {
+                // we have tried every Path of the DAG on top of the stack,
+                // so go back to trying the next Path of the DAG below it
+                stack.pop();
+                if (currPaths.size() > level) {
+                    partial.removeLast();
+                }
+                continue;
+            }
+
+            numTotalIterations++;
+            Path nextPath = alternates.next();
+            nextPath.setOrdinal(level + stack.size() - 1);
+            partial.add(nextPath);
+
+            // when bounding, skip this Path (and everything that would be
+            // built on top of it) if it can no longer win
+            if (isHopeless()) {
+                numPrunedBranches++;
+                partial.removeLast();
+                continue;
+            }
+
+            if (partial.hasAllInputNodes() && partial.isConnected()) {
+                // we have a potentially better vector of Paths to
+                // return to the caller
+                record(number);
+                partial.removeLast();
+            } else if (level + stack.size() < dags.size()) {
+                // either we don't have all the input Nodes in our current
+                // vector of Paths or we have all the input Nodes, but the
+                // Nodes in the current vector of Paths is NOT in a fully
+                // connected Graph - so we need to add a Path from the next
+                // DAG to our current vector of Paths, which we do by pushing
+                // that DAG onto our stack...
+                stack.push(dags.get(level + stack.size()).iterator());
+            } else {
+                // there is no next DAG (some pair of input Nodes is not
+                // connected at all), so this combination goes nowhere
+                partial.removeLast();
+            }
+        }
+    }
+
+    /**
+     * isHopeless
+     * 
+     * @return  true if bounding, and nothing built on the current Paths can
+     *          win
+     */
+    private boolean isHopeless() {
+        if (!bound) {
+            return false;
+        }
+        long atLeast = (long) partial.weight() + partial.lowerBound();
+        return atLeast >= minPathsWeight
+                || (sharedWeight != null && atLeast > sharedWeight.get());
+    }
+
+    /**
+     * record
+     * 
+     * Makes the current Paths (which connect all the input Nodes) our
+     * minimum Paths, if they are lighter than our minimum Paths so far
+     * 
+     * @param   number
+     *          the number of the Subtree being searched
+     */
+    private void record(int number) {
+        int currPathsWeight = partial.weight();
+        if (currPathsWeight < minPathsWeight) {
+            // we have a winner! the current Paths are the best (shortest)
+            // so far - so save off the new minimum Paths weight and a copy
+            // of the new minimum set of Paths
+            minPathsWeight = currPathsWeight;
+            minPathsSubtree = number;
+            minPaths = new Vector<Path>(partial.paths());
+            if (sharedWeight != null) {
+                int shared = sharedWeight.get();
+                while (currPathsWeight < shared
+                        && !sharedWeight.compareAndSet(shared, currPathsWeight)) {
+                    shared = sharedWeight.get();
+                }
+            }
+        }
+    }
+
+    /**
+     * minPaths
+     * 
+     * @return  the best Paths this search found (empty if it found none)
+     */
+    Vector<Path> minPaths() {
+        return minPaths;
+    }
+
+    /**
+     * minPathsWeight
+     * 
+     * @return  the weight of the best Paths this search found, or
+     *          Integer.MAX_VALUE if it found none
+     */
+    int minPathsWeight() {
+        return minPathsWeight;
+    }
+
+    /**
+     * minPathsSubtree
+     * 
+     * @return  the number of the Subtree the best Paths were found in
+     */
+    int minPathsSubtree() {
+        return minPathsSubtree;
+    }
+
+    /**
+     * numTotalIterations
+     * 
+     * @return  the number of Paths this search tried
+     */
+    int numTotalIterations() {
+        return numTotalIterations;
+    }
+
+    /**
+     * numPrunedBranches
+     * 
+     * @return  the number of branches this search skipped
+     */
+    int numPrunedBranches() {
+        return numPrunedBranches;
+    }
+
+    /**
+     * Subtree class
+     * 
+     * One numbered Subtree of the search - the Paths taken from the DAGs
+     * above it, and whether those already connect all the input Nodes (in
+     * which case there is nothing below it to search)
+     */
+    static class Subtree {
+        int number;
+        Vector<Path> prefix;
+        boolean complete;
+    }
+
+    /**
+     * Subtrees class
+     * 
+     * Hands out the Subtrees of the search one at a time, in the order the
+     * search would reach them, by running the search itself down to a
+     * specified "split" depth - a Subtree is every combination that reaches
+     * that depth, plus every combination above it that already connects all
+     * the input Nodes. With a split depth of 0, the one and only Subtree is
+     * the whole search.
+     */
+    static class Subtrees {
+        private FrozenGraph graph;
+        private ArrayList<Node> inputNodes;
+        private Vector<ShortestPathDag> dags;
+        private int splitDepth;
+        private PartialPaths partial;
+        private Stack<Iterator<Path>> stack;
+        private boolean started;
+        private int numSubtrees;
+        private int numTotalIterations;
+
+        /**
+         * Subtrees
+         * 
+         * This constructor creates the Subtrees of the search over a sorted
+         * vector of ShortestPathDags
+         * 
+         * @param   graph
+         *          the FrozenGraph being searched
+         * 
+         * @param   inputNodes
+         *          the input Nodes to be connected
+         * 
+         * @param   dags
+         *          the ShortestPathDags, one per pair of input Nodes, in
+         *          order of weight
+         * 
+         * @param   splitDepth
+         *          how many levels of the search to cut into Subtrees
+         */
+        Subtrees(FrozenGraph graph, ArrayList<Node> inputNodes,
+                Vector<ShortestPathDag> dags, int splitDepth) {
+            this.graph = graph;
+            this.inputNodes = inputNodes;
+            this.dags = dags;
+            this.splitDepth = Math.min(splitDepth, dags.size());
+            partial = new PartialPaths(graph, inputNodes);
+            stack = new Stack<Iterator<Path>>();
+        }
+
+        /**
+         * next
+         * 
+         * Gets the next Subtree of the search
+         * 
+         * @return  the Subtree, or null if there are none left
+         */
+        synchronized Subtree next() {
+            if (splitDepth == 0) {
+                // the whole search is one Subtree
+                return (numSubtrees == 0) ? subtree(false) : null;
+            }
+            if (!started) {
+                started = true;
+                stack.push(dags.get(0).iterator());
+            }
+
+            while (!stack.isEmpty()) {
+                Iterator<Path> alternates = stack.peek();
+                if (!alternates.hasNext()) {
+                    stack.pop();
+                    if (!partial.paths().isEmpty()) {
+                        partial.removeLast();
+                    }
+                    continue;
+                }
+
+                numTotalIterations++;
+                Path nextPath = alternates.next();
+                nextPath.setOrdinal(stack.size() - 1);
+                partial.add(nextPath);
+                Subtree subtree = null;
+                if (partial.hasAllInputNodes() && partial.isConnected()) {
+                    subtree = subtree(true);
+                } else if (stack.size() == splitDepth && stack.size() < dags.size()) {
+                    subtree = subtree(false);
+                } else if (stack.size() < dags.size()) {
+                    stack.push(dags.get(stack.size()).iterator());
+                    continue;
+                }
+                partial.removeLast();
+                if (subtree != null) {
+                    return subtree;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * numTotalIterations
+         * 
+         * @return  the number of Paths tried while cutting the Subtrees
+         */
+        synchronized int numTotalIterations() {
+            return numTotalIterations;
+        }
+
+        /**
+         * subtree
+         * 
+         * @param   complete
+         *          true if the current Paths already connect all the input
+         *          Nodes
+         * 
+         * @return  a new Subtree for the current Paths
+         */
+        private Subtree subtree(boolean complete) {
+            Subtree subtree = new Subtree();
+            subtree.number = numSubtrees++;
+            subtree.prefix = new Vector<Path>(partial.paths());
+            subtree.complete = complete;
+            return subtree;
+        }
+    }
+}
@@ -0,0 +1,703 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Stack;
+import java.util.Vector;
+
+/**
+ * ContractionHierarchy class
+ * 
+ * A ContractionHierarchy is a shortest path index for a large Graph that
+ * does not change (or changes rarely). Building it "contracts" the Nodes of
+ * the Graph one at a time, least important first - contracting a Node takes
+ * it out of the Graph, and adds a "shortcut" Edge between any two of its
+ * remaining neighbours whose shortest Path went through it (unless a local
+ * "witness" search finds another Path that is just as short). The order in
+ * which the Nodes were contracted is their rank.
+ * 
+ * Every shortest Path in the Graph then has an equally short version that
+ * only ever climbs up in rank (using shortcuts) to some top Node and then
+ * only ever climbs back down - so a query runs a tiny bidirectional Dijkstra
+ * search over the "upward" Edges alone, from both the source and the
+ * destination Node, and the two searches meet at that top Node. Each
+ * shortcut remembers the Node it skipped over, so a Path found this way can
+ * be unpacked back into the Edges of the original Graph.
+ * 
+ * The upward Edges are stored in compressed form as primitive arrays -
+ * the upward Edges of the Node with ordinal v are the entries
+ * upOffsets[v] through upOffsets[v + 1] - 1 of upTargets (the ordinal of
+ * the higher ranked Node), upWeights and upMiddles (the ordinal of the Node
+ * a shortcut skips over, or GraphOperations.NO_NEXT for an original Edge).
+ * 
+ * A ContractionHierarchy is normally not created directly - it is built
+ * lazily by Graph.contractionHierarchy, and thrown away by the Graph when
+ * Nodes or Edges are added to it.
+ * 
+ * @author Steve Rosen
+ */
+public class ContractionHierarchy {
+    // how many Nodes a witness search may settle before giving up (giving
+    // up just means adding a shortcut that might not have been needed)
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private FrozenGraph frozen;
+    private Node nodes[];
+    private int numNodes;
+    private int rank[];
+    private int byRank[];
+    private int upOffsets[];
+    private int upTargets[];
+    private int upWeights[];
+    private int upMiddles[];
+    private int numShortcuts;
+    private ThreadLocal<Search> searches;
+
+    // the working Graph, only used while the hierarchy is being built
+    private int adjTo[][];
+    private int adjWeight[][];
+    private int adjMiddle[][];
+    private int adjSize[];
+    private boolean contracted[];
+    private int deletedNeighbors[];
+    private int witnessDistance[];
+    private NodeHeap witnessHeap;
+    private int touched[];
+    private int numTouched;
+
+    /**
+     * ContractionHierarchy
+     * 
+     * This constructor builds the hierarchy for a Graph - it copies the
+     * Edges of the Graph into a working Graph, contracts every Node of it,
+     * and keeps just the upward Edges
+     * 
+     * @param   graph
+     *          the Graph to index
+     */
+    public ContractionHierarchy(Graph graph) {
+        frozen = graph.freeze();
+        nodes = frozen.nodes();
+        numNodes = nodes.length;
+        rank = new int[numNodes];
+        byRank = new int[numNodes];
+
+        adjTo = new int[numNodes][];
+        adjWeight = new int[numNodes][];
+        adjMiddle = new int[numNodes][];
+        adjSize = new int[numNodes];
+        IntBuffer offsets = frozen.offsets();
+        IntBuffer targets = frozen.targets();
+        IntBuffer weights = frozen.weights();
+        for (int v = 0; v < numNodes; v++) {
+            int degree = Math.max(offsets.get(v + 1) - offsets.get(v), 1);
+            adjTo[v] = new int[degree];
+            adjWeight[v] = new int[degree];
+            adjMiddle[v] = new int[degree];
+        }
+        for (int v = 0; v < numNodes; v++) {
+            for (int a = offsets.get(v); a < offsets.get(v + 1); a++) {
+                addArc(v, targets.get(a), weights.get(a), GraphOperations.NO_NEXT);
+            }
+        }
+
+        contracted = new boolean[numNodes];
+        deletedNeighbors = new int[numNodes];
+        witnessDistance = new int[numNodes];
+        Arrays.fill(witnessDistance, GraphOperations.INFINITY);
+        witnessHeap = new NodeHeap(numNodes);
+        touched = new int[numNodes];
+
+        contractAll();
+        buildUpwardGraph();
+
+        // the working Graph is no longer needed
+        adjTo = null;
+        adjWeight = null;
+        adjMiddle = null;
+        adjSize = null;
+        contracted = null;
+        deletedNeighbors = null;
+        witnessDistance = null;
+        witnessHeap = null;
+        touched = null;
+
+        searches = new ThreadLocal<Search>() {
+            protected Search initialValue() {
+                return new Search(numNodes);
+            }
+        };
+    }
+
+    /**
+     * numShortcuts
+     * 
+     * Gets the number of shortcut Edges in this ContractionHierarchy
+     * 
+     * @return  the number of shortcuts
+     */
+    public int numShortcuts() {
+        return numShortcuts;
+    }
+
+    /**
+     * rank
+     * 
+     * Gets the rank of a Node (the order in which it was contracted)
+     * 
+     * @param   node
+     *          the Node
+     * 
+     * @return  the rank
+     */
+    public int rank(Node node) {
+        return rank[node.ordinal()];
+    }
+
+    /**
+     * distance
+     * 
+     * Gets the shortest distance between two Nodes
+     * 
+     * @param   src
+     *          the source Node
+     * 
+     * @param   dst
+     *          the destination Node
+     * 
+     * @return  the distance, or GraphOperations.INFINITY if the destination
+     *          Node cannot be reached from the source Node
+     */
+    public int distance(Node src, Node dst) {
+        Search search = searches.get();
+        int best = search.run(src.ordinal(), dst.ordinal());
+        search.reset();
+        return best;
+    }
+
+    /**
+     * path
+     * 
+     * Gets a shortest Path between two Nodes, by unpacking the shortcuts
+     * of the upward Paths that the query found from both Nodes
+     * 
+     * @param   src
+     *          the source Node
+     * 
+     * @param   dst
+     *          the destination Node
+     * 
+     * @return  the Path, or null if the destination Node cannot be reached
+     */
+    public Path path(Node src, Node dst) {
+        Search search = searches.get();
+        int best = search.run(src.ordinal(), dst.ordinal());
+        if (best == GraphOperations.INFINITY) {
+            search.reset();
+            return null;
+        }
+
+        // the forward search's parents lead from the meeting Node back down
+        // to the source Node - collect them so we can unpack them in order
+        Stack<Integer> upward = new Stack<Integer>();
+        for (int v = search.meet; v != src.ordinal(); v = search.fwdParent[v]) {
+            upward.push(v);
+        }
+
+        Path path = new Path(nodes[src.ordinal()]);
+        int prev = src.ordinal();
+        while (!upward.isEmpty()) {
+            int next = upward.pop();
+            unpack(prev, next, path);
+            prev = next;
+        }
+
+        // and the backward search's parents lead from the meeting Node
+        // down to the destination Node
+        for (int v = search.meet; v != dst.ordinal(); v = search.bwdParent[v]) {
+            unpack(v, search.bwdParent[v], path);
+        }
+
+        search.reset();
+        return path;
+    }
+
+    /**
+     * paths
+     * 
+     * Gets ALL the shortest Paths between two Nodes (i.e., including any
+     * "alternate" Paths of equal weight), in the same order as
+     * ShortestPathTree.pathsTo would (see dag).
+     * 
+     * @param   src
+     *          the source Node
+     * 
+     * @param   dst
+     *          the destination Node
+     * 
+     * @return  the vector of shortest Paths (empty if the destination Node
+     *          cannot be reached from the source Node)
+     */
+    public Vector<Path> paths(Node src, Node dst) {
+        return dag(src, dst).paths();
+    }
+
+    /**
+     * dag
+     * 
+     * Gets the ShortestPathDag of all the shortest Paths between two Nodes.
+     * Just like the other shortest path engines, the DAG is built by walking
+     * forwards from the source Node over the original Edges, only stepping
+     * to a Node if the Edge weight plus that Node's own distance to the
+     * destination Node is exactly the distance still left to cover. Those
+     * distances are all worked out at once, before the walk (see
+     * distancesTo), rather than with one query per Node.
+     * 
+     * @param   src
+     *          the source Node
+     * 
+     * @param   dst
+     *          the destination Node
+     * 
+     * @return  the ShortestPathDag
+     */
+    public ShortestPathDag dag(Node src, Node dst) {
+        final int remaining[] = distancesTo(dst.ordinal());
+        return new ShortestPathDag(frozen, nodes[src.ordinal()], nodes[dst.ordinal()],
+                new ShortestPathDag.Remaining() {
+                    public int remaining(Node node) {
+                        return remaining[node.ordinal()];
+                    }
+                });
+    }
+
+    /**
+     * distancesTo
+     * 
+     * Gets the shortest distance from every Node to one Node, with a full
+     * upward search from that Node followed by one sweep down through all
+     * the Nodes, highest rank first, in which each Node takes the best of
+     * its upward Edges to the Nodes already swept (the PHAST algorithm of
+     * Delling, Goldberg, Nowatzyk and Werneck). That costs one pass over the
+     * upward Edges, with no priority queue, instead of a query per Node.
+     * 
+     * @param   t
+     *          the ordinal of the Node
+     * 
+     * @return  the distances (GraphOperations.INFINITY where there is no
+     *          Path), indexed by ordinal
+     */
+    private int[] distancesTo(int t) {
+        int distance[] = new int[numNodes];
+        Arrays.fill(distance, GraphOperations.INFINITY);
+        distance[t] = 0;
+
+        // the upward search is never cut short, since every Node it reaches
+        // may be where the shortest Path from some lower Node turns down
+        NodeHeap heap = searches.get().bwdHeap;
+        heap.push(t, 0);
+        while (!heap.isEmpty()) {
+            int curr = heap.pop();
+            for (int arc = upOffsets[curr]; arc < upOffsets[curr + 1]; arc++) {
+                int to = upTargets[arc];
+                int toDistance = distance[curr] + upWeights[arc];
+                if (toDistance < distance[to]) {
+                    distance[to] = toDistance;
+                    heap.push(to, toDistance);
+                }
+            }
+        }
+
+        // every upward Edge of a Node leads to a Node already swept
+        for (int r = numNodes - 1; r >= 0; r--) {
+            int v = byRank[r];
+            for (int arc = upOffsets[v]; arc < upOffsets[v + 1]; arc++) {
+                int to = upTargets[arc];
+                if (distance[to] != GraphOperations.INFINITY
+                        && distance[to] + upWeights[arc] < distance[v]) {
+                    distance[v] = distance[to] + upWeights[arc];
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * unpack
+     * 
+     * Appends the original Edges that the upward Edge between Nodes a and b
+     * stands for to a Path that currently ends at Node a
+     */
+    private void unpack(int a, int b, Path path) {
+        int arc = (rank[a] < rank[b]) ? findArc(a, b) : findArc(b, a);
+        int middle = upMiddles[arc];
+        if (middle == GraphOperations.NO_NEXT) {
+            path.addNode(nodes[b], upWeights[arc]);
+        } else {
+            unpack(a, middle, path);
+            unpack(middle, b, path);
+        }
+    }
+
+    /**
+     * findArc
+     * 
+     * Finds the upward Edge from Node "lower" to the higher ranked Node
+     * "higher"
+     */
+    private int findArc(int lower, int higher) {
+        for (int arc = upOffsets[lower]; arc < upOffsets[lower + 1]; arc++) {
+            if (upTargets[arc] == higher) {
+                return arc;
+            }
+        }
+        throw new IllegalStateException("no upward Edge from " + nodes[lower]
+                + " to " + nodes[higher]);
+    }
+
+    /**
+     * contractAll
+     * 
+     * Contracts every Node of the working Graph, always picking the Node
+     * whose contraction looks cheapest - the number of shortcuts it needs,
+     * minus the number of Edges it takes away, plus the number of its
+     * neighbours already contracted (which spreads the contractions evenly
+     * over the Graph). Those priorities go stale as neighbours get
+     * contracted, so a Node's priority is recomputed when it reaches the top
+     * of the queue, and it goes back in if it is no longer the cheapest.
+     */
+    private void contractAll() {
+        NodeHeap queue = new NodeHeap(numNodes);
+        for (int v = 0; v < numNodes; v++) {
+            queue.push(v, priority(v));
+        }
+
+        int order = 0;
+        while (!queue.isEmpty()) {
+            int v = queue.pop();
+            int p = priority(v);
+            if (!queue.isEmpty() && p > queue.peekKey()) {
+                queue.push(v, p);
+                continue;
+            }
+
+            addShortcuts(v, true);
+            contracted[v] = true;
+            rank[v] = order;
+            byRank[order++] = v;
+            for (int i = 0; i < adjSize[v]; i++) {
+                deletedNeighbors[adjTo[v][i]]++;
+            }
+        }
+    }
+
+    /**
+     * priority
+     * 
+     * Gets the contraction priority of a Node (smaller is contracted sooner)
+     */
+    private int priority(int v) {
+        int degree = 0;
+        for (int i = 0; i < adjSize[v]; i++) {
+            if (!contracted[adjTo[v][i]]) {
+                degree++;
+            }
+        }
+        return addShortcuts(v, false) - degree + deletedNeighbors[v];
+    }
+
+    /**
+     * addShortcuts
+     * 
+     * Finds (and, if "apply" is true, adds) the shortcuts needed to contract
+     * Node v - for each pair of its remaining neighbours u and x, a shortcut
+     * is needed unless a witness search from u that avoids v finds a Path
+     * to x that is no longer than going through v
+     * 
+     * @return  the number of shortcuts needed
+     */
+    private int addShortcuts(int v, boolean apply) {
+        int count = 0;
+        for (int i = 0; i < adjSize[v]; i++) {
+            int u = adjTo[v][i];
+            if (contracted[u]) {
+                continue;
+            }
+
+            int maxDistance = -1;
+            for (int j = i + 1; j < adjSize[v]; j++) {
+                if (!contracted[adjTo[v][j]]) {
+                    maxDistance = Math.max(maxDistance, adjWeight[v][i] + adjWeight[v][j]);
+                }
+            }
+            if (maxDistance < 0) {
+                continue;
+            }
+
+            witnessSearch(u, v, maxDistance);
+            for (int j = i + 1; j < adjSize[v]; j++) {
+                int x = adjTo[v][j];
+                int via = adjWeight[v][i] + adjWeight[v][j];
+                if (!contracted[x] && witnessDistance[x] > via) {
+                    count++;
+                    if (apply) {
+                        addArc(u, x, via, v);
+                        addArc(x, u, via, v);
+                    }
+                }
+            }
+            resetWitness();
+        }
+        return count;
+    }
+
+    /**
+     * witnessSearch
+     * 
+     * Runs a limited Dijkstra search from Node "src" over the Nodes not yet
+     * contracted (other than Node "excluded"), up to a maximum distance
+     */
+    private void witnessSearch(int src, int excluded, int maxDistance) {
+        touch(src);
+        witnessDistance[src] = 0;
+        witnessHeap.push(src, 0);
+
+        int settled = 0;
+        while (!witnessHeap.isEmpty() && witnessHeap.peekKey() <= maxDistance
+                && settled < WITNESS_SETTLE_LIMIT) {
+            int curr = witnessHeap.pop();
+            settled++;
+            for (int i = 0; i < adjSize[curr]; i++) {
+                int to = adjTo[curr][i];
+                if (to == excluded || contracted[to]) {
+                    continue;
+                }
+                int toDistance = witnessDistance[curr] + adjWeight[curr][i];
+                if (toDistance < witnessDistance[to]) {
+                    if (witnessDistance[to] == GraphOperations.INFINITY) {
+                        touch(to);
+                    }
+                    witnessDistance[to] = toDistance;
+                    witnessHeap.push(to, toDistance);
+                }
+            }
+        }
+        witnessHeap.clear();
+    }
+
+    /**
+     * touch
+     * 
+     * Remembers that a Node's witness distance has been set
+     */
+    private void touch(int v) {
+        touched[numTouched++] = v;
+    }
+
+    /**
+     * resetWitness
+     * 
+     * Resets the witness distances set by the last witness search
+     */
+    private void resetWitness() {
+        for (int i = 0; i < numTouched; i++) {
+            witnessDistance[touched[i]] = GraphOperations.INFINITY;
+        }
+        numTouched = 0;
+    }
+
+    /**
+     * addArc
+     * 
+     * Adds an Edge from Node a to Node b to the working Graph - or, if
+     * there already is one, lowers its weight (if this one is lighter)
+     */
+    private void addArc(int a, int b, int weight, int middle) {
+        for (int i = 0; i < adjSize[a]; i++) {
+            if (adjTo[a][i] == b) {
+                if (weight < adjWeight[a][i]) {
+                    adjWeight[a][i] = weight;
+                    adjMiddle[a][i] = middle;
+                }
+                return;
+            }
+        }
+
+        if (adjSize[a] == adjTo[a].length) {
+            int capacity = adjTo[a].length * 2;
+            adjTo[a] = Arrays.copyOf(adjTo[a], capacity);
+            adjWeight[a] = Arrays.copyOf(adjWeight[a], capacity);
+            adjMiddle[a] = Arrays.copyOf(adjMiddle[a], capacity);
+        }
+        adjTo[a][adjSize[a]] = b;
+        adjWeight[a][adjSize[a]] = weight;
+        adjMiddle[a][adjSize[a]] = middle;
+        adjSize[a]++;
+    }
+
+    /**
+     * buildUpwardGraph
+     * 
+     * Keeps only the Edges of the working Graph that lead up in rank, in
+     * compressed form
+     */
+    private void buildUpwardGraph() {
+        upOffsets = new int[numNodes + 1];
+        for (int v = 0; v < numNodes; v++) {
+            int count = 0;
+            for (int i = 0; i < adjSize[v]; i++) {
+                if (rank[adjTo[v][i]] > rank[v]) {
+                    count++;
+                }
+            }
+            upOffsets[v + 1] = upOffsets[v] + count;
+        }
+
+        upTargets = new int[upOffsets[numNodes]];
+        upWeights = new int[upOffsets[numNodes]];
+        upMiddles = new int[upOffsets[numNodes]];
+        for (int v = 0; v < numNodes; v++) {
+            int arc = upOffsets[v];
+            for (int i = 0; i < adjSize[v]; i++) {
+                if (rank[adjTo[v][i]] > rank[v]) {
+                    upTargets[arc] = adjTo[v][i];
+                    upWeights[arc] = adjWeight[v][i];
+                    upMiddles[arc] = adjMiddle[v][i];
+                    if (upMiddles[arc] != GraphOperations.NO_NEXT) {
+                        numShortcuts++;
+                    }
+                    arc++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Search class
+     * 
+     * The working arrays of one query, kept per thread and reset after each
+     * query (only the entries that were actually touched), so a query costs
+     * time in proportion to the part of the hierarchy it searches rather
+     * than to the size of the Graph
+     */
+    private class Search {
+        int fwdDistance[];
+        int bwdDistance[];
+        int fwdParent[];
+        int bwdParent[];
+        NodeHeap fwdHeap;
+        NodeHeap bwdHeap;
+        int touched[];
+        int numTouched;
+        int meet;
+
+        Search(int numNodes) {
+            fwdDistance = new int[numNodes];
+            bwdDistance = new int[numNodes];
+            fwdParent = new int[numNodes];
+            bwdParent = new int[numNodes];
+            Arrays.fill(fwdDistance, GraphOperations.INFINITY);
+            Arrays.fill(bwdDistance, GraphOperations.INFINITY);
+            fwdHeap = new NodeHeap(numNodes);
+            bwdHeap = new NodeHeap(numNodes);
+            touched = new int[2 * numNodes];
+        }
+
+        /**
+         * run
+         * 
+         * Runs the upward searches from Nodes s and t until neither can
+         * improve on the best meeting distance found so far
+         * 
+         * @return  the shortest distance (the meeting Node is left in "meet")
+         */
+        int run(int s, int t) {
+            numTouched = 0;
+            touched[numTouched++] = s;
+            touched[numTouched++] = t;
+            fwdDistance[s] = 0;
+            bwdDistance[t] = 0;
+            fwdParent[s] = GraphOperations.NO_NEXT;
+            bwdParent[t] = GraphOperations.NO_NEXT;
+            fwdHeap.push(s, 0);
+            bwdHeap.push(t, 0);
+
+            int best = GraphOperations.INFINITY;
+            meet = GraphOperations.NO_NEXT;
+            while (true) {
+                if (!fwdHeap.isEmpty() && fwdHeap.peekKey() >= best) {
+                    fwdHeap.clear();
+                }
+                if (!bwdHeap.isEmpty() && bwdHeap.peekKey() >= best) {
+                    bwdHeap.clear();
+                }
+                if (fwdHeap.isEmpty() && bwdHeap.isEmpty()) {
+                    break;
+                }
+
+                boolean forward = bwdHeap.isEmpty()
+                        || (!fwdHeap.isEmpty() && fwdHeap.peekKey() <= bwdHeap.peekKey());
+                NodeHeap heap = forward ? fwdHeap : bwdHeap;
+                int distance[] = forward ? fwdDistance : bwdDistance;
+                int otherDistance[] = forward ? bwdDistance : fwdDistance;
+                int parent[] = forward ? fwdParent : bwdParent;
+
+                int curr = heap.pop();
+                if (otherDistance[curr] != GraphOperations.INFINITY
+                        && distance[curr] + otherDistance[curr] < best) {
+                    best = distance[curr] + otherDistance[curr];
+                    meet = curr;
+                }
+
+                for (int arc = upOffsets[curr]; arc < upOffsets[curr + 1]; arc++) {
+                    int to = upTargets[arc];
+                    int toDistance = distance[curr] + upWeights[arc];
+                    if (toDistance < distance[to]) {
+                        if (fwdDistance[to] == GraphOperations.INFINITY
+                                && bwdDistance[to] == GraphOperations.INFINITY) {
+                            touched[numTouched++] = to;
+                        }
+                        distance[to] = toDistance;
+                        parent[to] = curr;
+                        heap.push(to, toDistance);
+                    }
+                }
+            }
+
+            return best;
+        }
+
+        /**
+         * reset
+         * 
+         * Resets the distances set by the last query
+         */
+        void reset() {
+            for (int i = 0; i < numTouched; i++) {
+                fwdDistance[touched[i]] = GraphOperations.INFINITY;
+                bwdDistance[touched[i]] = GraphOperations.INFINITY;
+            }
+            numTouched = 0;
+        }
+    }
+}
@@ -0,0 +1,842 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Stack;
+
+/**
+ * DynamicSpanningForest class
+ * 
+ * A DynamicSpanningForest keeps a minimum spanning forest of a Graph (see
+ * SpanningForest) up to date while Edges are added, removed and reweighted,
+ * instead of finding it again from scratch after every change. All changes
+ * to the Graph must go through this DynamicSpanningForest (see addEdge,
+ * removeEdge and setEdgeWeight) - it does not see changes made directly to
+ * the Graph.
+ * 
+ * The forest is held as a link-cut tree, in which every Node and every
+ * forest Edge is a vertex (an Edge sits between its two Nodes), so the
+ * heaviest Edge on the forest path between any two Nodes can be found in
+ * O(log n) amortized time. Then:
+ * 
+ * - a new Edge between two trees joins them; a new Edge inside a tree
+ * replaces the heaviest Edge on the path between its ends, if it is lighter
+ * (and the same for an Edge outside the forest that gets lighter) - O(log n)
+ * 
+ * - removing a forest Edge (or making it heavier) splits its tree in two,
+ * and the lightest Edge that joins the two halves again takes its place.
+ * The two halves are walked at the same pace (through the forest Edges of
+ * each Node, which are also kept in plain lists) until one of them runs
+ * out, and only the Edges of the Nodes of that smaller half are looked at -
+ * O(s + log n), s being the number of Edges of the Nodes of the smaller half.
+ * That is NOT polylogarithmic in the worst case: cutting a tree into two
+ * halves of the same size walks n / 2 Nodes and looks at every Edge of
+ * them, O(n + m) for a single removal. Removals that keep cutting big trees
+ * near the middle (say, the Edges of a long path) pay that every time - the
+ * levels of Holm, de Lichtenberg and Thorup, which would make them
+ * O(log^2 n) amortized, are not implemented.
+ * 
+ * Parallel Edges between the same two Nodes are kept as one Edge, the
+ * lightest of them, since the Graph only ever removes or reweights them
+ * together.
+ * 
+ * Edges of equal weight are told apart by an id given to every Edge when it
+ * is added, so the forest is a minimum spanning forest, but (like the
+ * different SpanningEngines) it may pick different Edges of equal weight
+ * than kruskalForest.
+ * 
+ * @author Steve Rosen
+ */
+public class DynamicSpanningForest {
+    private static final int NONE = -1;
+
+    private Graph graph;
+
+    // the link-cut tree: one vertex per Node and per Edge, each vertex a node
+    // of a splay tree of the path it is on
+    private int left[];
+    private int right[];
+    private int parent[];
+    private boolean reversed[];
+    private int heaviest[];
+    private int numVertices;
+    private int splayPath[];
+    private Stack<Integer> freeVertices;
+
+    // per Node ordinal, its vertex
+    private int nodeVertex[];
+
+    // per Edge vertex, its Node ordinals and weight (NONE for Node vertices)
+    private int from[];
+    private int to[];
+    private int weight[];
+    private boolean inForest[];
+
+    private HashMap<Long, Integer> edgeVertices;
+    private ArrayList<ArrayList<Integer>> forestEdgesOf;
+    private int side[];
+    private int walk;
+    private int numForestEdges;
+    private long totalWeight;
+
+    /**
+     * DynamicSpanningForest
+     * 
+     * This constructor finds the minimum spanning forest of a Graph, and
+     * attaches this DynamicSpanningForest to it
+     * 
+     * @param   g
+     *          the Graph
+     */
+    public DynamicSpanningForest(Graph g) {
+        graph = g;
+        left = new int[16];
+        right = new int[16];
+        parent = new int[16];
+        reversed = new boolean[16];
+        heaviest = new int[16];
+        from = new int[16];
+        to = new int[16];
+        weight = new int[16];
+        inForest = new boolean[16];
+        splayPath = new int[16];
+        freeVertices = new Stack<Integer>();
+        nodeVertex = new int[0];
+        edgeVertices = new HashMap<Long, Integer>();
+        forestEdgesOf = new ArrayList<ArrayList<Integer>>();
+        side = new int[0];
+
+        addNodes();
+
+        // parallel Edges between two Nodes are removed and reweighted
+        // together (see Graph.removeEdge and Graph.setEdgeWeight), so they
+        // are kept as one Edge - the lightest of them, as kruskalForest would
+        int edges[][] = GraphOperations.undirectedEdges(g.freeze());
+        HashMap<Long, Integer> lightest = new HashMap<Long, Integer>();
+        for (int i = 0; i < edges[0].length; i++) {
+            Long key = pairKey(Math.min(edges[0][i], edges[1][i]),
+                    Math.max(edges[0][i], edges[1][i]));
+            Integer j = lightest.get(key);
+            if (j == null || edges[2][i] < edges[2][j]) {
+                lightest.put(key, i);
+            }
+        }
+        for (int i = 0; i < edges[0].length; i++) {
+            if (lightest.get(pairKey(Math.min(edges[0][i], edges[1][i]),
+                    Math.max(edges[0][i], edges[1][i]))) == i) {
+                insert(edges[0][i], edges[1][i], edges[2][i]);
+            }
+        }
+    }
+
+    /**
+     * addEdge
+     * 
+     * Adds an Edge to the Graph between Node n1 and Node n2 with a specified
+     * weight (see Graph.addEdge), and to the forest if it belongs there. If
+     * the Nodes already have an Edge between them, its weight is changed
+     * instead (see setEdgeWeight).
+     * 
+     * @param   n1
+     *          Node one
+     * 
+     * @param   n2
+     *          Node two
+     * 
+     * @param   weight
+     *          the weight of the Edge between Node n1 and Node n2
+     */
+    public void addEdge(Node n1, Node n2, int weight) {
+        if (n1.equals(n2)) {
+            throw new IllegalArgumentException("an Edge must join two different Nodes");
+        }
+        if (n1.ordinal() >= 0 && n2.ordinal() >= 0 && n1.edgeTo(n2) != null) {
+            setEdgeWeight(n1, n2, weight);
+            return;
+        }
+
+        graph.addEdge(n1, n2, weight);
+        addNodes();
+        insert(n1.ordinal(), n2.ordinal(), weight);
+    }
+
+    /**
+     * removeEdge
+     * 
+     * Removes the Edge between Node n1 and Node n2 from the Graph (see
+     * Graph.removeEdge), and from the forest if it was there - which can
+     * take O(n + m) time when it splits a tree near the middle (see above)
+     * 
+     * @param   n1
+     *          Node one
+     * 
+     * @param   n2
+     *          Node two
+     * 
+     * @return  true if the Edge was removed, false if there was no Edge
+     *          between the two Nodes
+     */
+    public boolean removeEdge(Node n1, Node n2) {
+        Integer e = edgeVertex(n1, n2);
+        if (e == null) {
+            return false;
+        }
+
+        graph.removeEdge(n1, n2);
+        edgeVertices.remove(pairKey(from[e], to[e]));
+        if (inForest[e]) {
+            cutForestEdge(e);
+            reconnect(from[e], to[e]);
+        }
+        freeVertex(e);
+        return true;
+    }
+
+    /**
+     * setEdgeWeight
+     * 
+     * Changes the weight of the Edge between Node n1 and Node n2 in the Graph
+     * (see Graph.setEdgeWeight), and moves it into or out of the forest if
+     * it has to
+     * 
+     * @param   n1
+     *          Node one
+     * 
+     * @param   n2
+     *          Node two
+     * 
+     * @param   weight
+     *          the new weight of the Edge between Node n1 and Node n2
+     */
+    public void setEdgeWeight(Node n1, Node n2, int weight) {
+        Integer e = edgeVertex(n1, n2);
+        if (e == null) {
+            addEdge(n1, n2, weight);
+            return;
+        }
+
+        graph.setEdgeWeight(n1, n2, weight);
+        int oldWeight = this.weight[e];
+        if (inForest[e]) {
+            // a forest Edge that gets lighter stays in the forest - one that
+            // gets heavier may be replaced by an Edge outside the forest
+            access(e);
+            this.weight[e] = weight;
+            update(e);
+            totalWeight += weight - oldWeight;
+            if (weight > oldWeight) {
+                cutForestEdge(e);
+                reconnect(from[e], to[e]);
+            }
+        } else {
+            this.weight[e] = weight;
+            if (weight < oldWeight) {
+                offer(e);
+            }
+        }
+    }
+
+    /**
+     * forest
+     * 
+     * Gets the current minimum spanning forest
+     * 
+     * @return  the SpanningForest
+     */
+    public SpanningForest forest() {
+        int forestFrom[] = new int[numForestEdges];
+        int forestTo[] = new int[numForestEdges];
+        int forestWeights[] = new int[numForestEdges];
+        int numEdges = 0;
+        for (int e : edgeVertices.values()) {
+            if (inForest[e]) {
+                forestFrom[numEdges] = from[e];
+                forestTo[numEdges] = to[e];
+                forestWeights[numEdges] = weight[e];
+                numEdges++;
+            }
+        }
+        return new SpanningForest(forestFrom, forestTo, forestWeights, numComponents());
+    }
+
+    /**
+     * inForest
+     * 
+     * Whether or not the Edge between Node n1 and Node n2 is in the forest
+     * 
+     * @param   n1
+     *          Node one
+     * 
+     * @param   n2
+     *          Node two
+     * 
+     * @return  true if the Edge is in the forest, false if it is not (or
+     *          there is no Edge between the two Nodes)
+     */
+    public boolean inForest(Node n1, Node n2) {
+        Integer e = edgeVertex(n1, n2);
+        return e != null && inForest[e];
+    }
+
+    /**
+     * connected
+     * 
+     * Whether or not two Nodes are in the same tree of the forest
+     * 
+     * @param   n1
+     *          Node one
+     * 
+     * @param   n2
+     *          Node two
+     * 
+     * @return  true if there is a Path between the two Nodes, false if not
+     */
+    public boolean connected(Node n1, Node n2) {
+        addNodes();
+        return findRoot(nodeVertex[n1.ordinal()]) == findRoot(nodeVertex[n2.ordinal()]);
+    }
+
+    /**
+     * numComponents
+     * 
+     * Gets the number of trees in the forest
+     * 
+     * @return  the number of trees (1 if the Graph is connected)
+     */
+    public int numComponents() {
+        addNodes();
+        return nodeVertex.length - numForestEdges;
+    }
+
+    /**
+     * totalWeight
+     * 
+     * Gets the sum of the weights of the forest Edges
+     * 
+     * @return  the total weight
+     */
+    public long totalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * insert
+     * 
+     * Adds a new Edge between two Nodes, to the forest if it belongs there
+     * 
+     * @param   v1
+     *          the ordinal of Node one
+     * 
+     * @param   v2
+     *          the ordinal of Node two
+     * 
+     * @param   w
+     *          the weight of the Edge
+     */
+    private void insert(int v1, int v2, int w) {
+        int e = newVertex();
+        from[e] = Math.min(v1, v2);
+        to[e] = Math.max(v1, v2);
+        weight[e] = w;
+        update(e);
+        edgeVertices.put(pairKey(from[e], to[e]), e);
+        offer(e);
+    }
+
+    /**
+     * offer
+     * 
+     * Puts an Edge that is not in the forest into the forest, if it joins two
+     * trees or is lighter than the heaviest Edge on the path between its ends
+     * (which then leaves the forest)
+     * 
+     * @param   e
+     *          the vertex of the Edge
+     */
+    private void offer(int e) {
+        int u = nodeVertex[from[e]];
+        int v = nodeVertex[to[e]];
+        if (findRoot(u) != findRoot(v)) {
+            linkForestEdge(e);
+            return;
+        }
+
+        makeRoot(u);
+        access(v);
+        int heaviestOnPath = heaviest[v];
+        if (isHeavier(heaviestOnPath, e)) {
+            cutForestEdge(heaviestOnPath);
+            linkForestEdge(e);
+        }
+    }
+
+    /**
+     * reconnect
+     * 
+     * After a forest Edge has been cut, puts the lightest Edge that joins the
+     * two halves into the forest (if there is one). Both halves are walked
+     * one Node at a time, and the first one to run out is the smaller - only
+     * the Edges of its Nodes can join the halves.
+     * 
+     * @param   v1
+     *          the ordinal of a Node of one half
+     * 
+     * @param   v2
+     *          the ordinal of a Node of the other half
+     */
+    private void reconnect(int v1, int v2) {
+        // each walk marks its Nodes with its own number in side
+        int walk1 = ++walk;
+        int walk2 = ++walk;
+        ArrayList<Integer> half1 = new ArrayList<Integer>();
+        ArrayList<Integer> half2 = new ArrayList<Integer>();
+        half1.add(v1);
+        half2.add(v2);
+        side[v1] = walk1;
+        side[v2] = walk2;
+        int next1 = 0;
+        int next2 = 0;
+        while (next1 < half1.size() && next2 < half2.size()) {
+            visit(half1, next1++, walk1);
+            visit(half2, next2++, walk2);
+        }
+        ArrayList<Integer> smaller = next1 == half1.size() ? half1 : half2;
+        int smallerWalk = smaller == half1 ? walk1 : walk2;
+
+        int best = NONE;
+        for (int v : smaller) {
+            for (Edge edge : graph.nodes().get(v).edges()) {
+                int other = edge.to().ordinal();
+                if (side[other] != smallerWalk) {
+                    int e = edgeVertices.get(pairKey(Math.min(v, other), Math.max(v, other)));
+                    if (best == NONE || isHeavier(best, e)) {
+                        best = e;
+                    }
+                }
+            }
+        }
+        if (best != NONE) {
+            linkForestEdge(best);
+        }
+    }
+
+    /**
+     * visit
+     * 
+     * Adds the forest neighbours of a Node that a walk has not reached yet to
+     * the walk
+     * 
+     * @param   half
+     *          the Nodes the walk has reached so far
+     * 
+     * @param   i
+     *          the index (in half) of the Node to visit
+     * 
+     * @param   thisWalk
+     *          the number of the walk
+     */
+    private void visit(ArrayList<Integer> half, int i, int thisWalk) {
+        int v = half.get(i);
+        for (int e : forestEdgesOf.get(v)) {
+            int other = from[e] == v ? to[e] : from[e];
+            if (side[other] != thisWalk) {
+                side[other] = thisWalk;
+                half.add(other);
+            }
+        }
+    }
+
+    /**
+     * linkForestEdge
+     * 
+     * Puts an Edge between two trees into the forest
+     * 
+     * @param   e
+     *          the vertex of the Edge
+     */
+    private void linkForestEdge(int e) {
+        link(e, nodeVertex[from[e]]);
+        link(e, nodeVertex[to[e]]);
+        forestEdgesOf.get(from[e]).add(e);
+        forestEdgesOf.get(to[e]).add(e);
+        inForest[e] = true;
+        numForestEdges++;
+        totalWeight += weight[e];
+    }
+
+    /**
+     * cutForestEdge
+     * 
+     * Takes an Edge out of the forest, splitting its tree in two
+     * 
+     * @param   e
+     *          the vertex of the Edge
+     */
+    private void cutForestEdge(int e) {
+        cut(e, nodeVertex[from[e]]);
+        cut(e, nodeVertex[to[e]]);
+        forestEdgesOf.get(from[e]).remove(Integer.valueOf(e));
+        forestEdgesOf.get(to[e]).remove(Integer.valueOf(e));
+        inForest[e] = false;
+        numForestEdges--;
+        totalWeight -= weight[e];
+    }
+
+    /**
+     * isHeavier
+     * 
+     * @param   i
+     *          the vertex of an Edge, or NONE
+     * 
+     * @param   j
+     *          the vertex of another Edge, or NONE
+     * 
+     * @return  true if Edge i weighs more than Edge j (or the same, with a
+     *          larger vertex), or there is no Edge j but there is an Edge i
+     */
+    private boolean isHeavier(int i, int j) {
+        if (i == NONE || j == NONE) {
+            return j == NONE && i != NONE;
+        }
+        return weight[i] > weight[j] || (weight[i] == weight[j] && i > j);
+    }
+
+    /**
+     * edgeVertex
+     * 
+     * @param   n1
+     *          Node one
+     * 
+     * @param   n2
+     *          Node two
+     * 
+     * @return  the vertex of the Edge between the two Nodes, or null if there
+     *          is none
+     */
+    private Integer edgeVertex(Node n1, Node n2) {
+        if (n1.ordinal() < 0 || n2.ordinal() < 0) {
+            return null;
+        }
+        return edgeVertices.get(pairKey(Math.min(n1.ordinal(), n2.ordinal()),
+                Math.max(n1.ordinal(), n2.ordinal())));
+    }
+
+    /**
+     * pairKey
+     * 
+     * @param   v1
+     *          the smaller Node ordinal
+     * 
+     * @param   v2
+     *          the larger Node ordinal
+     * 
+     * @return  one key for the pair of Nodes
+     */
+    private static long pairKey(int v1, int v2) {
+        return ((long) v1 << 32) | v2;
+    }
+
+    /**
+     * addNodes
+     * 
+     * Gives a vertex to every Node of the Graph that does not have one yet
+     */
+    private void addNodes() {
+        int numNodes = graph.nodes().size();
+        if (nodeVertex.length < numNodes) {
+            int first = nodeVertex.length;
+            nodeVertex = Arrays.copyOf(nodeVertex, numNodes);
+            side = Arrays.copyOf(side, numNodes);
+            for (int v = first; v < numNodes; v++) {
+                nodeVertex[v] = newVertex();
+                forestEdgesOf.add(new ArrayList<Integer>());
+            }
+        }
+    }
+
+    /**
+     * newVertex
+     * 
+     * @return  a new vertex on its own, not an Edge until it is given a weight
+     */
+    private int newVertex() {
+        int x;
+        if (!freeVertices.isEmpty()) {
+            x = freeVertices.pop();
+        } else {
+            if (numVertices == left.length) {
+                int capacity = 2 * left.length;
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                reversed = Arrays.copyOf(reversed, capacity);
+                heaviest = Arrays.copyOf(heaviest, capacity);
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+                inForest = Arrays.copyOf(inForest, capacity);
+            }
+            x = numVertices++;
+        }
+        left[x] = NONE;
+        right[x] = NONE;
+        parent[x] = NONE;
+        reversed[x] = false;
+        heaviest[x] = NONE;
+        from[x] = NONE;
+        to[x] = NONE;
+        weight[x] = NONE;
+        inForest[x] = false;
+        return x;
+    }
+
+    /**
+     * freeVertex
+     * 
+     * @param   x
+     *          a vertex that is no longer used (it must be on its own)
+     */
+    private void freeVertex(int x) {
+        freeVertices.push(x);
+    }
+
+    // the link-cut tree itself
+
+    /**
+     * isSplayRoot
+     * 
+     * @param   x
+     *          a vertex
+     * 
+     * @return  true if the vertex is the root of its splay tree
+     */
+    private boolean isSplayRoot(int x) {
+        int p = parent[x];
+        return p == NONE || (left[p] != x && right[p] != x);
+    }
+
+    /**
+     * update
+     * 
+     * Works out the heaviest Edge in the splay subtree of a vertex from its
+     * children
+     * 
+     * @param   x
+     *          the vertex
+     */
+    private void update(int x) {
+        int h = from[x] == NONE ? NONE : x;
+        if (left[x] != NONE && isHeavier(heaviest[left[x]], h)) {
+            h = heaviest[left[x]];
+        }
+        if (right[x] != NONE && isHeavier(heaviest[right[x]], h)) {
+            h = heaviest[right[x]];
+        }
+        heaviest[x] = h;
+    }
+
+    /**
+     * pushDown
+     * 
+     * Passes a pending reversal of the splay subtree of a vertex on to its
+     * children
+     * 
+     * @param   x
+     *          the vertex
+     */
+    private void pushDown(int x) {
+        if (reversed[x]) {
+            int child = left[x];
+            left[x] = right[x];
+            right[x] = child;
+            if (left[x] != NONE) {
+                reversed[left[x]] = !reversed[left[x]];
+            }
+            if (right[x] != NONE) {
+                reversed[right[x]] = !reversed[right[x]];
+            }
+            reversed[x] = false;
+        }
+    }
+
+    /**
+     * rotate
+     * 
+     * Rotates a vertex above its splay tree parent
+     * 
+     * @param   x
+     *          the vertex
+     */
+    private void rotate(int x) {
+        int p = parent[x];
+        int g = parent[p];
+        if (!isSplayRoot(p)) {
+            if (left[g] == p) {
+                left[g] = x;
+            } else {
+                right[g] = x;
+            }
+        }
+        parent[x] = g;
+        if (left[p] == x) {
+            left[p] = right[x];
+            if (right[x] != NONE) {
+                parent[right[x]] = p;
+            }
+            right[x] = p;
+        } else {
+            right[p] = left[x];
+            if (left[x] != NONE) {
+                parent[left[x]] = p;
+            }
+            left[x] = p;
+        }
+        parent[p] = x;
+        update(p);
+        update(x);
+    }
+
+    /**
+     * splay
+     * 
+     * Makes a vertex the root of its splay tree
+     * 
+     * @param   x
+     *          the vertex
+     */
+    private void splay(int x) {
+        // pass down the pending reversals from the splay root first
+        int depth = 0;
+        for (int y = x; ; y = parent[y]) {
+            if (depth == splayPath.length) {
+                splayPath = Arrays.copyOf(splayPath, 2 * depth);
+            }
+            splayPath[depth++] = y;
+            if (isSplayRoot(y)) {
+                break;
+            }
+        }
+        while (depth > 0) {
+            pushDown(splayPath[--depth]);
+        }
+
+        while (!isSplayRoot(x)) {
+            int p = parent[x];
+            if (!isSplayRoot(p)) {
+                int g = parent[p];
+                rotate((left[g] == p) == (left[p] == x) ? p : x);
+            }
+            rotate(x);
+        }
+    }
+
+    /**
+     * access
+     * 
+     * Makes the path from the root of the tree of a vertex down to the vertex
+     * one splay tree, with the vertex at its root
+     * 
+     * @param   x
+     *          the vertex
+     */
+    private void access(int x) {
+        int last = NONE;
+        for (int y = x; y != NONE; y = parent[y]) {
+            splay(y);
+            right[y] = last;
+            update(y);
+            last = y;
+        }
+        splay(x);
+    }
+
+    /**
+     * makeRoot
+     * 
+     * Makes a vertex the root of its tree
+     * 
+     * @param   x
+     *          the vertex
+     */
+    private void makeRoot(int x) {
+        access(x);
+        reversed[x] = !reversed[x];
+    }
+
+    /**
+     * findRoot
+     * 
+     * @param   x
+     *          a vertex
+     * 
+     * @return  the root of the tree of the vertex
+     */
+    private int findRoot(int x) {
+        access(x);
+        int r = x;
+        pushDown(r);
+        while (left[r] != NONE) {
+            r = left[r];
+            pushDown(r);
+        }
+        splay(r);
+        return r;
+    }
+
+    /**
+     * link
+     * 
+     * Joins two trees with a tree edge between two vertexes
+     * 
+     * @param   x
+     *          a vertex of one tree
+     * 
+     * @param   y
+     *          a vertex of the other tree
+     */
+    private void link(int x, int y) {
+        makeRoot(x);
+        parent[x] = y;
+    }
+
+    /**
+     * cut
+     * 
+     * Splits a tree by removing the tree edge between two vertexes
+     * 
+     * @param   x
+     *          one vertex
+     * 
+     * @param   y
+     *          the other vertex
+     */
+    private void cut(int x, int y) {
+        makeRoot(x);
+        access(y);
+        // x is now the only vertex above y on its path
+        left[y] = NONE;
+        parent[x] = NONE;
+        update(y);
+    }
+}
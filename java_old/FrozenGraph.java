@@ -0,0 +1,320 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.nio.IntBuffer;
+
+/**
+ * FrozenGraph class
+ * 
+ * A FrozenGraph is a Graph that no longer changes, laid out in compressed
+ * sparse row (CSR) form: the arcs leaving the Node with ordinal v are arcs
+ * offsets[v] up to (but not including) offsets[v + 1], and arc a goes to the
+ * Node with ordinal targets[a] and weighs weights[a]. The arcs of each Node
+ * are in the same order as its Edges (see Node.edges), and every undirected
+ * Edge is two arcs, one each way, just like in the Graph.
+ * 
+ * Three int arrays are all a search needs to walk the Graph, one after the
+ * other in memory, instead of an ArrayList and an Edge object per Edge - so
+ * the searches of GraphOperations (and the indexes of Graph) all run over
+ * the FrozenGraph of the Graph they are given (see Graph.freeze). The Nodes
+ * are still kept (by ordinal), to build Paths with.
+ * 
+ * The arrays are held as IntBuffers, so they can live either on the Java
+ * heap or outside it - a FrozenGraph read from a graph file is a view of the
+ * memory-mapped file itself (see GraphFile), and is never copied onto the
+ * heap at all.
+ * 
+ * A FrozenGraph can also be made straight from the arrays, with Nodes that
+ * have no Edges of their own at all - the smallest way to hold a big Graph
+ * in memory.
+ * 
+ * @author Steve Rosen
+ */
+public class FrozenGraph {
+    private Node nodes[];
+    private IntBuffer offsets;
+    private IntBuffer targets;
+    private IntBuffer weights;
+    private int minWeight;
+    private int maxWeight;
+
+    /**
+     * FrozenGraph
+     * 
+     * This constructor lays out the Nodes and Edges of a Graph in CSR form
+     * 
+     * @param   g
+     *          the Graph
+     */
+    FrozenGraph(Graph g) {
+        nodes = g.nodes().toArray(new Node[0]);
+        int arcOffsets[] = new int[nodes.length + 1];
+        for (int v = 0; v < nodes.length; v++) {
+            arcOffsets[v + 1] = arcOffsets[v] + nodes[v].edges().size();
+        }
+        int arcTargets[] = new int[arcOffsets[nodes.length]];
+        int arcWeights[] = new int[arcOffsets[nodes.length]];
+        int a = 0;
+        for (Node node : nodes) {
+            for (Edge edge : node.edges()) {
+                arcTargets[a] = edge.to().ordinal();
+                arcWeights[a] = edge.weight();
+                a++;
+            }
+        }
+        offsets = IntBuffer.wrap(arcOffsets);
+        targets = IntBuffer.wrap(arcTargets);
+        weights = IntBuffer.wrap(arcWeights);
+        scanWeights();
+    }
+
+    /**
+     * FrozenGraph
+     * 
+     * This constructor makes a FrozenGraph straight from CSR arrays (which
+     * are kept, not copied)
+     * 
+     * @param   nodes
+     *          the Nodes, indexed by ordinal (nodes[v].ordinal() must be v)
+     * 
+     * @param   offsets
+     *          where the arcs of each Node start, with one more entry at the
+     *          end for where the arcs of the last Node end
+     * 
+     * @param   targets
+     *          the ordinal of the Node each arc goes to
+     * 
+     * @param   weights
+     *          the weight of each arc
+     */
+    public FrozenGraph(Node nodes[], int offsets[], int targets[], int weights[]) {
+        if (offsets.length != nodes.length + 1 || targets.length != weights.length
+                || offsets[0] != 0 || offsets[nodes.length] != targets.length) {
+            throw new IllegalArgumentException("the CSR arrays do not fit together");
+        }
+        for (int v = 0; v < nodes.length; v++) {
+            if (nodes[v].ordinal() != v || offsets[v] > offsets[v + 1]) {
+                throw new IllegalArgumentException("bad Node or offset at ordinal " + v);
+            }
+        }
+        for (int target : targets) {
+            if (target < 0 || target >= nodes.length) {
+                throw new IllegalArgumentException("an arc goes to no Node: " + target);
+            }
+        }
+        this.nodes = nodes;
+        this.offsets = IntBuffer.wrap(offsets);
+        this.targets = IntBuffer.wrap(targets);
+        this.weights = IntBuffer.wrap(weights);
+        scanWeights();
+    }
+
+    /**
+     * FrozenGraph
+     * 
+     * This constructor makes a FrozenGraph over CSR buffers whose contents
+     * (and smallest and largest arc weights) have already been checked -
+     * nothing is read from the buffers here, so a mapped file is not paged
+     * in until it is searched
+     * 
+     * @param   nodes
+     *          the Nodes, indexed by ordinal
+     * 
+     * @param   offsets
+     *          where the arcs of each Node start, plus where the last ones
+     *          end
+     * 
+     * @param   targets
+     *          the ordinal of the Node each arc goes to
+     * 
+     * @param   weights
+     *          the weight of each arc
+     * 
+     * @param   minWeight
+     *          the smallest arc weight (0 if there are no arcs)
+     * 
+     * @param   maxWeight
+     *          the largest arc weight (0 if there are no arcs)
+     */
+    FrozenGraph(Node nodes[], IntBuffer offsets, IntBuffer targets, IntBuffer weights,
+            int minWeight, int maxWeight) {
+        this.nodes = nodes;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.minWeight = minWeight;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * scanWeights
+     * 
+     * Works out the smallest and largest arc weights
+     */
+    private void scanWeights() {
+        minWeight = 0;
+        maxWeight = 0;
+        for (int a = 0; a < weights.limit(); a++) {
+            int weight = weights.get(a);
+            minWeight = (a == 0) ? weight : Math.min(minWeight, weight);
+            maxWeight = (a == 0) ? weight : Math.max(maxWeight, weight);
+        }
+    }
+
+    /**
+     * numNodes
+     * 
+     * @return  the number of Nodes
+     */
+    public int numNodes() {
+        return nodes.length;
+    }
+
+    /**
+     * numArcs
+     * 
+     * @return  the number of arcs (twice the number of undirected Edges)
+     */
+    public int numArcs() {
+        return targets.limit();
+    }
+
+    /**
+     * node
+     * 
+     * @param   v
+     *          a Node ordinal
+     * 
+     * @return  the Node with that ordinal
+     */
+    public Node node(int v) {
+        return nodes[v];
+    }
+
+    /**
+     * nodes
+     * 
+     * @return  the Nodes, indexed by ordinal (the array must not be changed)
+     */
+    public Node[] nodes() {
+        return nodes;
+    }
+
+    /**
+     * offsets
+     * 
+     * @return  where the arcs of each Node start, plus where the last ones
+     *          end (read with absolute gets - the buffer must not be
+     *          changed)
+     */
+    public IntBuffer offsets() {
+        return offsets;
+    }
+
+    /**
+     * targets
+     * 
+     * @return  the ordinal of the Node each arc goes to (read with absolute
+     *          gets - the buffer must not be changed)
+     */
+    public IntBuffer targets() {
+        return targets;
+    }
+
+    /**
+     * weights
+     * 
+     * @return  the weight of each arc (read with absolute gets - the buffer
+     *          must not be changed)
+     */
+    public IntBuffer weights() {
+        return weights;
+    }
+
+    /**
+     * minWeight
+     * 
+     * @return  the smallest arc weight, or 0 if there are no arcs
+     */
+    public int minWeight() {
+        return minWeight;
+    }
+
+    /**
+     * maxWeight
+     * 
+     * @return  the largest arc weight, or 0 if there are no arcs
+     */
+    public int maxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * arcWeight
+     * 
+     * Gets the weight of the lightest arc from one Node to another, the way
+     * Node.edgeTo finds the lightest Edge
+     * 
+     * @param   from
+     *          the ordinal of the Node the arc leaves
+     * 
+     * @param   to
+     *          the ordinal of the Node the arc goes to
+     * 
+     * @return  the weight, or GraphOperations.INFINITY if there is no arc
+     */
+    public int arcWeight(int from, int to) {
+        int weight = GraphOperations.INFINITY;
+        for (int a = offsets.get(from); a < offsets.get(from + 1); a++) {
+            if (targets.get(a) == to) {
+                weight = Math.min(weight, weights.get(a));
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * edge
+     * 
+     * Gets the Edge of the lightest arc from one Node to another - the
+     * Node's own Edge (see Node.edgeTo), or, for a Node that has no Edges
+     * of its own (see GraphFile.map), a new Edge with the weight of the arc
+     * 
+     * @param   from
+     *          the ordinal of the Node the arc leaves
+     * 
+     * @param   to
+     *          the ordinal of the Node the arc goes to
+     * 
+     * @return  the Edge, or null if there is no arc
+     */
+    public Edge edge(int from, int to) {
+        Edge edge = nodes[from].edgeTo(nodes[to]);
+        if (edge == null) {
+            int weight = arcWeight(from, to);
+            if (weight != GraphOperations.INFINITY) {
+                edge = new Edge(nodes[from], nodes[to], weight);
+            }
+        }
+        return edge;
+    }
+}
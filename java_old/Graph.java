@@ -20,9 +20,15 @@
  */
 package graphutil;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Stack;
 import java.util.Vector;
-import java.util.Iterator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * Graph class
@@ -41,6 +47,19 @@ import java.util.Iterator;
  */
 public class Graph {
     private Vector<Node> nodes;
+    private NodeIndex objectIndex;
+    private NodeIndex nameIndex;
+    private boolean allPairsIndexEnabled;
+    private AllPairsIndex allPairsIndex;
+    private int numLandmarks;
+    private LandmarkIndex landmarkIndex;
+    private boolean contractionHierarchyEnabled;
+    private ContractionHierarchy contractionHierarchy;
+    private FrozenGraph frozen;
+    private boolean edgeWeightsKnown;
+    private int minEdgeWeight;
+    private int maxEdgeWeight;
+    private boolean immutable;
 
     /**
      * Graph
@@ -49,6 +68,7 @@ public class Graph {
      */
     public Graph() {
         nodes = new Vector<Node>();
+        objectIndex = new NodeIndex(nodes, false);
     }
 
     /**
@@ -69,6 +89,7 @@ public class Graph {
      */
     public Graph(Vector<Path> paths) {
         nodes = new Vector<Node>();
+        objectIndex = new NodeIndex(nodes, false);
         Node n1, n2;
 
         for (Path path : paths) {
@@ -78,7 +99,7 @@ public class Graph {
             // in our Graph after an unsuccessful add
             n1 = new Node(path.get(0).object());
             if (!addNode(n1)) {
-                n1 = nodes.get(nodes.indexOf(n1));
+                n1 = getNode(n1.object());
             }
 
             // process all the pairs of Nodes in this Path. Implicit in the Path
@@ -91,7 +112,7 @@ public class Graph {
                 // current Node
                 n2 = new Node(path.get(i).object());
                 if (!addNode(n2)) {
-                    n2 = nodes.get(nodes.indexOf(n2));
+                    n2 = getNode(n2.object());
                 }
 
                 // Because a Path only has associated with it a vector of Nodes
@@ -105,10 +126,126 @@ public class Graph {
         }
     }
 
+    /**
+     * Graph
+     *
+     * This constructor copies a Graph - every Node of the copy wraps the same
+     * Object as (and so equals) the Node with the same ordinal in the
+     * original, and has copies of its Edges, in the same order. The copy
+     * has the same index settings as the original, and can be changed
+     * without changing the original (even if the original is a snapshot).
+     *
+     * @param   g
+     *          the Graph to copy
+     */
+    public Graph(Graph g) {
+        Vector<Node> original = g.nodes();
+        nodes = new Vector<Node>(original.size());
+        for (Node node : original) {
+            Node copy = new Node(node.object());
+            copy.setOrdinal(node.ordinal());
+            nodes.add(copy);
+        }
+        objectIndex = new NodeIndex(nodes, false);
+        for (Node node : original) {
+            ArrayList<Edge> edges = nodes.get(node.ordinal()).edges();
+            edges.ensureCapacity(node.edges().size());
+            for (Edge edge : node.edges()) {
+                // the Edges are already sorted, so they are added as they are
+                edges.add(new Edge(nodes.get(edge.from().ordinal()),
+                        nodes.get(edge.to().ordinal()), edge.weight()));
+            }
+        }
+
+        allPairsIndexEnabled = g.isAllPairsIndexEnabled();
+        numLandmarks = g.landmarkCount();
+        contractionHierarchyEnabled = g.isContractionHierarchyEnabled();
+    }
+
+    /**
+     * snapshot
+     *
+     * Gets an immutable copy of this Graph (see the copy constructor) - any
+     * attempt to change the snapshot, its Nodes, or the Vector and lists
+     * returned by nodes and Node.edges, throws an
+     * UnsupportedOperationException. The indexes that are enabled are built
+     * while the snapshot is made, so that any number of threads can search
+     * the snapshot at once without taking any lock, while this Graph goes on
+     * changing. A snapshot must be handed to other threads safely (e.g.
+     * through a volatile field, see VersionedGraph).
+     *
+     * Note that Nodes must be looked up in the snapshot (e.g. by ordinal or
+     * with getNode) before they are used in a search of it.
+     *
+     * @return  the snapshot (this Graph, if it is a snapshot already)
+     */
+    public Graph snapshot() {
+        if (immutable) {
+            return this;
+        }
+        Graph copy = new Graph(this);
+        copy.makeImmutable();
+        return copy;
+    }
+
+    /**
+     * isImmutable
+     *
+     * Whether or not this Graph is a snapshot (see snapshot)
+     *
+     * @return  true if this Graph can no longer change, false if it can
+     */
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    /**
+     * makeImmutable
+     *
+     * Builds the enabled indexes of this Graph, and stops this Graph (and its
+     * Nodes) from changing from then on
+     */
+    synchronized void makeImmutable() {
+        if (immutable) {
+            return;
+        }
+        scanEdgeWeights();
+        if (frozen == null) {
+            frozen = new FrozenGraph(this);
+        }
+        if (allPairsIndexEnabled && allPairsIndex == null) {
+            allPairsIndex = new AllPairsIndex(this);
+        }
+        if (numLandmarks > 0 && landmarkIndex == null) {
+            landmarkIndex = new LandmarkIndex(this, numLandmarks);
+        }
+        if (contractionHierarchyEnabled && contractionHierarchy == null) {
+            contractionHierarchy = new ContractionHierarchy(this);
+        }
+        for (Node node : nodes) {
+            node.makeImmutable();
+        }
+        nodes = new SnapshotNodeVector(nodes);
+        immutable = true;
+    }
+
+    /**
+     * checkMutable
+     *
+     * Throws an UnsupportedOperationException if this Graph is a snapshot
+     */
+    private void checkMutable() {
+        if (immutable) {
+            throw new UnsupportedOperationException("a Graph snapshot cannot be changed");
+        }
+    }
+
     /**
      * nodes
      *
-     * Gets the Vector of Nodes in the Graph
+     * Gets the Vector of Nodes in the Graph - if this Graph is a snapshot,
+     * any attempt to change the Vector throws an
+     * UnsupportedOperationException
      *
      * @return the Vector of Nodes
      */
@@ -119,7 +256,8 @@ public class Graph {
     /**
      * getNode
      *
-     * Gets a node from the Graph, specified by the Node's inner Object
+     * Gets a node from the Graph, specified by the Node's inner Object (the
+     * Nodes are kept in a hash index by Object identity, see NodeIndex)
      *
      * @param 	o
      *          the Object to search for inside each Node
@@ -128,36 +266,36 @@ public class Graph {
      *          if the Object does not exist inside a Node in this Graph
      */
     public Node getNode(Object o) {
-        Iterator<Node> iter = nodes.iterator();
-        while (iter.hasNext()) {
-            Node other = (Node) iter.next();
-            if (other.object() == o) {
-                return other;
-            }
-        }
-        return null;
+        int v = objectIndex.find(o);
+        return (v == GraphOperations.NO_NEXT) ? null : nodes.get(v);
     }
 
     /**
      * getNodeByName
      *
      * Gets a node from the Graph using the node name, specified by the Node's inner Object
+     * (the Nodes are kept in a hash index by name, see NodeIndex, built on the
+     * first call - so the names must not change once the Nodes are added)
      *
      * @param   name
      *          the node name to search for inside each Node
      *
      * @return  the Node, if the node name exists inside a Node in this Graph null,
-     *          if the node name does not exist inside a Node in this Graph
+     *          if the node name does not exist inside a Node in this Graph (the
+     *          first one added, if several Nodes have that name)
      */
     public Node getNodeByName(String name) {
-        Iterator<Node> iter = nodes.iterator();
-        while (iter.hasNext()) {
-            Node other = (Node) iter.next();
-            if (other.toString().equals(name)) {
-                return other;
+        if (name == null) {
+            return null;
+        }
+
+        synchronized (this) {
+            if (nameIndex == null) {
+                nameIndex = new NodeIndex(nodes, true);
             }
+            int v = nameIndex.find(name);
+            return (v == GraphOperations.NO_NEXT) ? null : nodes.get(v);
         }
-        return null;
     }
 
     /**
@@ -173,9 +311,17 @@ public class Graph {
      *        	Node already exists in the Graph
      */
     public boolean addNode(Node n) {
-        if (!nodes.contains(n)) {
+        checkMutable();
+        if (objectIndex.find(n.object()) == GraphOperations.NO_NEXT) {
             n.setOrdinal(nodes.size());
             nodes.add(n);
+            objectIndex.add(n.ordinal());
+            synchronized (this) {
+                if (nameIndex != null) {
+                    nameIndex.add(n.ordinal());
+                }
+            }
+            invalidateIndexes();
 
             return true;
         }
@@ -198,6 +344,8 @@ public class Graph {
      *        	The weight of the Edge between Node n1 and Node n2
      */
     public void addEdge(Node n1, Node n2, int weight) {
+        checkMutable();
+
         // As a fail-safe, if for whatever reason we're trying to add an Edge
         // between two Nodes and one or both of the Nodes aren't yet associated
         // with this Graph, add them to this Graph
@@ -208,6 +356,323 @@ public class Graph {
         // undirected Graph by adding an Edge from n1 to n2 AND from n2 to n1
         n1.addEdge(n2, weight);
         n2.addEdge(n1, weight);
+        invalidateIndexes();
+    }
+
+    /**
+     * removeEdge
+     *
+     * Removes the Edge between Node n1 and Node n2 from this Graph (in both
+     * directions)
+     *
+     * @param   n1
+     *          Node one
+     *
+     * @param   n2
+     *          Node two
+     *
+     * @return  true if the Edge was removed, false if there was no Edge
+     *          between the two Nodes
+     */
+    public boolean removeEdge(Node n1, Node n2) {
+        checkMutable();
+        boolean removed = n1.removeEdge(n2);
+        removed = n2.removeEdge(n1) || removed;
+        if (removed) {
+            invalidateIndexes();
+        }
+        return removed;
+    }
+
+    /**
+     * setEdgeWeight
+     *
+     * Changes the weight of the Edge between Node n1 and Node n2 (an Edge
+     * never changes once it is made, so this replaces it with a new Edge), or
+     * adds the Edge if there is none yet
+     *
+     * @param   n1
+     *          Node one
+     *
+     * @param   n2
+     *          Node two
+     *
+     * @param   weight
+     *          the new weight of the Edge between Node n1 and Node n2
+     */
+    public void setEdgeWeight(Node n1, Node n2, int weight) {
+        removeEdge(n1, n2);
+        addEdge(n1, n2, weight);
+    }
+
+    /**
+     * minEdgeWeight
+     *
+     * Gets the smallest weight of any Edge in this Graph
+     *
+     * @return  the smallest Edge weight, or 0 if this Graph has no Edges
+     */
+    public int minEdgeWeight() {
+        if (immutable) {
+            return minEdgeWeight;
+        }
+        synchronized (this) {
+            scanEdgeWeights();
+            return minEdgeWeight;
+        }
+    }
+
+    /**
+     * maxEdgeWeight
+     *
+     * Gets the largest weight of any Edge in this Graph
+     *
+     * @return  the largest Edge weight, or 0 if this Graph has no Edges
+     */
+    public int maxEdgeWeight() {
+        if (immutable) {
+            return maxEdgeWeight;
+        }
+        synchronized (this) {
+            scanEdgeWeights();
+            return maxEdgeWeight;
+        }
+    }
+
+    /**
+     * scanEdgeWeights
+     *
+     * Works out the smallest and largest Edge weights of this Graph, if they
+     * are not already known since this Graph was last changed through
+     * addNode, addEdge or removeEdge
+     */
+    private void scanEdgeWeights() {
+        if (!edgeWeightsKnown) {
+            int min = 0;
+            int max = 0;
+            boolean first = true;
+            for (Node node : nodes) {
+                for (Edge edge : node.edges()) {
+                    min = first ? edge.weight() : Math.min(min, edge.weight());
+                    max = first ? edge.weight() : Math.max(max, edge.weight());
+                    first = false;
+                }
+            }
+            minEdgeWeight = min;
+            maxEdgeWeight = max;
+            edgeWeightsKnown = true;
+        }
+    }
+
+    /**
+     * isAllPairsIndexEnabled
+     *
+     * Whether or not this Graph keeps an all-pairs shortest path index
+     *
+     * @return  true if the all-pairs index is enabled, false if not
+     */
+    public boolean isAllPairsIndexEnabled() {
+        return allPairsIndexEnabled;
+    }
+
+    /**
+     * setAllPairsIndexEnabled
+     *
+     * Turns the all-pairs shortest path index of this Graph on or off. The
+     * index costs two n-by-n int matrices (n being the number of Nodes), so
+     * it is off by default - when it is on, GraphOperations.getInputNodePaths
+     * reads the shortest Paths between input Nodes out of the index instead
+     * of searching this Graph on every call.
+     *
+     * @param   enabled
+     *          true to enable the index, false to disable (and free) it
+     */
+    public synchronized void setAllPairsIndexEnabled(boolean enabled) {
+        checkMutable();
+        allPairsIndexEnabled = enabled;
+        if (!enabled) {
+            allPairsIndex = null;
+        }
+    }
+
+    /**
+     * allPairsIndex
+     *
+     * Gets the all-pairs shortest path index of this Graph, building it first
+     * if this is the first query since the index was enabled or since this
+     * Graph was last changed through addNode, addEdge or removeEdge. Note that
+     * Edges added directly through Node.addEdge are NOT seen by an index that
+     * has already been built.
+     *
+     * @return  the AllPairsIndex, or null if the index is not enabled
+     */
+    public AllPairsIndex allPairsIndex() {
+        if (immutable) {
+            return allPairsIndex;
+        }
+
+        synchronized (this) {
+            if (!allPairsIndexEnabled) {
+                return null;
+            }
+
+            if (allPairsIndex == null) {
+                allPairsIndex = new AllPairsIndex(this);
+            }
+            return allPairsIndex;
+        }
+    }
+
+    /**
+     * landmarkCount
+     *
+     * Gets the number of landmarks this Graph keeps for A* pair queries
+     *
+     * @return  the number of landmarks (0 if the landmark index is off)
+     */
+    public int landmarkCount() {
+        return numLandmarks;
+    }
+
+    /**
+     * setLandmarkCount
+     *
+     * Sets the number of landmarks this Graph keeps for A* pair queries (see
+     * LandmarkIndex). Each landmark costs one int per Node - when there is at
+     * least one, GraphOperations.shortestPaths (and getInputNodePaths) search
+     * each pair of Nodes with an A* search guided by the landmarks.
+     *
+     * @param   numLandmarks
+     *          the number of landmarks, or 0 to turn the landmark index off
+     */
+    public synchronized void setLandmarkCount(int numLandmarks) {
+        checkMutable();
+        if (numLandmarks != this.numLandmarks) {
+            this.numLandmarks = numLandmarks;
+            landmarkIndex = null;
+        }
+    }
+
+    /**
+     * landmarkIndex
+     *
+     * Gets the landmark index of this Graph, building it first if this is the
+     * first query since the landmark count was set or since this Graph was
+     * last changed through addNode, addEdge or removeEdge
+     *
+     * @return  the LandmarkIndex, or null if the landmark count is 0
+     */
+    public LandmarkIndex landmarkIndex() {
+        if (immutable) {
+            return landmarkIndex;
+        }
+
+        synchronized (this) {
+            if (numLandmarks <= 0) {
+                return null;
+            }
+
+            if (landmarkIndex == null) {
+                landmarkIndex = new LandmarkIndex(this, numLandmarks);
+            }
+            return landmarkIndex;
+        }
+    }
+
+    /**
+     * isContractionHierarchyEnabled
+     *
+     * Whether or not this Graph keeps a contraction hierarchy
+     *
+     * @return  true if the contraction hierarchy is enabled, false if not
+     */
+    public boolean isContractionHierarchyEnabled() {
+        return contractionHierarchyEnabled;
+    }
+
+    /**
+     * setContractionHierarchyEnabled
+     *
+     * Turns the contraction hierarchy of this Graph on or off (see
+     * ContractionHierarchy). It is meant for large Graphs that are built once
+     * and then queried many times - building it takes a while, but when it is
+     * on, GraphOperations.shortestPaths (and getInputNodePaths) answer each
+     * pair query from the hierarchy instead of searching this Graph.
+     *
+     * @param   enabled
+     *          true to enable the hierarchy, false to disable (and free) it
+     */
+    public synchronized void setContractionHierarchyEnabled(boolean enabled) {
+        checkMutable();
+        contractionHierarchyEnabled = enabled;
+        if (!enabled) {
+            contractionHierarchy = null;
+        }
+    }
+
+    /**
+     * contractionHierarchy
+     *
+     * Gets the contraction hierarchy of this Graph, building it first if this
+     * is the first query since the hierarchy was enabled or since this Graph
+     * was last changed through addNode, addEdge or removeEdge
+     *
+     * @return  the ContractionHierarchy, or null if it is not enabled
+     */
+    public ContractionHierarchy contractionHierarchy() {
+        if (immutable) {
+            return contractionHierarchy;
+        }
+
+        synchronized (this) {
+            if (!contractionHierarchyEnabled) {
+                return null;
+            }
+
+            if (contractionHierarchy == null) {
+                contractionHierarchy = new ContractionHierarchy(this);
+            }
+            return contractionHierarchy;
+        }
+    }
+
+    /**
+     * freeze
+     *
+     * Gets this Graph laid out in compressed sparse row form, laying it out
+     * first if this is the first call since this Graph was last changed
+     * through addNode, addEdge or removeEdge. Like the indexes, the
+     * FrozenGraph does NOT see Edges added directly through Node.addEdge
+     * once it has been built.
+     *
+     * @return  the FrozenGraph of this Graph
+     */
+    public FrozenGraph freeze() {
+        if (immutable) {
+            return frozen;
+        }
+
+        synchronized (this) {
+            if (frozen == null) {
+                frozen = new FrozenGraph(this);
+            }
+            return frozen;
+        }
+    }
+
+    /**
+     * invalidateIndexes
+     *
+     * Throws away any index (or cached figure) that was built from the
+     * current Nodes and Edges of this Graph, so it will be rebuilt on its
+     * next query
+     */
+    private synchronized void invalidateIndexes() {
+        allPairsIndex = null;
+        landmarkIndex = null;
+        contractionHierarchy = null;
+        frozen = null;
+        edgeWeightsKnown = false;
     }
 
     /**
@@ -374,4 +839,112 @@ public class Graph {
 
         return sb.toString();
     }
+
+    /**
+     * SnapshotNodeVector class
+     *
+     * The Vector of Nodes of a snapshot - still a Vector, so that nodes keeps
+     * its signature, but every method that would change it throws an
+     * UnsupportedOperationException
+     */
+    private static class SnapshotNodeVector extends Vector<Node> {
+        private static final long serialVersionUID = 1L;
+
+        SnapshotNodeVector(Collection<Node> nodes) {
+            super(nodes);
+        }
+
+        private static UnsupportedOperationException unsupported() {
+            return new UnsupportedOperationException(
+                    "the Nodes of a Graph snapshot cannot be changed");
+        }
+
+        public boolean add(Node n) {
+            throw unsupported();
+        }
+
+        public void add(int index, Node n) {
+            throw unsupported();
+        }
+
+        public void addElement(Node n) {
+            throw unsupported();
+        }
+
+        public void insertElementAt(Node n, int index) {
+            throw unsupported();
+        }
+
+        public boolean addAll(Collection<? extends Node> c) {
+            throw unsupported();
+        }
+
+        public boolean addAll(int index, Collection<? extends Node> c) {
+            throw unsupported();
+        }
+
+        public Node set(int index, Node n) {
+            throw unsupported();
+        }
+
+        public void setElementAt(Node n, int index) {
+            throw unsupported();
+        }
+
+        public void setSize(int newSize) {
+            throw unsupported();
+        }
+
+        public Node remove(int index) {
+            throw unsupported();
+        }
+
+        public boolean remove(Object o) {
+            throw unsupported();
+        }
+
+        public boolean removeElement(Object o) {
+            throw unsupported();
+        }
+
+        public void removeElementAt(int index) {
+            throw unsupported();
+        }
+
+        public void removeAllElements() {
+            throw unsupported();
+        }
+
+        public boolean removeAll(Collection<?> c) {
+            throw unsupported();
+        }
+
+        public boolean retainAll(Collection<?> c) {
+            throw unsupported();
+        }
+
+        public boolean removeIf(Predicate<? super Node> filter) {
+            throw unsupported();
+        }
+
+        public void replaceAll(UnaryOperator<Node> operator) {
+            throw unsupported();
+        }
+
+        public void sort(Comparator<? super Node> c) {
+            throw unsupported();
+        }
+
+        public void clear() {
+            throw unsupported();
+        }
+
+        protected void removeRange(int from, int to) {
+            throw unsupported();
+        }
+
+        public List<Node> subList(int from, int to) {
+            return Collections.unmodifiableList(super.subList(from, to));
+        }
+    }
 }
@@ -0,0 +1,354 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Vector;
+
+/**
+ * GraphBuilder class
+ * 
+ * A GraphBuilder collects the Nodes and Edges of a Graph in bulk, and builds
+ * the Graph all at once. Building a Graph through Graph.addEdge keeps the
+ * Edges of every Node sorted (and free of duplicates) as each one is added,
+ * which takes a linear scan and a sort per Edge - a GraphBuilder just keeps
+ * the Edges in primitive arrays, drops duplicates through a hash table of
+ * arc numbers, and sorts all the Edges once, in linear time, when the Graph
+ * is built.
+ * 
+ * The Graph that is built is exactly the Graph that adding the same Nodes,
+ * then the same Edges (with Graph.addEdge), in the same order, would give:
+ * the Nodes have the same ordinals, and every Node has the same Edges, in
+ * the same order - sorted by the ordinal of their "to" Node, and in the
+ * order they were added when they go to the same Node. Like Node.addEdge,
+ * an Edge only counts as a duplicate if it has the same weight as well.
+ * 
+ * The Nodes given to a GraphBuilder must not have any Edges yet, and are
+ * not changed until build is called.
+ * 
+ * @author Steve Rosen
+ */
+public class GraphBuilder {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Vector<Node> nodes;
+    private NodeIndex objectIndex;
+    private int numArcs;
+    private int arcFrom[];
+    private int arcTo[];
+    private int arcWeight[];
+    private int arcSlots[];
+
+    /**
+     * GraphBuilder
+     * 
+     * This constructor creates a GraphBuilder with no Nodes and no Edges
+     */
+    public GraphBuilder() {
+        nodes = new Vector<Node>();
+        objectIndex = new NodeIndex(nodes, false);
+        arcFrom = new int[INITIAL_CAPACITY];
+        arcTo = new int[INITIAL_CAPACITY];
+        arcWeight = new int[INITIAL_CAPACITY];
+        arcSlots = new int[2 * INITIAL_CAPACITY];
+    }
+
+    /**
+     * numNodes
+     * 
+     * @return  the number of Nodes added so far
+     */
+    public int numNodes() {
+        return nodes.size();
+    }
+
+    /**
+     * addNode
+     * 
+     * Adds a Node (unless a Node wrapping the same Object has already been
+     * added, see Node.equals)
+     * 
+     * @param   n
+     *          the Node to add
+     * 
+     * @return  the ordinal the Node will have in the Graph that is built
+     */
+    public int addNode(Node n) {
+        int v = objectIndex.find(n.object());
+        if (v != GraphOperations.NO_NEXT) {
+            return v;
+        }
+        if (!n.edges().isEmpty()) {
+            throw new IllegalArgumentException("the Node already has Edges: " + n);
+        }
+        nodes.add(n);
+        objectIndex.add(nodes.size() - 1);
+        return nodes.size() - 1;
+    }
+
+    /**
+     * addEdge
+     * 
+     * Adds an Edge between two Nodes (adding the Nodes first if they have not
+     * been added yet, just like Graph.addEdge)
+     * 
+     * @param   n1
+     *          Node one
+     * 
+     * @param   n2
+     *          Node two
+     * 
+     * @param   weight
+     *          the weight of the Edge between Node n1 and Node n2
+     */
+    public void addEdge(Node n1, Node n2, int weight) {
+        int from = addNode(n1);
+        int to = addNode(n2);
+        addEdge(from, to, weight);
+    }
+
+    /**
+     * addEdge
+     * 
+     * Adds an Edge between two Nodes that have already been added, by their
+     * ordinals
+     * 
+     * @param   from
+     *          the ordinal of Node one
+     * 
+     * @param   to
+     *          the ordinal of Node two
+     * 
+     * @param   weight
+     *          the weight of the Edge between the two Nodes
+     */
+    public void addEdge(int from, int to, int weight) {
+        if (from < 0 || from >= nodes.size() || to < 0 || to >= nodes.size()) {
+            throw new IllegalArgumentException("no Node with ordinal "
+                    + ((from < 0 || from >= nodes.size()) ? from : to));
+        }
+
+        // an Edge is kept in both directions, and each direction is only
+        // dropped if it is already there (a loop is there after the first)
+        addArc(from, to, weight);
+        addArc(to, from, weight);
+    }
+
+    /**
+     * addEdges
+     * 
+     * Adds a whole array of Edges between Nodes that have already been added,
+     * by their ordinals
+     * 
+     * @param   from
+     *          the ordinal of Node one of each Edge
+     * 
+     * @param   to
+     *          the ordinal of Node two of each Edge
+     * 
+     * @param   weights
+     *          the weight of each Edge
+     */
+    public void addEdges(int from[], int to[], int weights[]) {
+        if (from.length != to.length || from.length != weights.length) {
+            throw new IllegalArgumentException("the Edge arrays are not all the same length");
+        }
+        ensureArcCapacity(numArcs + 2 * from.length);
+        for (int i = 0; i < from.length; i++) {
+            addEdge(from[i], to[i], weights[i]);
+        }
+    }
+
+    /**
+     * addEdges
+     * 
+     * Adds every Edge an Iterator gives (adding their Nodes first if they
+     * have not been added yet)
+     * 
+     * @param   edges
+     *          the Iterator over the Edges
+     */
+    public void addEdges(Iterator<Edge> edges) {
+        while (edges.hasNext()) {
+            Edge edge = edges.next();
+            addEdge(edge.from(), edge.to(), edge.weight());
+        }
+    }
+
+    /**
+     * build
+     * 
+     * Builds the Graph. The arcs are sorted into place with two stable
+     * counting sorts - by "to" ordinal, then by "from" ordinal - so that
+     * each Node ends up with its Edges sorted by "to" ordinal, in the order
+     * they were added when they go to the same Node.
+     * 
+     * The GraphBuilder is empty again afterwards.
+     * 
+     * @return  the Graph
+     */
+    public Graph build() {
+        Graph g = new Graph();
+        for (Node node : nodes) {
+            g.addNode(node);
+        }
+
+        int numNodes = nodes.size();
+        int byTo[] = countingSort(identity(numArcs), arcTo, numNodes);
+        int order[] = countingSort(byTo, arcFrom, numNodes);
+
+        int a = 0;
+        for (int v = 0; v < numNodes; v++) {
+            Node node = nodes.get(v);
+            int end = a;
+            while (end < numArcs && arcFrom[order[end]] == v) {
+                end++;
+            }
+            node.edges().ensureCapacity(end - a);
+            while (a < end) {
+                int arc = order[a++];
+                node.edges().add(new Edge(node, nodes.get(arcTo[arc]), arcWeight[arc]));
+            }
+        }
+
+        nodes = new Vector<Node>();
+        objectIndex = new NodeIndex(nodes, false);
+        numArcs = 0;
+        Arrays.fill(arcSlots, 0);
+        return g;
+    }
+
+    /**
+     * addArc
+     * 
+     * Adds an arc (one direction of an Edge), unless the same arc, with the
+     * same weight, is already there
+     */
+    private void addArc(int from, int to, int weight) {
+        ensureArcCapacity(numArcs + 1);
+        int mask = arcSlots.length - 1;
+        int i = hash(from, to, weight) & mask;
+        while (arcSlots[i] != 0) {
+            int arc = arcSlots[i] - 1;
+            if (arcFrom[arc] == from && arcTo[arc] == to && arcWeight[arc] == weight) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+
+        arcFrom[numArcs] = from;
+        arcTo[numArcs] = to;
+        arcWeight[numArcs] = weight;
+        arcSlots[i] = ++numArcs;
+    }
+
+    /**
+     * ensureArcCapacity
+     * 
+     * Makes room for a number of arcs, keeping the hash table of arcs no
+     * more than half full
+     */
+    private void ensureArcCapacity(int capacity) {
+        if (capacity > arcFrom.length) {
+            int length = arcFrom.length;
+            while (length < capacity) {
+                length *= 2;
+            }
+            arcFrom = Arrays.copyOf(arcFrom, length);
+            arcTo = Arrays.copyOf(arcTo, length);
+            arcWeight = Arrays.copyOf(arcWeight, length);
+        }
+        if (2 * capacity > arcSlots.length) {
+            int length = arcSlots.length;
+            while (length < 2 * capacity) {
+                length *= 2;
+            }
+            arcSlots = new int[length];
+            int mask = length - 1;
+            for (int arc = 0; arc < numArcs; arc++) {
+                int i = hash(arcFrom[arc], arcTo[arc], arcWeight[arc]) & mask;
+                while (arcSlots[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                arcSlots[i] = arc + 1;
+            }
+        }
+    }
+
+    /**
+     * hash
+     * 
+     * Hashes an arc, with the bits mixed so that the low bits used to pick a
+     * slot depend on all of them
+     */
+    private static int hash(int from, int to, int weight) {
+        int h = (from * 31 + to) * 31 + weight;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    /**
+     * identity
+     * 
+     * @return  the array 0, 1, ..., length - 1
+     */
+    private static int[] identity(int length) {
+        int order[] = new int[length];
+        for (int i = 0; i < length; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    /**
+     * countingSort
+     * 
+     * Stably sorts a list of arcs by a key
+     * 
+     * @param   arcs
+     *          the arc numbers, in their current order
+     * 
+     * @param   key
+     *          the key of each arc (a Node ordinal)
+     * 
+     * @param   numKeys
+     *          the number of Node ordinals
+     * 
+     * @return  the arc numbers, sorted by key
+     */
+    private static int[] countingSort(int arcs[], int key[], int numKeys) {
+        int start[] = new int[numKeys + 1];
+        for (int arc : arcs) {
+            start[key[arc] + 1]++;
+        }
+        for (int k = 0; k < numKeys; k++) {
+            start[k + 1] += start[k];
+        }
+        int sorted[] = new int[arcs.length];
+        for (int arc : arcs) {
+            sorted[start[key[arc]]++] = arc;
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * GraphFile class
+ * 
+ * This is an abstract class with static methods to write a FrozenGraph to a
+ * graph file, and to read it back by memory-mapping the file - the CSR
+ * arrays of the FrozenGraph that comes back are views of the mapped file, so
+ * opening even a very big graph file takes no time at all, the arrays never
+ * take up room on the Java heap, and the operating system only pages in the
+ * parts of the file a search actually touches.
+ * 
+ * A graph file is little-endian throughout, and holds, in this order:
+ * 
+ * 1. A header of HEADER_SIZE bytes - the MAGIC number, the format VERSION,
+ * the number of Nodes (n) and of arcs (m), the smallest and largest arc
+ * weights, and the length in bytes of the Node names.
+ * 
+ * 2. The CSR arrays of the FrozenGraph - n + 1 offsets, m targets and m
+ * weights (see FrozenGraph).
+ * 
+ * 3. The Node name table - n + 1 offsets into the names, then the names
+ * themselves, in UTF-8 and indexed by Node ordinal (the name of a Node is
+ * its toString).
+ * 
+ * Each of the arrays is mapped on its own, so it must fit in a single
+ * mapping (no more than Integer.MAX_VALUE bytes), but the file as a whole
+ * can be bigger than that. The Nodes of the FrozenGraph that is read back
+ * are new Nodes holding just their names (as Strings).
+ * 
+ * @author Steve Rosen
+ */
+public abstract class GraphFile {
+    static final int MAGIC = 0x46525347;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * write
+     * 
+     * Writes a Graph to a graph file (see write of a FrozenGraph)
+     * 
+     * @param   g
+     *          the Graph
+     * 
+     * @param   file
+     *          the graph file to write (replaced if it already exists)
+     * 
+     * @throws  IOException
+     *          if the file cannot be written
+     */
+    public static void write(Graph g, File file) throws IOException {
+        write(g.freeze(), file);
+    }
+
+    /**
+     * write
+     * 
+     * Writes a FrozenGraph to a graph file
+     * 
+     * @param   g
+     *          the FrozenGraph
+     * 
+     * @param   file
+     *          the graph file to write (replaced if it already exists)
+     * 
+     * @throws  IOException
+     *          if the file cannot be written
+     */
+    public static void write(FrozenGraph g, File file) throws IOException {
+        int numNodes = g.numNodes();
+        byte names[][] = new byte[numNodes][];
+        long nameBytes = 0;
+        for (int v = 0; v < numNodes; v++) {
+            names[v] = g.node(v).toString().getBytes(UTF8);
+            nameBytes += names[v].length;
+        }
+        if (nameBytes > Integer.MAX_VALUE) {
+            throw new IOException("the Node names are too long for a graph file");
+        }
+
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(numNodes);
+            buffer.putInt(g.numArcs());
+            buffer.putInt(g.minWeight());
+            buffer.putInt(g.maxWeight());
+            buffer.putLong(nameBytes);
+
+            putInts(channel, buffer, g.offsets());
+            putInts(channel, buffer, g.targets());
+            putInts(channel, buffer, g.weights());
+
+            int nameOffset = 0;
+            putInt(channel, buffer, nameOffset);
+            for (int v = 0; v < numNodes; v++) {
+                nameOffset += names[v].length;
+                putInt(channel, buffer, nameOffset);
+            }
+            for (int v = 0; v < numNodes; v++) {
+                for (byte b : names[v]) {
+                    if (!buffer.hasRemaining()) {
+                        flush(channel, buffer);
+                    }
+                    buffer.put(b);
+                }
+            }
+            flush(channel, buffer);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * map
+     * 
+     * Reads a FrozenGraph back from a graph file by memory-mapping it. The
+     * mapping stays valid (and the file stays in use) until the FrozenGraph
+     * is garbage collected.
+     * 
+     * Only the header and the Node names are read here - the CSR arrays are
+     * trusted to be what write wrote, so a graph file that has been changed
+     * since can give wrong answers (or IndexOutOfBoundsExceptions) later on.
+     * 
+     * @param   file
+     *          the graph file
+     * 
+     * @return  the FrozenGraph
+     * 
+     * @throws  IOException
+     *          if the file cannot be read, or is not a graph file
+     */
+    public static FrozenGraph map(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("not a graph file: " + file);
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("not a graph file: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("unknown graph file version " + version + ": " + file);
+            }
+            int numNodes = header.getInt();
+            int numArcs = header.getInt();
+            int minWeight = header.getInt();
+            int maxWeight = header.getInt();
+            long nameBytes = header.getLong();
+            if (numNodes < 0 || numArcs < 0 || nameBytes < 0
+                    || channel.size() != HEADER_SIZE + 4L * (numNodes + 1) * 2
+                    + 8L * numArcs + nameBytes) {
+                throw new IOException("truncated or damaged graph file: " + file);
+            }
+
+            long position = HEADER_SIZE;
+            IntBuffer offsets = mapInts(channel, position, numNodes + 1);
+            position += 4L * (numNodes + 1);
+            IntBuffer targets = mapInts(channel, position, numArcs);
+            position += 4L * numArcs;
+            IntBuffer weights = mapInts(channel, position, numArcs);
+            position += 4L * numArcs;
+            IntBuffer nameOffsets = mapInts(channel, position, numNodes + 1);
+            position += 4L * (numNodes + 1);
+            ByteBuffer names = channel.map(FileChannel.MapMode.READ_ONLY, position, nameBytes);
+            if (offsets.get(0) != 0 || offsets.get(numNodes) != numArcs
+                    || nameOffsets.get(0) != 0 || nameOffsets.get(numNodes) != nameBytes) {
+                throw new IOException("damaged graph file: " + file);
+            }
+
+            Node nodes[] = new Node[numNodes];
+            byte name[] = new byte[0];
+            for (int v = 0; v < numNodes; v++) {
+                int start = nameOffsets.get(v);
+                int length = nameOffsets.get(v + 1) - start;
+                if (name.length < length) {
+                    name = new byte[Math.max(length, 2 * name.length)];
+                }
+                names.position(start);
+                names.get(name, 0, length);
+                nodes[v] = new Node(new String(name, 0, length, UTF8));
+                nodes[v].setOrdinal(v);
+            }
+
+            return new FrozenGraph(nodes, offsets, targets, weights, minWeight, maxWeight);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * mapInts
+     * 
+     * Maps an array of ints of a graph file
+     * 
+     * @param   channel
+     *          the FileChannel of the graph file
+     * 
+     * @param   position
+     *          where the array starts in the file
+     * 
+     * @param   length
+     *          the number of ints in the array
+     * 
+     * @return  the IntBuffer view of the mapped array
+     * 
+     * @throws  IOException
+     *          if the array cannot be mapped
+     */
+    private static IntBuffer mapInts(FileChannel channel, long position, int length)
+            throws IOException {
+        if (4L * length > Integer.MAX_VALUE) {
+            throw new IOException("an array of " + length + " ints is too big to map");
+        }
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * length);
+        return bytes.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    /**
+     * putInts
+     * 
+     * Writes a whole IntBuffer through the write buffer (by absolute gets, so
+     * the IntBuffer itself is left as it is)
+     * 
+     * @param   channel
+     *          the FileChannel of the graph file
+     * 
+     * @param   buffer
+     *          the write buffer
+     * 
+     * @param   ints
+     *          the IntBuffer to write
+     * 
+     * @throws  IOException
+     *          if the file cannot be written
+     */
+    private static void putInts(FileChannel channel, ByteBuffer buffer, IntBuffer ints)
+            throws IOException {
+        for (int i = 0; i < ints.limit(); i++) {
+            putInt(channel, buffer, ints.get(i));
+        }
+    }
+
+    /**
+     * putInt
+     * 
+     * Writes an int through the write buffer
+     * 
+     * @param   channel
+     *          the FileChannel of the graph file
+     * 
+     * @param   buffer
+     *          the write buffer
+     * 
+     * @param   value
+     *          the int to write
+     * 
+     * @throws  IOException
+     *          if the file cannot be written
+     */
+    private static void putInt(FileChannel channel, ByteBuffer buffer, int value)
+            throws IOException {
+        if (buffer.remaining() < 4) {
+            flush(channel, buffer);
+        }
+        buffer.putInt(value);
+    }
+
+    /**
+     * flush
+     * 
+     * Writes out whatever is in the write buffer, and empties it
+     * 
+     * @param   channel
+     *          the FileChannel of the graph file
+     * 
+     * @param   buffer
+     *          the write buffer
+     * 
+     * @throws  IOException
+     *          if the file cannot be written
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -20,12 +20,21 @@
  */
 package graphutil;
 
+import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Stack;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * GraphOperations class
@@ -34,11 +43,83 @@ import java.util.Vector;
  * object. The principal method is minPaths, which takes a Graph and an
  * ArrayList of input Nodes and returns a vector of Paths representing the
  * minimum set of Paths that connect each input Node to each other input Node.
+ * There are also plain minimum spanning tree methods (see minSpanningForest
+ * and parallelBoruvkaForest).
+ *
+ * The searches themselves all run over the compressed sparse row form of the
+ * Graph (see Graph.freeze and FrozenGraph), and minPaths, minPathsBatch, the
+ * Steiner tree, shortest path and spanning tree methods can also be given a
+ * FrozenGraph directly - including a mapped GraphFile, whose Nodes have no
+ * Edges of their own.
  *
  * @author Steve Rosen
  */
 public abstract class GraphOperations {
   static final int INFINITY = Integer.MAX_VALUE;
+  static final int NO_NEXT = -1;
+  static final int BUCKET_QUEUE_MAX_WEIGHT = 1024;
+  static final int MAX_EXACT_INPUT_NODES = 16;
+  static final int SEARCH_SPLIT_DEPTH = 4;
+
+  /**
+   * Engine enum
+   *
+   * The ways minPaths can connect the input Nodes - see minPaths(g,
+   * inputNodes, engine, executor).
+   */
+  public enum Engine {
+    /**
+     * the original search over every combination of shortest Paths between
+     * pairs of input Nodes (see minPaths(g, inputNodes))
+     */
+    ENUMERATION,
+
+    /**
+     * the same search, skipping every combination that cannot beat the best
+     * one found so far - the results are exactly the same as ENUMERATION
+     */
+    BRANCH_AND_BOUND,
+
+    /**
+     * an exact Steiner tree, by dynamic programming over the subsets of the
+     * input Nodes (see exactSteinerTree)
+     */
+    EXACT,
+
+    /**
+     * a Steiner tree that weighs at most twice as much as the exact one, in
+     * polynomial time (see approximateSteinerTree)
+     */
+    APPROXIMATE,
+
+    /**
+     * a Steiner tree that weighs at most twice as much as the exact one,
+     * from a single search of the Graph (see voronoiSteinerTree)
+     */
+    VORONOI
+  }
+
+  /**
+   * SpanningEngine enum
+   *
+   * The ways minSpanningForest can find a minimum spanning forest.
+   */
+  public enum SpanningEngine {
+    /**
+     * Kruskal's algorithm (see kruskalForest)
+     */
+    KRUSKAL,
+
+    /**
+     * Prim's algorithm (see primForest)
+     */
+    PRIM,
+
+    /**
+     * Boruvka's algorithm (see boruvkaForest)
+     */
+    BORUVKA
+  }
 
   /**
    * minPaths
@@ -94,147 +175,467 @@ public abstract class GraphOperations {
    *         input Nodes that connects all of the input Nodes
    */
   public static Vector<Path> minPaths(Graph g, ArrayList<Node> inputNodes) {
+    return minPaths(g, inputNodes, null);
+  }
+
+  /**
+   * minPaths
+   *
+   * Same as minPaths(g, inputNodes), except that the shortest path searches
+   * for the input Nodes (see getInputNodePaths), and then the search through
+   * the combinations of their Paths (see CombinationSearch), run
+   * concurrently on a specified Executor - the results are exactly the same.
+   * Every thread of the Executor takes on the next part of the combination
+   * search as soon as it is free, so a ForkJoinPool (which lets idle threads
+   * steal queued work) keeps all of its threads busy.
+   *
+   * @param g
+   *            the specified Graph that will be searched
+   *
+   * @param inputNodes
+   *            the specified list of input Nodes to search for
+   *
+   * @param executor
+   *            the Executor to run the searches on, or null to run them on
+   *            the calling thread
+   *
+   * @return the minimum vector of Paths for a Graph with a specified list of
+   *         input Nodes that connects all of the input Nodes
+   */
+  public static Vector<Path> minPaths(Graph g, ArrayList<Node> inputNodes,
+      Executor executor) {
+    return minPaths(g, inputNodes, Engine.ENUMERATION, executor);
+  }
+
+  /**
+   * minPaths
+   *
+   * Same as minPaths(g, inputNodes, executor), except that the engine used to
+   * connect the input Nodes is chosen by the caller.
+   *
+   * Engine.BRANCH_AND_BOUND runs the same search as Engine.ENUMERATION, but
+   * keeps a running weight of the current Paths, plus a lower bound on what
+   * it will cost to reach the input Nodes they are still missing (every one
+   * of them needs at least its cheapest Edge, and one Edge can reach at most
+   * two of them) - as soon as those add up to at least the weight of the best
+   * Paths found so far, nothing built on top of the current Paths can be
+   * chosen, so that whole branch of the search is skipped. The very first
+   * combination the search completes is the greedy one (the first Path of
+   * each pair of input Nodes, in order), so there is an upper bound to prune
+   * against almost right away.
+   *
+   * With Engine.EXACT, the input Nodes are connected by the cheapest
+   * possible tree of Edges (see exactSteinerTree), which can be cheaper than
+   * any combination of shortest Paths between pairs of input Nodes, and
+   * which takes time that grows with the number of input Nodes rather than
+   * with the number of alternate Paths between them - the tree is split
+   * back up into Paths by SteinerTree.paths. Engine.APPROXIMATE does the same with a tree that
+   * is found in polynomial time but may weigh up to twice as much (see
+   * approximateSteinerTree), for input Node lists too long for either of
+   * the others - and Engine.VORONOI finds a tree with the same guarantee
+   * from a single search of the Graph (see voronoiSteinerTree), for Graphs
+   * too big for one search per input Node.
+   *
+   * @param g
+   *            the specified Graph that will be searched
+   *
+   * @param inputNodes
+   *            the specified list of input Nodes to search for
+   *
+   * @param engine
+   *            the Engine to connect the input Nodes with
+   *
+   * @param executor
+   *            the Executor to run the searches on, or null to run them on
+   *            the calling thread (only used by Engine.ENUMERATION and
+   *            Engine.BRANCH_AND_BOUND)
+   *
+   * @return the minimum vector of Paths for a Graph with a specified list of
+   *         input Nodes that connects all of the input Nodes
+   */
+  public static Vector<Path> minPaths(Graph g, ArrayList<Node> inputNodes,
+      Engine engine, Executor executor) {
+    return minPaths(new MinPathsQuery(g, inputNodes, engine, executor));
+  }
+
+  /**
+   * minPaths
+   *
+   * Same as minPaths(g, inputNodes, engine, executor) of a Graph, for a
+   * FrozenGraph (such as a mapped GraphFile, whose Nodes have no Edges of
+   * their own). A FrozenGraph keeps no indexes, so every input Node but the
+   * last is searched from (see getInputNodeDags of a FrozenGraph).
+   *
+   * @param g
+   *            the specified FrozenGraph that will be searched
+   *
+   * @param inputNodes
+   *            the specified list of input Nodes to search for
+   *
+   * @param engine
+   *            the Engine to connect the input Nodes with
+   *
+   * @param executor
+   *            the Executor to run the searches on, or null to run them on
+   *            the calling thread (only used by Engine.ENUMERATION and
+   *            Engine.BRANCH_AND_BOUND)
+   *
+   * @return the minimum vector of Paths for a FrozenGraph with a specified
+   *         list of input Nodes that connects all of the input Nodes
+   */
+  public static Vector<Path> minPaths(FrozenGraph g, ArrayList<Node> inputNodes,
+      Engine engine, Executor executor) {
+    return minPaths(new MinPathsQuery(g, inputNodes, engine, executor));
+  }
+
+  /**
+   * minPaths
+   *
+   * Same as minPaths(g, inputNodes, engine, executor), with everything the
+   * call works with held by a MinPathsQuery - the caller's input Node list
+   * is never changed (the query keeps its own sorted copy), nothing is
+   * printed, and the statistics of the search are left in the query. Any
+   * number of threads can run their own queries against the same Graph at
+   * once.
+   *
+   * @param query
+   *            the MinPathsQuery to run
+   *
+   * @return the minimum vector of Paths (also kept in the query)
+   */
+  public static Vector<Path> minPaths(MinPathsQuery query) {
+    Graph g = query.graph();
+    FrozenGraph frozen = query.frozenGraph();
+    ArrayList<Node> inputNodes = query.inputNodes();
+    Engine engine = query.engine();
+    Executor executor = query.executor();
     Vector<Path> minPaths = new Vector<Path>();
-    int minPathsWeight = Integer.MAX_VALUE;
 
     // handle the degenerate cases (inputNodes is null, or
     // the size of inputNodes is either 0 or 1)
     if (inputNodes == null) {
       return null;
-    } else if (inputNodes.size() == 0) {
-      return minPaths;
-    } else if (inputNodes.size() == 1) {
-      Path oneNodePath = new Path(inputNodes.get(0));
-      minPaths.add(oneNodePath);
+    } else if (inputNodes.size() <= 1) {
+      if (inputNodes.size() == 1) {
+        minPaths.add(new Path(inputNodes.get(0)));
+      }
+      query.setMinPaths(minPaths);
       return minPaths;
     }
 
-    // sort the inputNodes according to their ordinal values so we
-    // always create a consistent set of output results for minPath
-    Collections.sort(inputNodes);
+    if (engine == Engine.EXACT) {
+      minPaths = exactSteinerTree(frozen, inputNodes).paths();
+    } else if (engine == Engine.APPROXIMATE) {
+      minPaths = approximateSteinerTree(frozen, inputNodes).paths();
+    } else if (engine == Engine.VORONOI) {
+      minPaths = voronoiSteinerTree(frozen, inputNodes).paths();
+    }
+    if (engine == Engine.EXACT || engine == Engine.APPROXIMATE
+        || engine == Engine.VORONOI) {
+      query.setMinPaths(minPaths);
+      return minPaths;
+    }
 
     // get all the shortest paths for every input Node to every other
-    // input Node and then sort the returned vector of vector of Paths
-    // by the weight of each vector of Paths (which will be the sum of
-    // the weights of all the Nodes that comprise each Path object)
-    Vector<Vector<Path>> inputNodePaths = getInputNodePaths(g, inputNodes);
-    Collections.sort(inputNodePaths, new Comparator<Vector<Path>>() {
-      public int compare(Vector<Path> vecPath1, Vector<Path> vecPath2) {
-        return vecPath1.get(0).compareTo(vecPath2.get(0));
-      }
-    });
+    // input Node (one ShortestPathDag per pair of input Nodes, which
+    // holds ALL the shortest Paths for that pair without building them)
+    if (g != null) {
+      return searchCombinations(query, getInputNodeDags(g, inputNodes, executor));
+    }
+    return searchCombinations(query, getInputNodeDags(frozen, inputNodes, executor));
+  }
+
+  /**
+   * minPathsBatch
+   *
+   * Same as calling minPaths(g, inputNodes, engine, executor) for each of a
+   * list of input Node lists, except that the shortest path searches are
+   * shared between them - each input Node that any list needs to search
+   * from is searched from only once (or, if the Graph keeps an index that
+   * makes pair queries cheap, each pair of input Nodes is queried only
+   * once), and then every list's combination search is run on the shared
+   * results. The results are exactly the same as calling minPaths for each
+   * list on its own.
+   *
+   * Only Engine.ENUMERATION and Engine.BRANCH_AND_BOUND search between
+   * pairs of input Nodes, so with any other engine, each list is simply
+   * handed to minPaths.
+   *
+   * @param g
+   *            the specified Graph that will be searched
+   *
+   * @param inputNodeLists
+   *            the lists of input Nodes to connect (none of them is
+   *            changed)
+   *
+   * @param engine
+   *            the Engine to connect the input Nodes with
+   *
+   * @param executor
+   *            the Executor to run the searches on, or null to run them on
+   *            the calling thread
+   *
+   * @return one minimum vector of Paths per list of input Nodes (null for a
+   *         null list), in the same order
+   */
+  public static Vector<Vector<Path>> minPathsBatch(Graph g,
+      Vector<ArrayList<Node>> inputNodeLists, Engine engine, Executor executor) {
+    return minPathsBatch(g, null, inputNodeLists, engine, executor);
+  }
+
+  /**
+   * minPathsBatch
+   *
+   * Same as minPathsBatch of a Graph, for a FrozenGraph (such as a mapped
+   * GraphFile) - which keeps no indexes, so each input Node that any list
+   * needs to search from is searched from once.
+   *
+   * @param g
+   *            the specified FrozenGraph that will be searched
+   *
+   * @param inputNodeLists
+   *            the lists of input Nodes to connect (none of them is
+   *            changed)
+   *
+   * @param engine
+   *            the Engine to connect the input Nodes with
+   *
+   * @param executor
+   *            the Executor to run the searches on, or null to run them on
+   *            the calling thread
+   *
+   * @return one minimum vector of Paths per list of input Nodes (null for a
+   *         null list), in the same order
+   */
+  public static Vector<Vector<Path>> minPathsBatch(FrozenGraph g,
+      Vector<ArrayList<Node>> inputNodeLists, Engine engine, Executor executor) {
+    return minPathsBatch(null, g, inputNodeLists, engine, executor);
+  }
+
+  /**
+   * minPathsBatch
+   *
+   * The work of minPathsBatch, for either a Graph or a FrozenGraph.
+   *
+   * @param g
+   *            the specified Graph that will be searched, or null
+   *
+   * @param frozen
+   *            the specified FrozenGraph that will be searched, if there is
+   *            no Graph
+   *
+   * @param inputNodeLists
+   *            the lists of input Nodes to connect
+   *
+   * @param engine
+   *            the Engine to connect the input Nodes with
+   *
+   * @param executor
+   *            the Executor to run the searches on, or null
+   *
+   * @return one minimum vector of Paths per list of input Nodes
+   */
+  private static Vector<Vector<Path>> minPathsBatch(Graph g, FrozenGraph frozen,
+      Vector<ArrayList<Node>> inputNodeLists, Engine engine, Executor executor) {
+    Vector<MinPathsQuery> queries = new Vector<MinPathsQuery>();
+    for (ArrayList<Node> inputNodes : inputNodeLists) {
+      queries.add((g != null) ? new MinPathsQuery(g, inputNodes, engine, executor)
+          : new MinPathsQuery(frozen, inputNodes, engine, executor));
+    }
 
-    // now that we have sorted all the vectors of vectors of Paths, we
-    // need to assign the ordinal values for each vector of Paths - note
-    // that for one vector of Paths, the weight of each Path in the
-    // vector of Paths will be the same (since they all belong to the
-    // same group - or vector - of Path vectors)
-    int ordinal = 0;
-    for (Vector<Path> paths : inputNodePaths) {
-      for (Path path : paths) {
-        path.setOrdinal(ordinal);
+    // every input Node that comes before another in its (sorted) list is
+    // searched from - the same pairs getInputNodeDags would search
+    boolean pairSearch = (engine == Engine.ENUMERATION
+        || engine == Engine.BRANCH_AND_BOUND);
+    boolean isSource[] = new boolean[(g != null) ? g.nodes().size() : frozen.numNodes()];
+    final ArrayList<Node> sources = new ArrayList<Node>();
+    if (pairSearch) {
+      for (MinPathsQuery query : queries) {
+        ArrayList<Node> inputNodes = query.inputNodes();
+        if (inputNodes == null) {
+          continue;
+        }
+        for (int i = 0; i < inputNodes.size() - 1; i++) {
+          if (!isSource[inputNodes.get(i).ordinal()]) {
+            isSource[inputNodes.get(i).ordinal()] = true;
+            sources.add(inputNodes.get(i));
+          }
+        }
       }
-      ordinal++;
     }
 
-    // now comes the main meat of the logic for this algorithm -
-    // we will use a stack-based approach to iterate through
-    // all the vectors of Path vectors (remember - they are
-    // ordered from shortest to longest now) - we are trying to
-    // find the best (shortest) set of Paths that contain ALL of
-    // our input Nodes AND all the Nodes in that set of Paths
-    // are in a fully connected Graph...
-
-    // first, we create a new stack - it will be a stack of
-    // vectors of Paths - and we seed it with the all the
-    // Paths in the first vector of Paths
-    Stack<Vector<Path>> stack = new Stack<Vector<Path>>();
-    for (int i = inputNodePaths.get(0).size(); i > 0; i--) {
-      Vector<Path> newVec = new Vector<Path>();
-      newVec.add(inputNodePaths.get(0).get(i - 1));
-      stack.push(newVec);
-    }
-
-    System.out.println("...minPaths => START finding all the shortest paths");
-
-    // now we continue to process our stack until it has been
-    // emptied out - when we pop off a vector of Paths from
-    // the top of the stack (we call it our current Paths), we
-    // check to see if all our input Nodes are in this vector
-    // of current Paths - if so, the then verify that those
-    // Nodes in the current Paths vector are in a fully connected
-    // Graph - and if THAT is also true, we get the weight of the
-    // vector of current Paths and compare it to our current
-    // minimum Paths weight - if it is smaller (shorter), we
-    // set a NEW minimum Paths weight and also set our current
-    // minimum Paths (the vector of Paths that we are returning)
-    // to this current Paths vector.
-        int numTotalIterations = 0;
-    Vector<Path> currPaths;
-    Graph currGraph;
-    while (!stack.isEmpty()) {
-
-          numTotalIterations++;
-          currPaths = stack.pop();
-      currGraph = new Graph(currPaths);
-
-      // see if all our input Nodes are in the current Paths
-      // vector that was just popped off the top of our stack -
-      // and also check to see if all the Nodes in the current
-      // Paths vector are in a fully connected Graph
-      if (allNodesInPathVec(inputNodes, currPaths)
-          && currGraph.isConnected()) {
-        // we have a potentially better vector of Paths to
-        // return to the caller
-        int currPathsWeight = getPathsWeight(currPaths);
-        if (currPathsWeight < minPathsWeight) {
-          // we have a winner! this current Path vector is the
-          // best (shortest) so far - so save off the new
-          // minimum Paths weight and new minimum set of Paths
-          minPathsWeight = currPathsWeight;
-          minPaths = currPaths;
+    // unless the Graph keeps an index that makes pair queries cheap, search
+    // the whole Graph once from each source (on the Executor, if there is
+    // one)
+    final ShortestPathTree trees[] = new ShortestPathTree[isSource.length];
+    if (g == null || (!g.isAllPairsIndexEnabled() && !g.isContractionHierarchyEnabled()
+        && g.landmarkCount() <= 0)) {
+      final FrozenGraph searched = (g != null) ? g.freeze() : frozen;
+      if (executor == null) {
+        for (Node src : sources) {
+          trees[src.ordinal()] = shortestPathTree(searched, src);
         }
       } else {
-        // either we don't have all the input Nodes in our current
-        // vector of Paths or we have all the input Nodes, but the
-        // Nodes in the current vector of Paths is NOT in a fully
-        // connected Graph - so we need to add the next vector of
-        // Paths to our current vector of Paths (in reverse order
-        // that they sit in the vector) and the push this new vector
-        // of Paths onto our stack so it can be popped off and then
-        // evaluated...
-        Vector<Path> nextPaths = inputNodePaths.get(currPaths.get(
-            currPaths.size() - 1).ordinal() + 1);
-        for (int i = nextPaths.size(); i > 0; i--) {
-          Vector<Path> newPaths = new Vector<Path>();
-          for (Path path : currPaths) {
-            newPaths.add(path);
+        ArrayList<FutureTask<ShortestPathTree>> tasks =
+            new ArrayList<FutureTask<ShortestPathTree>>();
+        for (final Node src : sources) {
+          FutureTask<ShortestPathTree> task = new FutureTask<ShortestPathTree>(
+              new Callable<ShortestPathTree>() {
+                public ShortestPathTree call() {
+                  return shortestPathTree(searched, src);
+                }
+              });
+          tasks.add(task);
+          executor.execute(task);
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+          trees[sources.get(i).ordinal()] = await(tasks.get(i));
+        }
+      }
+    }
+
+    // then run every list's combination search on the DAGs of its pairs of
+    // input Nodes (each pair's DAG is made only once)
+    HashMap<Long, ShortestPathDag> pairDags = new HashMap<Long, ShortestPathDag>();
+    Vector<Vector<Path>> allMinPaths = new Vector<Vector<Path>>();
+    for (MinPathsQuery query : queries) {
+      ArrayList<Node> inputNodes = query.inputNodes();
+      if (!pairSearch || inputNodes == null || inputNodes.size() <= 1) {
+        allMinPaths.add(minPaths(query));
+        continue;
+      }
+
+      Vector<ShortestPathDag> inputNodeDags = new Vector<ShortestPathDag>();
+      for (int i = 0; i < inputNodes.size() - 1; i++) {
+        Node src = inputNodes.get(i);
+        for (int j = i + 1; j < inputNodes.size(); j++) {
+          Node dst = inputNodes.get(j);
+          Long pair = Long.valueOf(((long) src.ordinal() << 32) | dst.ordinal());
+          ShortestPathDag dag = pairDags.get(pair);
+          if (dag == null) {
+            if (trees[src.ordinal()] != null) {
+              dag = trees[src.ordinal()].dagTo(dst);
+            } else if (g.isAllPairsIndexEnabled()) {
+              dag = g.allPairsIndex().dag(src, dst);
+            } else {
+              dag = shortestPathDag(g, src, dst);
+            }
+            pairDags.put(pair, dag);
           }
-          newPaths.add(nextPaths.get(i - 1));
-          stack.push(newPaths);
+          inputNodeDags.add(dag);
         }
       }
+      allMinPaths.add(searchCombinations(query, inputNodeDags));
+    }
+    return allMinPaths;
+  }
+
+  /**
+   * searchCombinations
+   *
+   * The rest of minPaths(query), once the ShortestPathDag of every pair of
+   * input Nodes is known - searches the combinations of one Path from each
+   * DAG for the lightest one that connects all the input Nodes, and puts
+   * its top Node first.
+   *
+   * @param query
+   *            the MinPathsQuery being run (Engine.ENUMERATION or
+   *            Engine.BRANCH_AND_BOUND, with at least two input Nodes)
+   *
+   * @param inputNodeDags
+   *            the DAG of every pair of input Nodes, in the order
+   *            getInputNodeDags returns them (this vector is sorted)
+   *
+   * @return the minimum vector of Paths (also kept in the query)
+   */
+  static Vector<Path> searchCombinations(MinPathsQuery query,
+      Vector<ShortestPathDag> inputNodeDags) {
+    FrozenGraph g = query.frozenGraph();
+    ArrayList<Node> inputNodes = query.inputNodes();
+    Engine engine = query.engine();
+    Executor executor = query.executor();
+    Vector<Path> minPaths = new Vector<Path>();
+    int minPathsWeight = Integer.MAX_VALUE;
+
+    // sort the vector of DAGs by the weight of their Paths (which will be
+    // the sum of the weights of all the Edges that comprise each Path
+    // object)
+    Collections.sort(inputNodeDags, new Comparator<ShortestPathDag>() {
+      public int compare(ShortestPathDag dag1, ShortestPathDag dag2) {
+        return (dag1.weight() < dag2.weight()) ? -1
+            : ((dag1.weight() == dag2.weight()) ? 0 : 1);
+      }
+    });
+
+    // now comes the main meat of the logic for this algorithm -
+    // we will iterate through all the combinations of one Path from
+    // each DAG (remember - they are ordered from shortest to longest
+    // now) - we are trying to find the best (shortest) set of Paths
+    // that contain ALL of our input Nodes AND all the Nodes in that
+    // set of Paths are in a fully connected Graph (see
+    // CombinationSearch). If we were given an Executor, the search is
+    // cut up into Subtrees that one CombinationSearch per processor
+    // takes on, one Subtree at a time, sharing the weight of the best
+    // Paths found so far - otherwise, we search the whole thing right
+    // here.
+    boolean bound = (engine == Engine.BRANCH_AND_BOUND);
+    Vector<CombinationSearch> searches = new Vector<CombinationSearch>();
+    CombinationSearch.Subtrees subtrees = new CombinationSearch.Subtrees(g,
+        inputNodes, inputNodeDags, (executor == null) ? 0 : SEARCH_SPLIT_DEPTH);
+    if (executor == null) {
+      searches.add(new CombinationSearch(subtrees, bound, null).call());
+    } else {
+      AtomicInteger sharedWeight = new AtomicInteger(Integer.MAX_VALUE);
+      ArrayList<FutureTask<CombinationSearch>> tasks =
+          new ArrayList<FutureTask<CombinationSearch>>();
+      for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
+        FutureTask<CombinationSearch> task = new FutureTask<CombinationSearch>(
+            new CombinationSearch(subtrees, bound, sharedWeight));
+        tasks.add(task);
+        executor.execute(task);
+      }
+      for (FutureTask<CombinationSearch> task : tasks) {
+        searches.add(await(task));
+      }
     }
 
-        System.out.println("...minPaths => END finding all the shortest paths, numTotalIterations = " + numTotalIterations);
+    // the best Paths are the lightest ones any search found - and of
+    // those, the ones from the lowest numbered Subtree
+    int numTotalIterations = subtrees.numTotalIterations();
+    int numPrunedBranches = 0;
+    int minPathsSubtree = Integer.MAX_VALUE;
+    for (CombinationSearch search : searches) {
+      numTotalIterations += search.numTotalIterations();
+      numPrunedBranches += search.numPrunedBranches();
+      if (search.minPathsWeight() < minPathsWeight
+          || (search.minPathsWeight() == minPathsWeight
+              && search.minPathsSubtree() < minPathsSubtree)) {
+        minPathsWeight = search.minPathsWeight();
+        minPathsSubtree = search.minPathsSubtree();
+        minPaths = search.minPaths();
+      }
+    }
+    query.setSearchStatistics(numTotalIterations, numPrunedBranches);
 
-    // we need to find the top Node in our minimum vector of Paths -
-    // to do this, we toss all the Nodes of our minPaths into a new
-    // Graph and then ask that Graph for a "terminal" Node that has
-    // the fewest number of Edges in it (presumably, just 1)...
-    Graph minPathsGraph = new Graph(minPaths);
-    Node topNode = minPathsGraph.findTopNode(g);
+    // we need to find the top Node in our minimum vector of Paths - the
+    // "terminal" Node that has the fewest Edges in the Paths (presumably,
+    // just 1)...
+    Node topNode = topNode(minPaths);
 
     // now that we have the top Node, we need to move that Path with that
     // top Node to be the FIRST Path of minPaths - and make sure that the
     // top Node in that FIRST Path is also the FIRST Node of that Path
-    // (which might mean reversing the Nodes in that Path)
+    // (which might mean reversing the Nodes of a copy of that Path, since
+    // the Path itself came out of the search)
     int pathIndexWithTopNode = 0;
-    for (Path path : minPaths) {
+    for (int i = 0; i < minPaths.size(); i++) {
+      Path path = minPaths.get(i);
       if (path.contains(topNode)) {
-        pathIndexWithTopNode = minPaths.indexOf(path);
+        pathIndexWithTopNode = i;
         if (path.nodes().indexOf(topNode) != 0) {
-          Collections.reverse(path.nodes());
+          Path reversed = new Path(path);
+          Collections.reverse(reversed.nodes());
+          minPaths.set(i, reversed);
         }
         break;
       }
@@ -254,209 +655,1780 @@ public abstract class GraphOperations {
     // success! we have found our minimum vector of Paths needed to
     // connect all of our input Nodes to one another - so let's return
     // it to the caller...
+    query.setMinPaths(minPaths);
     return minPaths;
   }
 
   /**
-   * getInputNodePaths
+   * topNode
    *
-   * This method is the heart of the key logic needed to efficiently determine
-   * the best set of minimum (shortest or least costly) Paths needed to fully
-   * connect a list of input Nodes.
+   * Finds the top Node of a vector of Paths - the Node with the fewest
+   * neighbours in the Paths, and of those, the one with the smallest
+   * ordinal (the same Node Graph.findTopNode finds in a Graph made of the
+   * Paths, without making the Graph)
    *
-   * The basic approach in this algorithm is to iterate through all the input
-   * Nodes - and for each input Node, find the shortest possible Path to every
-   * other input Node (again, using an iterative approach that uses a stack) -
-   * as each possible Path is discovered for a particular pair of source and
-   * destination Nodes, the Path with the least weight (cost) is saved off in
-   * a "possibleBestPaths" vector of Paths - when a better Path is discovered
-   * during the iteration for a given pair of Nodes, the current best Path is
-   * cleared out and replaced by the new "better" best Path.
-   *
-   * After the final "possibleBestpaths" is determined for each of the input
-   * Nodes, that vector of "possibleBestPaths" (which is really now the
-   * "actualBestPaths" for a given input Node) is added to the final
-   * "allPaths", which is that ultimate total list of all the best Paths for
-   * every input Node to every other input Node. The caller of this method
-   * will then use that final set of "allPaths" to find the MINIMUM set of
-   * Paths that are needed to fully connect all the input Nodes to one
-   * another.
+   * @param paths
+   *            the Paths
+   *
+   * @return the top Node, or null if there are no Paths
+   */
+  static Node topNode(Vector<Path> paths) {
+    // the Nodes are looked up by ordinal rather than hashed, since Node
+    // does not override hashCode (equal Nodes may be distinct objects)
+    int numOrdinals = 0;
+    for (Path path : paths) {
+      for (Node node : path.nodes()) {
+        numOrdinals = Math.max(numOrdinals, node.ordinal() + 1);
+      }
+    }
+
+    // count each Node's distinct neighbours - an Edge shared by several
+    // Paths is only counted once
+    Node nodes[] = new Node[numOrdinals];
+    int numNeighbours[] = new int[numOrdinals];
+    HashSet<Long> adjacent = new HashSet<Long>();
+    for (Path path : paths) {
+      for (int i = 0; i < path.size(); i++) {
+        int curr = path.get(i).ordinal();
+        nodes[curr] = path.get(i);
+        if (i > 0) {
+          int prev = path.get(i - 1).ordinal();
+          long pair = (long) Math.min(prev, curr) * numOrdinals + Math.max(prev, curr);
+          if (adjacent.add(pair)) {
+            numNeighbours[curr]++;
+            if (prev != curr) {
+              numNeighbours[prev]++;
+            }
+          }
+        }
+      }
+    }
+
+    // ties go to the smallest ordinal, since the ordinals are walked in order
+    Node topNode = null;
+    for (int ordinal = 0; ordinal < numOrdinals; ordinal++) {
+      if (nodes[ordinal] != null && (topNode == null
+          || numNeighbours[ordinal] < numNeighbours[topNode.ordinal()])) {
+        topNode = nodes[ordinal];
+      }
+    }
+    return topNode;
+  }
+
+  /**
+   * exactSteinerTree
+   *
+   * Returns the cheapest tree of Edges that connects all the input Nodes (a
+   * minimum Steiner tree), using the Dreyfus-Wagner dynamic program in the
+   * form given by Erickson, Monma and Veinott.
+   *
+   * The last input Node is the root of everything. For every subset S of the
+   * OTHER input Nodes and every Node v of the Graph, cost[S][v] is the
+   * weight of the cheapest tree that connects the input Nodes of S and v.
+   * The subsets are filled in increasing order - first, a tree for S at v
+   * can be two trees for two halves of S that meet at v, and then, a tree
+   * for S at v can be a tree for S at a neighbour u of v plus the Edge from u
+   * to v, which is just a Dijkstra search seeded with every cost[S][v] found
+   * so far. The answer is cost[all][root], and the choice made for every
+   * entry lets us walk back down to the Edges of the tree.
+   *
+   * That is O(3^k n + 2^k (m + n log n)) time and O(2^k n) space for k input
+   * Nodes, n Nodes and m Edges - exponential in the number of input Nodes
+   * only - so more than MAX_EXACT_INPUT_NODES input Nodes are refused.
    *
    * @param g
    *            the specified Graph that will be searched
    *
    * @param inputNodes
-   *            the specified list of input Nodes to search for
+   *            the specified list of input Nodes to connect
    *
-   * @return a vector of vector of input Node Paths for a Graph with a
-   *         specified list of input Nodes
+   * @return the SteinerTree (with no Edges if the input Nodes cannot all be
+   *         reached from one another)
    */
-  public static Vector<Vector<Path>> getInputNodePaths(Graph g, ArrayList<Node> inputNodes) {
-    // create an initial empty vector of vector of all Paths to be returned
-    Vector<Vector<Path>> allPaths = new Vector<Vector<Path>>();
-
-    // the key processing loop for all the input Nodes - this
-    // will be a O(n^2) number of trees that we process, in total...
-    //
-    // as a small example, if the input Nodes are this:
-    //     a
-    //     b
-    //     c
-    //     d
-    // then, we would be evaluating all these Paths:
-    //     a -> b
-    //     a -> c
-    //     a -> d
-    //     b -> c
-    //     b -> d
-    //     c -> d
-    // note that for each of the above Paths, it is quite
-    // possible that other Nodes (that are NOT input Nodes)
-    // will be part of each best Path that is discovered
-    for (int i = 0; i < inputNodes.size() - 1; i++) {
+  public static SteinerTree exactSteinerTree(Graph g, ArrayList<Node> inputNodes) {
+    return exactSteinerTree(g.freeze(), inputNodes);
+  }
 
-      // collect some performance metrics...
-      int numTotalIterations = 0;
+  /**
+   * exactSteinerTree
+   *
+   * Returns the cheapest tree of Edges that connects all the input Nodes of
+   * a FrozenGraph (see exactSteinerTree of a Graph).
+   *
+   * @param g
+   *            the specified FrozenGraph that will be searched
+   *
+   * @param inputNodes
+   *            the specified list of input Nodes to connect
+   *
+   * @return the SteinerTree (with no Edges if the input Nodes cannot all be
+   *         reached from one another)
+   */
+  public static SteinerTree exactSteinerTree(FrozenGraph g, ArrayList<Node> inputNodes) {
+    if (inputNodes.size() > MAX_EXACT_INPUT_NODES) {
+      throw new IllegalArgumentException("an exact Steiner tree is limited to "
+          + MAX_EXACT_INPUT_NODES + " input Nodes, not " + inputNodes.size());
+    }
+    Vector<Edge> treeEdges = new Vector<Edge>();
+    if (inputNodes.size() <= 1) {
+      return new SteinerTree(g, inputNodes, treeEdges);
+    }
 
-      // for this input Node, we will check all the possible
-      // paths to all the REST of the input Nodes
-      for (int j = i + 1; j < inputNodes.size(); j++) {
+    IntBuffer offsets = g.offsets();
+    IntBuffer targets = g.targets();
+    IntBuffer weights = g.weights();
+    int n = g.numNodes();
+    int numSubsets = 1 << (inputNodes.size() - 1);
+    int root = inputNodes.get(inputNodes.size() - 1).ordinal();
 
-        // collect some stats...
-        int numIterationsThisPairNodes = 0;
+    // cost[S * n + v] as described above - choice[S * n + v] says how it was
+    // made: the ordinal of the neighbour u it grew from, or -2 - A for the
+    // two halves A and S - A, or NO_NEXT for a lone input Node itself
+    int cost[] = new int[numSubsets * n];
+    int choice[] = new int[numSubsets * n];
+    Arrays.fill(cost, INFINITY);
+    Arrays.fill(choice, NO_NEXT);
+    for (int i = 0; i < inputNodes.size() - 1; i++) {
+      cost[(1 << i) * n + inputNodes.get(i).ordinal()] = 0;
+    }
 
-        // create a working possible best Paths that will be used
-        // repeatedly for each of the input Nodes being processed
-        Vector<Path> bestPaths = new Vector<Path>();
-        int bestPathWeight = Integer.MAX_VALUE;
+    // the seeded costs can be far apart, so this search always uses a
+    // NodeHeap (a BucketQueue only covers a window of one Edge weight)
+    NodeHeap heap = new NodeHeap(n);
+    for (int set = 1; set < numSubsets; set++) {
+      int base = set * n;
 
-        Node src = inputNodes.get(i);
-        Node dst = inputNodes.get(j);
-
-        // allocate a new stack and seed it with the "src" input
-        // Node to evaluate this particular src -> dst Path (we
-        // are looking for the best possible Path between the
-        // "src" and "dst" input Nodes)
-        Stack<Path> stack = new Stack<Path>();
-        stack.push(new Path(src));
-
-        Path currPath;
-        // take this new stack and keep processing it until
-        // the stack is empty - note that the stack only
-        // starts with one element (the "src" input Node) -
-        // but we'll be pushing new Paths that we discover
-        // have to be evaluated as another possible "best" Path...
-        while (!stack.isEmpty()) {
-
-          // bump our iteration counters...
-          numIterationsThisPairNodes++;
-          numTotalIterations++;
-
-          // pop off our current path
-          currPath = stack.pop();
-
-          // if the last Node in this current Path is equal to
-          // our destination Node, we can evaluate the current
-          // Path and see if it is any better than the best
-          // Path we have found so far...
-          if (currPath.lastNode().equals(dst)) {
-            int currPathWeight = currPath.weight();
-            if (currPathWeight < bestPathWeight) {
-              // this current Path is better than what we have
-              // found so far, so we can save off a new "best
-              // weight" and also clear out the old "best Path"...
-              bestPathWeight = currPathWeight;
-              bestPaths.clear();
+      // join the trees of two halves of the subset - each split is only
+      // tried once, with the lowest input Node always in the first half
+      int lowest = set & -set;
+      for (int half = (set - 1) & set; half > 0; half = (half - 1) & set) {
+        if ((half & lowest) == 0) {
+          continue;
+        }
+        int halfBase = half * n;
+        int otherBase = (set ^ half) * n;
+        for (int v = 0; v < n; v++) {
+          if (cost[halfBase + v] != INFINITY && cost[otherBase + v] != INFINITY) {
+            long joined = (long) cost[halfBase + v] + cost[otherBase + v];
+            if (joined < cost[base + v]) {
+              cost[base + v] = (int) joined;
+              choice[base + v] = -2 - half;
             }
+          }
+        }
+      }
 
-            // we add this current Path to our list of possible
-            // best Paths - there is a case where there could be
-            // multiple best Paths (equal weights for 2 or more
-            // Paths that can get from the "src" Node to the
-            // "dst" Node
-            bestPaths.add(currPath);
-          } else {
-            // we have NOT yet reached our "dst" Node from this
-            // "src" Node - so we now process every Edge that
-            // belongs to this last Node of the current Path
-            //
-            // note that we need to process each of the Edges in
-            // their reverse order because we will potentially
-            // add new Paths to the stack - and since the stack
-            // is LIFO (by definition of a stack), we want to make
-            // sure we process the new Paths in the correct order
-            // as we pop them off the top of the stack...
-            Node lastNode = currPath.lastNode();
-            for (int edgeIndex = lastNode.edges().size(); edgeIndex > 0; edgeIndex--) {
-              // get the other Node (the toNode) for this Edge...
-              Edge curEdge = lastNode.edges().get(edgeIndex - 1);
-              Node toNode = curEdge.to();
-
-              // if our current Path does NOT contain this toNode,
-              // we need to add it to our current Path...
-              if (!currPath.contains(toNode)) {
-                Path newPath = new Path(currPath);
-                newPath.addNode(toNode, curEdge.weight());
-
-                // we've added this toNode to our current Path,
-                // but we only push this new Path onto our stack
-                // for evaluation if - and ONLY if - the weight
-                // of this new Path is the same or better than
-                // the current best Path weight (where "better"
-                // is defined as a lower weight, or cost)...
-                if (newPath.weight() <= bestPathWeight) {
-                  stack.push(newPath);
-                }
-              }
-            }
+      // then grow the trees along the Edges of the Graph
+      heap.clear();
+      for (int v = 0; v < n; v++) {
+        if (cost[base + v] != INFINITY) {
+          heap.push(v, cost[base + v]);
+        }
+      }
+      while (!heap.isEmpty()) {
+        int curr = heap.pop();
+        for (int a = offsets.get(curr); a < offsets.get(curr + 1); a++) {
+          int to = targets.get(a);
+          long grown = (long) cost[base + curr] + weights.get(a);
+          if (grown < cost[base + to]) {
+            cost[base + to] = (int) grown;
+            choice[base + to] = curr;
+            heap.push(to, (int) grown);
           }
         }
+      }
+    }
 
-        // show the total number of iterations we took to find all the
-        // possible best Paths for this pair of input Nodes..
-        System.out.println("...for src node " + src.toString() + " to dst node " + dst.toString() + ", numIterationsThisPairNodes = " + numIterationsThisPairNodes);
+    int all = numSubsets - 1;
+    if (cost[all * n + root] == INFINITY) {
+      return new SteinerTree(g, inputNodes, treeEdges);
+    }
 
-        // okay - we've now found all the possible best Paths for this
-        // particular set of "src" and "dst" pair of input Nodes - so we
-        // can add all of them to our final vector of all Paths that
-        // will
-        // be returned to the caller...
-        allPaths.add(bestPaths);
+    // walk back down from the answer, collecting the Edges of the tree
+    Stack<Integer> entries = new Stack<Integer>();
+    entries.push(all * n + root);
+    while (!entries.isEmpty()) {
+      int entry = entries.pop();
+      int set = entry / n;
+      int v = entry % n;
+      int made = choice[entry];
+      if (made >= 0) {
+        treeEdges.add(g.edge(made, v));
+        entries.push(set * n + made);
+      } else if (made != NO_NEXT) {
+        int half = -2 - made;
+        entries.push(half * n + v);
+        entries.push((set ^ half) * n + v);
       }
-            System.out.println("...numTotalIterations = " + numTotalIterations);
-
-      // we've processed all the possible paths for this input Node - now
-      // we can continue to process the next input Node in our list...
     }
 
-    // finally! we now have ALL the possible shortest Paths for every input
-    // Node to every other input Node - so let's return them to the
-    // caller...
-    return allPaths;
+    return new SteinerTree(g, inputNodes, treeEdges);
   }
 
   /**
-   * allNodesInPathSet
+   * approximateSteinerTree
    *
-   * Returns whether or not an entire list of Nodes can be found in a
-   * specified vector of Path objects.
+   * Returns a tree of Edges that connects all the input Nodes and weighs no
+   * more than twice as much as the cheapest such tree (see
+   * exactSteinerTree), using the algorithm of Kou, Markowsky and Berman:
    *
-   * @param nodes
-   *            the list of Nodes to search for
+   * 1. Run one Dijkstra search per input Node, which gives the "distance
+   * graph" of the input Nodes - every pair of input Nodes joined by their
+   * shortest distance.
    *
-   * @param pathSet
-   *            the vector of Path objects to search through
+   * 2. Find a minimum spanning tree of the distance graph (Prim's algorithm,
+   * since the distance graph is complete).
    *
-   * @return true if the list of Nodes can be found in the vector of Paths;
-   *         otherwise false
-   */
-  public static boolean allNodesInPathVec(ArrayList<Node> nodes,
-      Vector<Path> pathSet) {
-    // create an array of booleans to hold a 'found' flag for
-    // each of the input Nodes
-    boolean found[] = new boolean[nodes.size()];
-
-    // now search for Node "node" in all the Paths in the specified
+   * 3. Replace every edge of that spanning tree by a shortest Path in the
+   * Graph (see ShortestPathTree.dagTo).
+   *
+   * 4. Those Paths may share Nodes and form cycles, so find a minimum
+   * spanning tree of just the Edges they use (Kruskal's algorithm).
+   *
+   * 5. Repeatedly cut off any leaf of the tree that is not an input Node.
+   *
+   * That is O(k (m + n log n) + k^2 n) time for k input Nodes, n Nodes and m
+   * Edges.
+   *
+   * @param g
+   *            the specified Graph that will be searched
+   *
+   * @param inputNodes
+   *            the specified list of input Nodes to connect
+   *
+   * @return the SteinerTree (with no Edges if the input Nodes cannot all be
+   *         reached from one another)
+   */
+  public static SteinerTree approximateSteinerTree(Graph g, ArrayList<Node> inputNodes) {
+    return approximateSteinerTree(g.freeze(), inputNodes);
+  }
+
+  /**
+   * approximateSteinerTree
+   *
+   * Returns a tree of Edges that connects all the input Nodes of a
+   * FrozenGraph and weighs no more than twice as much as the cheapest such
+   * tree (see approximateSteinerTree of a Graph).
+   *
+   * @param g
+   *            the specified FrozenGraph that will be searched
+   *
+   * @param inputNodes
+   *            the specified list of input Nodes to connect
+   *
+   * @return the SteinerTree (with no Edges if the input Nodes cannot all be
+   *         reached from one another)
+   */
+  public static SteinerTree approximateSteinerTree(FrozenGraph g, ArrayList<Node> inputNodes) {
+    Vector<Edge> treeEdges = new Vector<Edge>();
+    int k = inputNodes.size();
+    if (k <= 1) {
+      return new SteinerTree(g, inputNodes, treeEdges);
+    }
+
+    // 1. the shortest distances from every input Node
+    Node nodes[] = g.nodes();
+    NodeQueue queue = nodeQueue(g, nodes.length);
+    int distance[][] = new int[k][];
+    for (int i = 0; i < k; i++) {
+      distance[i] = shortestDistances(g, queue, inputNodes.get(i).ordinal());
+    }
+
+    // 2. Prim's algorithm over the distance graph - parent[i] is the input
+    // Node that input Node i hangs from in the spanning tree
+    int parent[] = new int[k];
+    int closest[] = new int[k];
+    boolean spanned[] = new boolean[k];
+    Arrays.fill(closest, INFINITY);
+    closest[0] = 0;
+    parent[0] = NO_NEXT;
+    for (int added = 0; added < k; added++) {
+      int next = NO_NEXT;
+      for (int i = 0; i < k; i++) {
+        if (!spanned[i] && (next == NO_NEXT || closest[i] < closest[next])) {
+          next = i;
+        }
+      }
+      if (closest[next] == INFINITY) {
+        return new SteinerTree(g, inputNodes, treeEdges);
+      }
+      spanned[next] = true;
+      for (int i = 0; i < k; i++) {
+        int d = distance[next][inputNodes.get(i).ordinal()];
+        if (!spanned[i] && d < closest[i]) {
+          closest[i] = d;
+          parent[i] = next;
+        }
+      }
+    }
+
+    // 3. expand each spanning tree edge into (the first of) its shortest
+    // Paths in the Graph
+    Vector<Edge> pathEdges = new Vector<Edge>();
+    for (int i = 1; i < k; i++) {
+      Node src = inputNodes.get(parent[i]);
+      Path path = new ShortestPathTree(g, src, distance[parent[i]])
+          .dagTo(inputNodes.get(i)).iterator().next();
+      for (int j = 0; j < path.size() - 1; j++) {
+        pathEdges.add(g.edge(path.get(j).ordinal(), path.get(j + 1).ordinal()));
+      }
+    }
+
+    // 4. Kruskal's algorithm over the Edges of those Paths
+    Collections.sort(pathEdges, new Comparator<Edge>() {
+      public int compare(Edge edge1, Edge edge2) {
+        return (edge1.weight() < edge2.weight()) ? -1
+            : ((edge1.weight() == edge2.weight()) ? 0 : 1);
+      }
+    });
+    int component[] = new int[nodes.length];
+    for (int v = 0; v < nodes.length; v++) {
+      component[v] = v;
+    }
+    int degree[] = new int[nodes.length];
+    Vector<Edge> spanningEdges = new Vector<Edge>();
+    for (Edge edge : pathEdges) {
+      int from = root(component, edge.from().ordinal());
+      int to = root(component, edge.to().ordinal());
+      if (from != to) {
+        component[from] = to;
+        spanningEdges.add(edge);
+        degree[edge.from().ordinal()]++;
+        degree[edge.to().ordinal()]++;
+      }
+    }
+
+    // 5. cut off the leaves that are not input Nodes, until there are none
+    boolean input[] = new boolean[nodes.length];
+    for (Node node : inputNodes) {
+      input[node.ordinal()] = true;
+    }
+    boolean cut = true;
+    while (cut) {
+      cut = false;
+      for (Iterator<Edge> edges = spanningEdges.iterator(); edges.hasNext();) {
+        Edge edge = edges.next();
+        int from = edge.from().ordinal();
+        int to = edge.to().ordinal();
+        if ((degree[from] == 1 && !input[from]) || (degree[to] == 1 && !input[to])) {
+          edges.remove();
+          degree[from]--;
+          degree[to]--;
+          cut = true;
+        }
+      }
+    }
+
+    return new SteinerTree(g, inputNodes, spanningEdges);
+  }
+
+  /**
+   * voronoiSteinerTree
+   *
+   * Returns a tree of Edges that connects all the input Nodes and weighs no
+   * more than twice as much as the cheapest such tree (see
+   * exactSteinerTree), using Mehlhorn's version of approximateSteinerTree,
+   * which only searches the Graph once:
+   *
+   * 1. Run ONE Dijkstra search from all the input Nodes at once - every Node
+   * ends up in the "Voronoi region" of the input Node it is closest to, and
+   * remembers the Node it was reached from.
+   *
+   * 2. Every Edge between two regions joins their two input Nodes by a Path
+   * (back from one end of the Edge to its input Node, the Edge itself, and
+   * back from the other end to its input Node) - take those Edges in order
+   * of the weight of that Path, and keep the ones that join two input Nodes
+   * that are not yet connected (Kruskal's algorithm).
+   *
+   * 3. The Paths of the kept Edges make up the tree.
+   *
+   * That is O(m log m + n log n) time for n Nodes and m Edges, no matter how
+   * many input Nodes there are.
+   *
+   * @param g
+   *            the specified Graph that will be searched
+   *
+   * @param inputNodes
+   *            the specified list of input Nodes to connect
+   *
+   * @return the SteinerTree (with no Edges if the input Nodes cannot all be
+   *         reached from one another)
+   */
+  public static SteinerTree voronoiSteinerTree(Graph g, ArrayList<Node> inputNodes) {
+    return voronoiSteinerTree(g.freeze(), inputNodes);
+  }
+
+  /**
+   * voronoiSteinerTree
+   *
+   * Returns a tree of Edges that connects all the input Nodes of a
+   * FrozenGraph and weighs no more than twice as much as the cheapest such
+   * tree, from a single search of the FrozenGraph (see voronoiSteinerTree
+   * of a Graph).
+   *
+   * @param g
+   *            the specified FrozenGraph that will be searched
+   *
+   * @param inputNodes
+   *            the specified list of input Nodes to connect
+   *
+   * @return the SteinerTree (with no Edges if the input Nodes cannot all be
+   *         reached from one another)
+   */
+  public static SteinerTree voronoiSteinerTree(FrozenGraph g, ArrayList<Node> inputNodes) {
+    Vector<Edge> treeEdges = new Vector<Edge>();
+    if (inputNodes.size() <= 1) {
+      return new SteinerTree(g, inputNodes, treeEdges);
+    }
+
+    // 1. one search from all the input Nodes - region[v] is the input Node
+    // (by its index in the list) whose region Node v is in, and from[v] is
+    // the Node that Node v was reached from
+    IntBuffer offsets = g.offsets();
+    final IntBuffer targets = g.targets();
+    final IntBuffer weights = g.weights();
+    int n = g.numNodes();
+    final int distance[] = new int[n];
+    int region[] = new int[n];
+    int from[] = new int[n];
+    Arrays.fill(distance, INFINITY);
+    Arrays.fill(region, NO_NEXT);
+    Arrays.fill(from, NO_NEXT);
+    NodeQueue queue = nodeQueue(g, n);
+    for (int i = 0; i < inputNodes.size(); i++) {
+      int src = inputNodes.get(i).ordinal();
+      if (distance[src] != 0) {
+        distance[src] = 0;
+        region[src] = i;
+        queue.push(src, 0);
+      }
+    }
+    while (!queue.isEmpty()) {
+      int curr = queue.pop();
+      for (int a = offsets.get(curr); a < offsets.get(curr + 1); a++) {
+        int to = targets.get(a);
+        int toDistance = distance[curr] + weights.get(a);
+        if (toDistance < distance[to]) {
+          distance[to] = toDistance;
+          region[to] = region[curr];
+          from[to] = curr;
+          queue.push(to, toDistance);
+        }
+      }
+    }
+
+    // 2. the arcs between regions (each Edge once), cheapest Path first -
+    // arcFrom[a] is the Node arc a leaves
+    final int arcFrom[] = new int[g.numArcs()];
+    Vector<Integer> boundary = new Vector<Integer>();
+    for (int v = 0; v < n; v++) {
+      for (int a = offsets.get(v); a < offsets.get(v + 1); a++) {
+        int u = targets.get(a);
+        arcFrom[a] = v;
+        if (v < u && region[v] != NO_NEXT && region[u] != NO_NEXT
+            && region[v] != region[u]) {
+          boundary.add(a);
+        }
+      }
+    }
+    Collections.sort(boundary, new Comparator<Integer>() {
+      public int compare(Integer arc1, Integer arc2) {
+        long weight1 = (long) distance[arcFrom[arc1]] + weights.get(arc1)
+            + distance[targets.get(arc1)];
+        long weight2 = (long) distance[arcFrom[arc2]] + weights.get(arc2)
+            + distance[targets.get(arc2)];
+        return (weight1 < weight2) ? -1 : ((weight1 == weight2) ? 0 : 1);
+      }
+    });
+
+    int component[] = new int[inputNodes.size()];
+    for (int i = 0; i < component.length; i++) {
+      component[i] = i;
+    }
+    int joined = 1;
+    for (int arc : boundary) {
+      int v = arcFrom[arc];
+      int u = targets.get(arc);
+      int region1 = root(component, region[v]);
+      int region2 = root(component, region[u]);
+      if (region1 == region2) {
+        continue;
+      }
+      component[region1] = region2;
+      joined++;
+
+      // 3. the Path through this arc, back to both input Nodes
+      treeEdges.add(g.edge(v, u));
+      for (int back = v; from[back] != NO_NEXT; back = from[back]) {
+        treeEdges.add(g.edge(from[back], back));
+      }
+      for (int back = u; from[back] != NO_NEXT; back = from[back]) {
+        treeEdges.add(g.edge(from[back], back));
+      }
+    }
+
+    // the input Nodes could not all be joined up
+    if (joined < distinctNodes(inputNodes)) {
+      treeEdges.clear();
+    }
+    return new SteinerTree(g, inputNodes, treeEdges);
+  }
+
+  /**
+   * distinctNodes
+   *
+   * @param nodes
+   *            a list of Nodes
+   *
+   * @return the number of different Nodes in the list
+   */
+  private static int distinctNodes(ArrayList<Node> nodes) {
+    HashSet<Integer> ordinals = new HashSet<Integer>();
+    for (Node node : nodes) {
+      ordinals.add(node.ordinal());
+    }
+    return ordinals.size();
+  }
+
+  /**
+   * root
+   *
+   * Finds the component a Node belongs to in a union-find forest, halving
+   * the Path to the root as it goes
+   *
+   * @param component
+   *            the parent of each Node (by ordinal) in the forest
+   *
+   * @param v
+   *            the ordinal of the Node
+   *
+   * @return the ordinal of the root Node of its component
+   */
+  static int root(int component[], int v) {
+    while (component[v] != v) {
+      component[v] = component[component[v]];
+      v = component[v];
+    }
+    return v;
+  }
+
+  /**
+   * minSpanningForest
+   *
+   * Returns a minimum spanning forest of a Graph - a minimum spanning tree
+   * of every connected piece of the Graph (see SpanningForest) - using a
+   * specified engine. All the engines give the same total weight (when
+   * several Edges weigh the same, they may pick different ones).
+   *
+   * @param g
+   *            the specified Graph
+   *
+   * @param engine
+   *            the SpanningEngine to use
+   *
+   * @return the SpanningForest
+   */
+  public static SpanningForest minSpanningForest(Graph g, SpanningEngine engine) {
+    return minSpanningForest(g.freeze(), engine);
+  }
+
+  /**
+   * minSpanningForest
+   *
+   * Returns a minimum spanning forest of a FrozenGraph using a specified
+   * engine (see minSpanningForest of a Graph).
+   *
+   * @param g
+   *            the specified FrozenGraph
+   *
+   * @param engine
+   *            the SpanningEngine to use
+   *
+   * @return the SpanningForest
+   */
+  public static SpanningForest minSpanningForest(FrozenGraph g, SpanningEngine engine) {
+    if (engine == SpanningEngine.PRIM) {
+      return primForest(g);
+    } else if (engine == SpanningEngine.BORUVKA) {
+      return boruvkaForest(g);
+    }
+    return kruskalForest(g);
+  }
+
+  /**
+   * kruskalForest
+   *
+   * Returns a minimum spanning forest of a Graph using Kruskal's algorithm -
+   * take the Edges from lightest to heaviest, and keep every Edge that joins
+   * two Nodes that are not yet connected (which a union-find forest over the
+   * Node ordinals, see root, tells us). The Edges are sorted as primitive
+   * longs (the weight in the high half, the Edge index in the low half), so
+   * Edges of equal weight are taken in a fixed order.
+   *
+   * That is O(m log m) time for m Edges.
+   *
+   * @param g
+   *            the specified Graph
+   *
+   * @return the SpanningForest
+   */
+  public static SpanningForest kruskalForest(Graph g) {
+    return kruskalForest(g.freeze());
+  }
+
+  /**
+   * kruskalForest
+   *
+   * Returns a minimum spanning forest of a FrozenGraph (see kruskalForest of
+   * a Graph).
+   *
+   * @param g
+   *            the specified FrozenGraph
+   *
+   * @return the SpanningForest
+   */
+  public static SpanningForest kruskalForest(FrozenGraph g) {
+    int numNodes = g.numNodes();
+    int edges[][] = undirectedEdges(g);
+    int from[] = edges[0];
+    int to[] = edges[1];
+    int weights[] = edges[2];
+
+    long order[] = new long[weights.length];
+    for (int i = 0; i < weights.length; i++) {
+      order[i] = ((long) weights[i] << 32) | i;
+    }
+    Arrays.sort(order);
+
+    int component[] = new int[numNodes];
+    for (int v = 0; v < numNodes; v++) {
+      component[v] = v;
+    }
+    int forest[][] = new int[3][Math.max(numNodes - 1, 0)];
+    int numEdges = 0;
+    for (long key : order) {
+      int i = (int) key;
+      int root1 = root(component, from[i]);
+      int root2 = root(component, to[i]);
+      if (root1 != root2) {
+        component[root1] = root2;
+        numEdges = addForestEdge(forest, numEdges, from[i], to[i], weights[i]);
+      }
+    }
+
+    return spanningForest(forest, numEdges, numNodes);
+  }
+
+  /**
+   * primForest
+   *
+   * Returns a minimum spanning forest of a Graph using Prim's algorithm -
+   * grow a tree out from a Node, always adding the lightest Edge that leads
+   * to a Node not yet in the tree (the NodeHeap holds, for every Node next
+   * to the tree, the weight of the lightest Edge that leads to it) - and
+   * when the tree cannot grow any more, start a new one from the next Node
+   * that is not in any tree yet.
+   *
+   * That is O(m log n) time for n Nodes and m Edges.
+   *
+   * @param g
+   *            the specified Graph
+   *
+   * @return the SpanningForest
+   */
+  public static SpanningForest primForest(Graph g) {
+    return primForest(g.freeze());
+  }
+
+  /**
+   * primForest
+   *
+   * Returns a minimum spanning forest of a FrozenGraph (see primForest of a
+   * Graph).
+   *
+   * @param g
+   *            the specified FrozenGraph
+   *
+   * @return the SpanningForest
+   */
+  public static SpanningForest primForest(FrozenGraph g) {
+    int numNodes = g.numNodes();
+    IntBuffer offsets = g.offsets();
+    IntBuffer targets = g.targets();
+    IntBuffer weights = g.weights();
+    int lightest[] = new int[numNodes];
+    int parent[] = new int[numNodes];
+    boolean inTree[] = new boolean[numNodes];
+    Arrays.fill(lightest, INFINITY);
+    Arrays.fill(parent, NO_NEXT);
+
+    NodeHeap heap = new NodeHeap(numNodes);
+    int forest[][] = new int[3][Math.max(numNodes - 1, 0)];
+    int numEdges = 0;
+    for (int start = 0; start < numNodes; start++) {
+      if (inTree[start]) {
+        continue;
+      }
+      lightest[start] = 0;
+      heap.push(start, 0);
+      while (!heap.isEmpty()) {
+        int curr = heap.pop();
+        inTree[curr] = true;
+        if (parent[curr] != NO_NEXT) {
+          numEdges = addForestEdge(forest, numEdges, parent[curr], curr, lightest[curr]);
+        }
+        for (int a = offsets.get(curr); a < offsets.get(curr + 1); a++) {
+          int to = targets.get(a);
+          if (!inTree[to] && weights.get(a) < lightest[to]) {
+            lightest[to] = weights.get(a);
+            parent[to] = curr;
+            heap.push(to, weights.get(a));
+          }
+        }
+      }
+    }
+
+    return spanningForest(forest, numEdges, numNodes);
+  }
+
+  /**
+   * boruvkaForest
+   *
+   * Returns a minimum spanning forest of a Graph using Boruvka's algorithm -
+   * in every round, find the lightest Edge leaving each tree of the forest
+   * so far (every Node starts out as a tree of its own), and add them all,
+   * joining the trees - until no tree has an Edge leaving it. Edges of equal
+   * weight are told apart by their index, so the lightest Edges can never
+   * form a cycle.
+   *
+   * Every round at least halves the number of trees, so that is O(m log n)
+   * time for n Nodes and m Edges.
+   *
+   * @param g
+   *            the specified Graph
+   *
+   * @return the SpanningForest
+   */
+  public static SpanningForest boruvkaForest(Graph g) {
+    return boruvkaForest(g.freeze());
+  }
+
+  /**
+   * boruvkaForest
+   *
+   * Returns a minimum spanning forest of a FrozenGraph (see boruvkaForest of
+   * a Graph).
+   *
+   * @param g
+   *            the specified FrozenGraph
+   *
+   * @return the SpanningForest
+   */
+  public static SpanningForest boruvkaForest(FrozenGraph g) {
+    int numNodes = g.numNodes();
+    int edges[][] = undirectedEdges(g);
+    int from[] = edges[0];
+    int to[] = edges[1];
+    int weights[] = edges[2];
+
+    int component[] = new int[numNodes];
+    for (int v = 0; v < numNodes; v++) {
+      component[v] = v;
+    }
+    int lightest[] = new int[numNodes];
+    int forest[][] = new int[3][Math.max(numNodes - 1, 0)];
+    int numEdges = 0;
+    boolean joined = true;
+    while (joined) {
+      // find the lightest Edge leaving each tree (by its root Node)
+      Arrays.fill(lightest, NO_NEXT);
+      for (int i = 0; i < weights.length; i++) {
+        int root1 = root(component, from[i]);
+        int root2 = root(component, to[i]);
+        if (root1 != root2) {
+          if (isLighter(weights, i, lightest[root1])) {
+            lightest[root1] = i;
+          }
+          if (isLighter(weights, i, lightest[root2])) {
+            lightest[root2] = i;
+          }
+        }
+      }
+
+      // and add them (two trees may have picked the same Edge)
+      joined = false;
+      for (int v = 0; v < numNodes; v++) {
+        int i = lightest[v];
+        if (i == NO_NEXT) {
+          continue;
+        }
+        int root1 = root(component, from[i]);
+        int root2 = root(component, to[i]);
+        if (root1 != root2) {
+          component[root1] = root2;
+          numEdges = addForestEdge(forest, numEdges, from[i], to[i], weights[i]);
+          joined = true;
+        }
+      }
+    }
+
+    return spanningForest(forest, numEdges, numNodes);
+  }
+
+  /**
+   * parallelBoruvkaForest
+   *
+   * Returns a minimum spanning forest of a Graph using Boruvka's algorithm
+   * on many threads at once (see ParallelBoruvka) - the same forest
+   * kruskalForest finds.
+   *
+   * @param g
+   *            the specified Graph
+   *
+   * @param executor
+   *            the Executor to run on, or null to run on the calling thread
+   *
+   * @return the SpanningForest
+   */
+  public static SpanningForest parallelBoruvkaForest(Graph g, Executor executor) {
+    return parallelBoruvkaForest(g.freeze(), executor);
+  }
+
+  /**
+   * parallelBoruvkaForest
+   *
+   * Returns a minimum spanning forest of a FrozenGraph using Boruvka's
+   * algorithm on several threads at once (see parallelBoruvkaForest of a
+   * Graph).
+   *
+   * @param g
+   *            the specified FrozenGraph
+   *
+   * @param executor
+   *            the Executor to run on, or null to run on the calling thread
+   *
+   * @return the SpanningForest
+   */
+  public static SpanningForest parallelBoruvkaForest(FrozenGraph g, Executor executor) {
+    int edges[][] = undirectedEdges(g);
+    return parallelBoruvkaForest(g.numNodes(), edges[0], edges[1], edges[2], executor);
+  }
+
+  /**
+   * parallelBoruvkaForest
+   *
+   * Returns a minimum spanning forest of a set of Edges given as primitive
+   * arrays, using Boruvka's algorithm on many threads at once (see
+   * ParallelBoruvka) - for Edge sets too big to build a Graph of. Edges of
+   * equal weight are told apart by their index.
+   *
+   * @param numNodes
+   *            the number of Nodes (the Edges refer to them by ordinal)
+   *
+   * @param from
+   *            the ordinal of one end of each Edge
+   *
+   * @param to
+   *            the ordinal of the other end of each Edge
+   *
+   * @param weights
+   *            the weight of each Edge
+   *
+   * @param executor
+   *            the Executor to run on, or null to run on the calling thread
+   *
+   * @return the SpanningForest
+   */
+  public static SpanningForest parallelBoruvkaForest(int numNodes, int from[], int to[],
+      int weights[], Executor executor) {
+    if (from.length != weights.length || to.length != weights.length) {
+      throw new IllegalArgumentException("from, to and weights must be the same length");
+    }
+    return new ParallelBoruvka(numNodes, from, to, weights, executor,
+        Runtime.getRuntime().availableProcessors()).run();
+  }
+
+  /**
+   * isLighter
+   *
+   * @param weights
+   *            the weight of every Edge
+   *
+   * @param i
+   *            the index of an Edge
+   *
+   * @param j
+   *            the index of another Edge, or NO_NEXT for none
+   *
+   * @return true if Edge i weighs less than Edge j (or the same, with a
+   *         smaller index), or there is no Edge j
+   */
+  static boolean isLighter(int weights[], int i, int j) {
+    return j == NO_NEXT || weights[i] < weights[j]
+        || (weights[i] == weights[j] && i < j);
+  }
+
+  /**
+   * undirectedEdges
+   *
+   * Gets every Edge of a FrozenGraph once (the FrozenGraph keeps each Edge
+   * as an arc in both directions), as primitive arrays
+   *
+   * @param g
+   *            the specified FrozenGraph
+   *
+   * @return the ordinal of one end of each Edge, the ordinal of the other
+   *         end, and the weight - in that order
+   */
+  static int[][] undirectedEdges(FrozenGraph g) {
+    IntBuffer offsets = g.offsets();
+    IntBuffer targets = g.targets();
+    IntBuffer weights = g.weights();
+    int numEdges = 0;
+    for (int v = 0; v < g.numNodes(); v++) {
+      for (int a = offsets.get(v); a < offsets.get(v + 1); a++) {
+        if (v < targets.get(a)) {
+          numEdges++;
+        }
+      }
+    }
+
+    int edges[][] = new int[3][numEdges];
+    int i = 0;
+    for (int v = 0; v < g.numNodes(); v++) {
+      for (int a = offsets.get(v); a < offsets.get(v + 1); a++) {
+        if (v < targets.get(a)) {
+          edges[0][i] = v;
+          edges[1][i] = targets.get(a);
+          edges[2][i] = weights.get(a);
+          i++;
+        }
+      }
+    }
+    return edges;
+  }
+
+  /**
+   * addForestEdge
+   *
+   * @param forest
+   *            the "from", "to" and weight arrays of a forest being built
+   *
+   * @param numEdges
+   *            the number of Edges in the forest so far
+   *
+   * @param from
+   *            the ordinal of one end of the Edge to add
+   *
+   * @param to
+   *            the ordinal of the other end of the Edge to add
+   *
+   * @param weight
+   *            the weight of the Edge to add
+   *
+   * @return the new number of Edges in the forest
+   */
+  private static int addForestEdge(int forest[][], int numEdges, int from, int to, int weight) {
+    forest[0][numEdges] = from;
+    forest[1][numEdges] = to;
+    forest[2][numEdges] = weight;
+    return numEdges + 1;
+  }
+
+  /**
+   * spanningForest
+   *
+   * @param forest
+   *            the "from", "to" and weight arrays of a finished forest
+   *
+   * @param numEdges
+   *            the number of Edges in the forest
+   *
+   * @param numNodes
+   *            the number of Nodes in the Graph
+   *
+   * @return the SpanningForest (a forest of n Nodes and e Edges has n - e
+   *         trees)
+   */
+  private static SpanningForest spanningForest(int forest[][], int numEdges, int numNodes) {
+    return new SpanningForest(Arrays.copyOf(forest[0], numEdges),
+        Arrays.copyOf(forest[1], numEdges), Arrays.copyOf(forest[2], numEdges),
+        numNodes - numEdges);
+  }
+
+  /**
+   * getInputNodePaths
+   *
+   * Same as getInputNodePaths(g, inputNodes, null) - i.e., every search
+   * runs on the calling thread.
+   *
+   * @param g
+   *            the specified Graph that will be searched
+   *
+   * @param inputNodes
+   *            the specified list of input Nodes to search for
+   *
+   * @return a vector of vector of input Node Paths for a Graph with a
+   *         specified list of input Nodes
+   */
+  public static Vector<Vector<Path>> getInputNodePaths(Graph g, ArrayList<Node> inputNodes) {
+    return getInputNodePaths(g, inputNodes, null);
+  }
+
+  /**
+   * getInputNodePaths
+   *
+   * This method is the heart of the key logic needed to efficiently determine
+   * the best set of minimum (shortest or least costly) Paths needed to fully
+   * connect a list of input Nodes.
+   *
+   * The basic approach in this algorithm is to iterate through all the input
+   * Nodes - and for each input Node, run ONE shortest path search (Dijkstra's
+   * algorithm, see shortestPathTree) that finds the shortest distance from
+   * that input Node to every other Node in the Graph. The resulting
+   * ShortestPathTree is then asked for all the shortest Paths to each of the
+   * REST of the input Nodes - when there is more than one shortest Path for a
+   * given pair of source and destination Nodes (i.e., "alternate" Paths of
+   * equal weight), all of them are returned, in the same order the original
+   * exhaustive depth-first search used to find them.
+   *
+   * If the Graph has its all-pairs shortest path index enabled (see
+   * Graph.setAllPairsIndexEnabled), no search is run at all - the Paths for
+   * every pair of input Nodes are read back out of that index instead. If
+   * the Graph keeps a contraction hierarchy or landmarks (see
+   * Graph.setContractionHierarchyEnabled and Graph.setLandmarkCount), each
+   * pair of input Nodes is queried on its own (see shortestPaths). And if
+   * there are only TWO input Nodes, there is only one pair to search for, so
+   * a bidirectional search (again, see shortestPaths) is used instead of a
+   * full shortest path tree.
+   *
+   * The work for each source input Node only reads the Graph, so if an
+   * Executor is specified, the input Nodes are handed to it as separate tasks
+   * that run concurrently - the results are still collected in input Node
+   * order, so they are exactly the same as when everything runs on the
+   * calling thread.
+   *
+   * The vector of best Paths for each pair of input Nodes is added to the
+   * final "allPaths", which is that ultimate total list of all the best Paths
+   * for every input Node to every other input Node. The caller of this method
+   * will then use that final set of "allPaths" to find the MINIMUM set of
+   * Paths that are needed to fully connect all the input Nodes to one
+   * another.
+   *
+   * @param g
+   *            the specified Graph that will be searched
+   *
+   * @param inputNodes
+   *            the specified list of input Nodes to search for
+   *
+   * @param executor
+   *            the Executor to run the search for each source input Node on,
+   *            or null to run them all on the calling thread
+   *
+   * @return a vector of vector of input Node Paths for a Graph with a
+   *         specified list of input Nodes
+   */
+  public static Vector<Vector<Path>> getInputNodePaths(Graph g,
+      ArrayList<Node> inputNodes, Executor executor) {
+    // create an initial empty vector of vector of all Paths to be returned
+    Vector<Vector<Path>> allPaths = new Vector<Vector<Path>>();
+    for (ShortestPathDag dag : getInputNodeDags(g, inputNodes, executor)) {
+      allPaths.add(dag.paths());
+    }
+    return allPaths;
+  }
+
+  /**
+   * getInputNodeDags
+   *
+   * Same as getInputNodePaths, except that the shortest Paths for each pair
+   * of input Nodes are returned as a ShortestPathDag - the Paths themselves
+   * are only built when the DAG is iterated over, so a pair of input Nodes
+   * with a huge number of "alternate" Paths costs no more to search for than
+   * one with a single Path.
+   *
+   * @param g
+   *            the specified Graph that will be searched
+   *
+   * @param inputNodes
+   *            the specified list of input Nodes to search for
+   *
+   * @param executor
+   *            the Executor to run the search for each source input Node on,
+   *            or null to run them all on the calling thread
+   *
+   * @return a vector of ShortestPathDags, one for each pair of input Nodes
+   */
+  public static Vector<ShortestPathDag> getInputNodeDags(Graph g,
+      ArrayList<Node> inputNodes, Executor executor) {
+    return getInputNodeDags(g, null, inputNodes, executor);
+  }
+
+  /**
+   * getInputNodeDags
+   *
+   * Same as getInputNodeDags of a Graph, for a FrozenGraph - which keeps no
+   * indexes, so every input Node but the last is searched from (or, if
+   * there are only two input Nodes, the one pair is found by a
+   * bidirectional search).
+   *
+   * @param g
+   *            the specified FrozenGraph that will be searched
+   *
+   * @param inputNodes
+   *            the specified list of input Nodes to search for
+   *
+   * @param executor
+   *            the Executor to run the search for each source input Node on,
+   *            or null to run them all on the calling thread
+   *
+   * @return a vector of ShortestPathDags, one for each pair of input Nodes
+   */
+  public static Vector<ShortestPathDag> getInputNodeDags(FrozenGraph g,
+      ArrayList<Node> inputNodes, Executor executor) {
+    return getInputNodeDags(null, g, inputNodes, executor);
+  }
+
+  /**
+   * getInputNodeDags
+   *
+   * The work of getInputNodeDags, for either a Graph or a FrozenGraph.
+   *
+   * @param g
+   *            the specified Graph that will be searched, or null
+   *
+   * @param frozen
+   *            the specified FrozenGraph that will be searched, if there is
+   *            no Graph
+   *
+   * @param inputNodes
+   *            the specified list of input Nodes to search for
+   *
+   * @param executor
+   *            the Executor to run the search for each source input Node on,
+   *            or null to run them all on the calling thread
+   *
+   * @return a vector of ShortestPathDags, one for each pair of input Nodes
+   */
+  private static Vector<ShortestPathDag> getInputNodeDags(final Graph g,
+      final FrozenGraph frozen, final ArrayList<Node> inputNodes, Executor executor) {
+    // create an initial empty vector of all DAGs to be returned
+    Vector<ShortestPathDag> allDags = new Vector<ShortestPathDag>();
+
+    // the key processing loop for all the input Nodes - this
+    // will be one shortest path search per input Node, and
+    // a O(n^2) number of DAGs that we collect, in total...
+    //
+    // as a small example, if the input Nodes are this:
+    //     a
+    //     b
+    //     c
+    //     d
+    // then, we would be searching from a, b and c, and
+    // collecting all these Paths:
+    //     a -> b
+    //     a -> c
+    //     a -> d
+    //     b -> c
+    //     b -> d
+    //     c -> d
+    // note that for each of the above Paths, it is quite
+    // possible that other Nodes (that are NOT input Nodes)
+    // will be part of each best Path that is discovered
+    if (executor == null || inputNodes.size() <= 2) {
+      for (int i = 0; i < inputNodes.size() - 1; i++) {
+        allDags.addAll(getSourceNodeDags(g, frozen, inputNodes, i));
+      }
+      return allDags;
+    }
+
+    // hand each source input Node to the Executor, then collect the
+    // results in input Node order
+    ArrayList<FutureTask<Vector<ShortestPathDag>>> tasks =
+        new ArrayList<FutureTask<Vector<ShortestPathDag>>>();
+    for (int i = 0; i < inputNodes.size() - 1; i++) {
+      final int source = i;
+      FutureTask<Vector<ShortestPathDag>> task = new FutureTask<Vector<ShortestPathDag>>(
+          new Callable<Vector<ShortestPathDag>>() {
+            public Vector<ShortestPathDag> call() {
+              return getSourceNodeDags(g, frozen, inputNodes, source);
+            }
+          });
+      tasks.add(task);
+      executor.execute(task);
+    }
+    for (FutureTask<Vector<ShortestPathDag>> task : tasks) {
+      allDags.addAll(await(task));
+    }
+
+    // finally! we now have ALL the possible shortest Paths for every input
+    // Node to every other input Node - so let's return them to the
+    // caller...
+    return allDags;
+  }
+
+  /**
+   * getSourceNodeDags
+   *
+   * Returns the ShortestPathDags of best Paths from ONE source input Node to
+   * each of the input Nodes that follow it in the list, searching the Graph
+   * (or the FrozenGraph) in whichever way getInputNodePaths describes.
+   *
+   * @param g
+   *            the specified Graph that will be searched, or null
+   *
+   * @param frozen
+   *            the specified FrozenGraph that will be searched, if there is
+   *            no Graph
+   *
+   * @param inputNodes
+   *            the specified list of input Nodes to search for
+   *
+   * @param i
+   *            the index of the source input Node in the list
+   *
+   * @return a vector of ShortestPathDags, one for each later input Node
+   */
+  static Vector<ShortestPathDag> getSourceNodeDags(Graph g, FrozenGraph frozen,
+      ArrayList<Node> inputNodes, int i) {
+    Vector<ShortestPathDag> sourceDags = new Vector<ShortestPathDag>();
+    Node src = inputNodes.get(i);
+
+    if (g != null && g.isAllPairsIndexEnabled()) {
+      // the Graph keeps an all-pairs shortest path index, so there is
+      // nothing to search - just read every pair's Paths back out of it
+      AllPairsIndex index = g.allPairsIndex();
+      for (int j = i + 1; j < inputNodes.size(); j++) {
+        sourceDags.add(index.dag(src, inputNodes.get(j)));
+      }
+    } else if (g != null && (g.isContractionHierarchyEnabled() || g.landmarkCount() > 0)) {
+      // the Graph keeps an index that makes pair queries cheap, so query
+      // each pair of input Nodes on its own
+      for (int j = i + 1; j < inputNodes.size(); j++) {
+        sourceDags.add(shortestPathDag(g, src, inputNodes.get(j)));
+      }
+    } else {
+      FrozenGraph searched = (g != null) ? g.freeze() : frozen;
+      if (inputNodes.size() == 2) {
+        // there is only one pair, so a bidirectional search will do
+        sourceDags.add(shortestPathDag(searched, src, inputNodes.get(i + 1)));
+      } else {
+        // for this input Node, collect all the best Paths to all
+        // the REST of the input Nodes from its shortest path tree
+        ShortestPathTree tree = shortestPathTree(searched, src);
+        for (int j = i + 1; j < inputNodes.size(); j++) {
+          sourceDags.add(tree.dagTo(inputNodes.get(j)));
+        }
+      }
+    }
+
+    return sourceDags;
+  }
+
+  /**
+   * await
+   *
+   * Waits for a task handed to an Executor to finish and returns its result
+   * - if the task failed, its exception is rethrown on the calling thread.
+   * A task that no thread of the Executor has started yet is run on the
+   * calling thread instead (running a FutureTask that has already started
+   * does nothing), so waiting never depends on the Executor having a free
+   * thread - even when every one of its threads is itself waiting, or the
+   * Executor has no threads to spare for the caller at all.
+   *
+   * @param task
+   *            the task to wait for
+   *
+   * @return the result of the task
+   */
+  static <T> T await(FutureTask<T> task) {
+    task.run();
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while waiting for a search", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * shortestPathTree
+   *
+   * Runs Dijkstra's algorithm from a source Node to find the shortest
+   * distance from that source Node to every Node in a Graph. The tentative
+   * distances live in an int array indexed by Node ordinal, and the Nodes
+   * still to be settled live in a NodeQueue of Node ordinals (see
+   * nodeQueue), so no Path objects are created during the search itself.
+   *
+   * @param g
+   *            the specified Graph that will be searched
+   *
+   * @param src
+   *            the source Node of the search
+   *
+   * @return the ShortestPathTree for the source Node
+   */
+  public static ShortestPathTree shortestPathTree(Graph g, Node src) {
+    FrozenGraph frozen = g.freeze();
+    NodeQueue queue = nodeQueue(frozen, frozen.numNodes());
+    return new ShortestPathTree(g, src, shortestDistances(frozen, queue, src.ordinal()));
+  }
+
+  /**
+   * shortestPathTree
+   *
+   * Runs Dijkstra's algorithm from a source Node to find the shortest
+   * distance from that source Node to every Node in a FrozenGraph (see
+   * shortestPathTree of a Graph).
+   *
+   * @param g
+   *            the specified FrozenGraph that will be searched
+   *
+   * @param src
+   *            the source Node of the search
+   *
+   * @return the ShortestPathTree for the source Node
+   */
+  public static ShortestPathTree shortestPathTree(FrozenGraph g, Node src) {
+    NodeQueue queue = nodeQueue(g, g.numNodes());
+    return new ShortestPathTree(g, src, shortestDistances(g, queue, src.ordinal()));
+  }
+
+  /**
+   * shortestPaths
+   *
+   * Returns ALL the shortest Paths between a source Node and a destination
+   * Node (i.e., including any "alternate" Paths of equal weight, in the same
+   * order as ShortestPathTree.pathsTo) - see shortestPathDag.
+   *
+   * @param g
+   *            the specified Graph that will be searched
+   *
+   * @param src
+   *            the source Node
+   *
+   * @param dst
+   *            the destination Node
+   *
+   * @return the vector of shortest Paths (empty if the destination Node
+   *         cannot be reached from the source Node)
+   */
+  public static Vector<Path> shortestPaths(Graph g, Node src, Node dst) {
+    return shortestPathDag(g, src, dst).paths();
+  }
+
+  /**
+   * shortestPaths
+   *
+   * Returns ALL the shortest Paths between a source Node and a destination
+   * Node of a FrozenGraph - see shortestPathDag of a FrozenGraph.
+   *
+   * @param g
+   *            the specified FrozenGraph that will be searched
+   *
+   * @param src
+   *            the source Node
+   *
+   * @param dst
+   *            the destination Node
+   *
+   * @return the vector of shortest Paths (empty if the destination Node
+   *         cannot be reached from the source Node)
+   */
+  public static Vector<Path> shortestPaths(FrozenGraph g, Node src, Node dst) {
+    return shortestPathDag(g, src, dst).paths();
+  }
+
+  /**
+   * shortestPathDag
+   *
+   * Returns the ShortestPathDag of ALL the shortest Paths between a source
+   * Node and a destination Node. If the Graph keeps a contraction hierarchy
+   * (see Graph.setContractionHierarchyEnabled), the DAG is read from the
+   * hierarchy. Otherwise, if the Graph keeps landmarks (see
+   * Graph.setLandmarkCount), this is an A* search guided by the landmarks
+   * (see landmarkDag) - and otherwise, it is a bidirectional Dijkstra search
+   * (see bidirectionalDag).
+   *
+   * @param g
+   *            the specified Graph that will be searched
+   *
+   * @param src
+   *            the source Node
+   *
+   * @param dst
+   *            the destination Node
+   *
+   * @return the ShortestPathDag (empty if the destination Node cannot be
+   *         reached from the source Node)
+   */
+  public static ShortestPathDag shortestPathDag(Graph g, Node src, Node dst) {
+    ContractionHierarchy hierarchy = g.contractionHierarchy();
+    if (hierarchy != null) {
+      return hierarchy.dag(src, dst);
+    }
+
+    LandmarkIndex landmarks = g.landmarkIndex();
+    if (landmarks != null) {
+      return landmarkDag(g.freeze(), landmarks, src, dst);
+    }
+    return bidirectionalDag(g.freeze(), src, dst);
+  }
+
+  /**
+   * shortestPathDag
+   *
+   * Returns the ShortestPathDag of ALL the shortest Paths between a source
+   * Node and a destination Node of a FrozenGraph, using a bidirectional
+   * Dijkstra search (see bidirectionalDag). A FrozenGraph keeps no indexes
+   * of its own.
+   *
+   * @param g
+   *            the specified FrozenGraph that will be searched
+   *
+   * @param src
+   *            the source Node
+   *
+   * @param dst
+   *            the destination Node
+   *
+   * @return the ShortestPathDag (empty if the destination Node cannot be
+   *         reached from the source Node)
+   */
+  public static ShortestPathDag shortestPathDag(FrozenGraph g, Node src, Node dst) {
+    return bidirectionalDag(g, src, dst);
+  }
+
+  /**
+   * landmarkDag
+   *
+   * Returns the ShortestPathDag of ALL the shortest Paths between a source
+   * Node and a destination Node using an A* search - a Dijkstra search from
+   * the source Node whose heap is keyed by the distance from the source
+   * Node PLUS the landmark lower bound on the remaining distance to the
+   * destination Node, so the search heads towards the destination Node
+   * instead of growing evenly in every direction.
+   *
+   * The landmark lower bound never overestimates (and never drops by more
+   * than the weight of an Edge from one Node to the next), so a Node's
+   * distance is final when it is popped, just like plain Dijkstra. Every
+   * Node on a shortest Path has a key no greater than the shortest distance
+   * itself - so we keep popping until the smallest key is GREATER than that
+   * distance, at which point every Node on a shortest Path has been settled,
+   * and the ShortestPathTree can build the ShortestPathDag.
+   *
+   * @param g
+   *            the specified Graph that will be searched
+   *
+   * @param landmarks
+   *            the LandmarkIndex of the Graph
+   *
+   * @param src
+   *            the source Node
+   *
+   * @param dst
+   *            the destination Node
+   *
+   * @return the ShortestPathDag (empty if the destination Node cannot be
+   *         reached from the source Node)
+   */
+  static ShortestPathDag landmarkDag(FrozenGraph g, LandmarkIndex landmarks, Node src, Node dst) {
+    int numNodes = g.numNodes();
+    IntBuffer offsets = g.offsets();
+    IntBuffer targets = g.targets();
+    IntBuffer weights = g.weights();
+    int distance[] = new int[numNodes];
+    boolean settled[] = new boolean[numNodes];
+    Arrays.fill(distance, INFINITY);
+
+    // the A* keys can grow by up to twice an Edge weight from one Node to
+    // the next, so this search always uses a NodeHeap
+    int d = dst.ordinal();
+    NodeHeap heap = new NodeHeap(numNodes);
+    distance[src.ordinal()] = 0;
+    heap.push(src.ordinal(), landmarks.lowerBound(src.ordinal(), d));
+
+    while (!heap.isEmpty()
+        && (distance[d] == INFINITY || heap.peekKey() <= distance[d])) {
+      int curr = heap.pop();
+      settled[curr] = true;
+      int currDistance = distance[curr];
+      for (int a = offsets.get(curr); a < offsets.get(curr + 1); a++) {
+        int to = targets.get(a);
+        int toDistance = currDistance + weights.get(a);
+        if (toDistance < distance[to]) {
+          distance[to] = toDistance;
+          heap.push(to, toDistance + landmarks.lowerBound(to, d));
+        }
+      }
+    }
+
+    // only the settled Nodes have final distances (and they include every
+    // Node on a shortest Path) - forget the tentative ones
+    for (int i = 0; i < numNodes; i++) {
+      if (!settled[i]) {
+        distance[i] = INFINITY;
+      }
+    }
+
+    return new ShortestPathTree(g, src, distance).dagTo(dst);
+  }
+
+  /**
+   * bidirectionalDag
+   *
+   * Returns the ShortestPathDag of ALL the shortest Paths between a source
+   * Node and a destination Node, using a bidirectional Dijkstra search
+   * - one search grows forwards from the source Node, the other grows
+   * backwards from the destination Node, and we stop as soon as the two
+   * frontiers have met, rather than searching the whole Graph from one side.
+   *
+   * Each step expands whichever side has the closer frontier. Every time an
+   * Edge reaches a Node that the other side has already reached, we have a
+   * candidate Path through that Node, and we keep the best candidate weight
+   * ("best"). Once the two frontier distances add up to MORE than "best", no
+   * better (or equally good) Path can be found, and we stop - at that point,
+   * every Node on a shortest Path has been settled by at least one of the
+   * two searches. So, for every settled Node, we know how far it is from the
+   * source Node - exactly, if the forward search settled it, or as "best"
+   * minus its distance to the destination Node, if only the backward search
+   * settled it (which is exact for every Node that lies on a shortest Path,
+   * and an underestimate for any other Node) - which is all the
+   * ShortestPathTree needs to build the ShortestPathDag.
+   *
+   * @param g
+   *            the specified Graph that will be searched
+   *
+   * @param src
+   *            the source Node
+   *
+   * @param dst
+   *            the destination Node
+   *
+   * @return the ShortestPathDag (empty if the destination Node cannot be
+   *         reached from the source Node)
+   */
+  static ShortestPathDag bidirectionalDag(FrozenGraph g, Node src, Node dst) {
+    int numNodes = g.numNodes();
+    IntBuffer offsets = g.offsets();
+    IntBuffer targets = g.targets();
+    IntBuffer weights = g.weights();
+    int fwdDistance[] = new int[numNodes];
+    int bwdDistance[] = new int[numNodes];
+    boolean fwdSettled[] = new boolean[numNodes];
+    boolean bwdSettled[] = new boolean[numNodes];
+    Arrays.fill(fwdDistance, INFINITY);
+    Arrays.fill(bwdDistance, INFINITY);
+
+    NodeQueue fwdHeap = nodeQueue(g, numNodes);
+    NodeQueue bwdHeap = nodeQueue(g, numNodes);
+    fwdDistance[src.ordinal()] = 0;
+    bwdDistance[dst.ordinal()] = 0;
+    fwdHeap.push(src.ordinal(), 0);
+    bwdHeap.push(dst.ordinal(), 0);
+
+    long best = (src.ordinal() == dst.ordinal()) ? 0 : INFINITY;
+    while (!fwdHeap.isEmpty() && !bwdHeap.isEmpty()
+        && (long) fwdHeap.peekKey() + bwdHeap.peekKey() <= best) {
+      // expand the side whose frontier is closer to its own start Node
+      boolean forward = fwdHeap.peekKey() <= bwdHeap.peekKey();
+      NodeQueue heap = forward ? fwdHeap : bwdHeap;
+      int distance[] = forward ? fwdDistance : bwdDistance;
+      int otherDistance[] = forward ? bwdDistance : fwdDistance;
+      boolean settled[] = forward ? fwdSettled : bwdSettled;
+
+      int curr = heap.pop();
+      settled[curr] = true;
+      for (int a = offsets.get(curr); a < offsets.get(curr + 1); a++) {
+        int to = targets.get(a);
+        int toDistance = distance[curr] + weights.get(a);
+        if (toDistance < distance[to]) {
+          distance[to] = toDistance;
+          heap.push(to, toDistance);
+        }
+        if (otherDistance[to] != INFINITY) {
+          best = Math.min(best, (long) toDistance + otherDistance[to]);
+        }
+      }
+    }
+
+    // the frontiers have met (or one side ran out of Nodes to search) -
+    // work out the distance from the source Node of every settled Node
+    int srcDistance[] = new int[numNodes];
+    for (int i = 0; i < numNodes; i++) {
+      if (best == INFINITY) {
+        srcDistance[i] = INFINITY;
+      } else if (fwdSettled[i]) {
+        srcDistance[i] = fwdDistance[i];
+      } else if (bwdSettled[i]) {
+        srcDistance[i] = (int) best - bwdDistance[i];
+      } else {
+        srcDistance[i] = INFINITY;
+      }
+    }
+
+    return new ShortestPathTree(g, src, srcDistance).dagTo(dst);
+  }
+
+  /**
+   * nodeQueue
+   *
+   * Creates the NodeQueue for a Dijkstra search of a Graph - a BucketQueue
+   * if all the Edge weights of the Graph are small non-negative integers
+   * (no larger than BUCKET_QUEUE_MAX_WEIGHT), since it pushes and pops in
+   * constant time - otherwise, a NodeHeap.
+   *
+   * @param g
+   *            the specified Graph that will be searched
+   *
+   * @param capacity
+   *            the number of Nodes (ordinals) the NodeQueue must hold
+   *
+   * @return the NodeQueue
+   */
+  static NodeQueue nodeQueue(Graph g, int capacity) {
+    int maxWeight = g.maxEdgeWeight();
+    if (maxWeight <= BUCKET_QUEUE_MAX_WEIGHT && g.minEdgeWeight() >= 0) {
+      return new BucketQueue(capacity, maxWeight);
+    }
+    return new NodeHeap(capacity);
+  }
+
+  /**
+   * nodeQueue
+   *
+   * Creates the NodeQueue for a Dijkstra search of a FrozenGraph (see
+   * nodeQueue of a Graph).
+   *
+   * @param g
+   *            the specified FrozenGraph that will be searched
+   *
+   * @param capacity
+   *            the number of Nodes (ordinals) the NodeQueue must hold
+   *
+   * @return the NodeQueue
+   */
+  static NodeQueue nodeQueue(FrozenGraph g, int capacity) {
+    int maxWeight = g.maxWeight();
+    if (maxWeight <= BUCKET_QUEUE_MAX_WEIGHT && g.minWeight() >= 0) {
+      return new BucketQueue(capacity, maxWeight);
+    }
+    return new NodeHeap(capacity);
+  }
+
+  /**
+   * shortestDistances
+   *
+   * The Dijkstra search behind shortestPathTree, working directly on the
+   * CSR arrays of a FrozenGraph (so callers that run many searches over
+   * the same Graph only need to freeze it, and build the NodeQueue, once).
+   *
+   * @param g
+   *            the FrozenGraph of the Graph
+   *
+   * @param queue
+   *            an empty NodeQueue for the Graph (see nodeQueue) - it is
+   *            empty again when the search is done
+   *
+   * @param src
+   *            the ordinal of the source Node of the search
+   *
+   * @return the shortest distance from the source Node to every Node,
+   *         indexed by ordinal (INFINITY if not reachable)
+   */
+  static int[] shortestDistances(FrozenGraph g, NodeQueue queue, int src) {
+    return shortestDistances(g, queue, src, null);
+  }
+
+  /**
+   * shortestDistances
+   *
+   * The Dijkstra search behind shortestPathTree (see above), also noting
+   * the order in which the Nodes are settled - every Node is settled after
+   * the Node it was reached from, even over an Edge of weight 0, so
+   * stepping to a neighbour that was settled earlier always makes progress
+   * back towards the source Node.
+   *
+   * @param g
+   *            the FrozenGraph of the Graph
+   *
+   * @param queue
+   *            an empty NodeQueue for the Graph (see nodeQueue) - it is
+   *            empty again when the search is done
+   *
+   * @param src
+   *            the ordinal of the source Node of the search
+   *
+   * @param settleOrder
+   *            filled in with the position (0 for the source Node) of each
+   *            reachable Node in the order the Nodes were settled, indexed
+   *            by ordinal - or null if it is not wanted
+   *
+   * @return the shortest distance from the source Node to every Node,
+   *         indexed by ordinal (INFINITY if not reachable)
+   */
+  static int[] shortestDistances(FrozenGraph g, NodeQueue queue, int src, int settleOrder[]) {
+    IntBuffer offsets = g.offsets();
+    IntBuffer targets = g.targets();
+    IntBuffer weights = g.weights();
+    int distance[] = new int[g.numNodes()];
+    Arrays.fill(distance, INFINITY);
+
+    distance[src] = 0;
+    queue.push(src, 0);
+
+    // each Node is popped exactly once, at which point its distance is
+    // final (all Edge weights are non-negative) - so relax its Edges
+    int numSettled = 0;
+    while (!queue.isEmpty()) {
+      int curr = queue.pop();
+      if (settleOrder != null) {
+        settleOrder[curr] = numSettled++;
+      }
+      int currDistance = distance[curr];
+      for (int a = offsets.get(curr); a < offsets.get(curr + 1); a++) {
+        int to = targets.get(a);
+        int toDistance = currDistance + weights.get(a);
+        if (toDistance < distance[to]) {
+          distance[to] = toDistance;
+          queue.push(to, toDistance);
+        }
+      }
+    }
+
+    return distance;
+  }
+
+  /**
+   * allNodesInPathSet
+   *
+   * Returns whether or not an entire list of Nodes can be found in a
+   * specified vector of Path objects.
+   *
+   * @param nodes
+   *            the list of Nodes to search for
+   *
+   * @param pathSet
+   *            the vector of Path objects to search through
+   *
+   * @return true if the list of Nodes can be found in the vector of Paths;
+   *         otherwise false
+   */
+  public static boolean allNodesInPathVec(ArrayList<Node> nodes,
+      Vector<Path> pathSet) {
+    // create an array of booleans to hold a 'found' flag for
+    // each of the input Nodes
+    boolean found[] = new boolean[nodes.size()];
+
+    // now search for Node "node" in all the Paths in the specified
     // pathSet - and if we find it, then set its 'found' flag...
     for (Node node : nodes) {
       for (Path path : pathSet) {
@@ -509,4 +2481,36 @@ public abstract class GraphOperations {
     // vector of Paths...
     return pathsWeight;
   }
+
+  /**
+   * getPathsWeight
+   *
+   * Returns the total weight of all the Nodes in a vector of Paths of a
+   * FrozenGraph - the arcs are weighed by the FrozenGraph (see
+   * FrozenGraph.arcWeight), so this also weighs the Paths of a mapped
+   * GraphFile, whose Nodes have no Edges.
+   *
+   * @param g
+   *            the FrozenGraph of the Paths
+   *
+   * @param paths
+   *            the input vector of Paths to find the total weight
+   *
+   * @return the total weight of all the input Paths
+   */
+  public static int getPathsWeight(FrozenGraph g, Vector<Path> paths) {
+    HashSet<Long> arcSet = new HashSet<Long>();
+    int pathsWeight = 0;
+
+    for (Path path : paths) {
+      for (int i = 0; i < path.size() - 1; i++) {
+        int from = path.get(i).ordinal();
+        int to = path.get(i + 1).ordinal();
+        if (arcSet.add((long) from * g.numNodes() + to)) {
+          pathsWeight += g.arcWeight(from, to);
+        }
+      }
+    }
+    return pathsWeight;
+  }
 }
@@ -23,7 +23,19 @@ package graphutil;
 import java.io.*;
 import java.util.Scanner;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
 import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * GraphUnitTest class
@@ -118,10 +130,60 @@ import java.util.Vector;
  * the nodes, the list of input nodes, and the list of expected minimum paths),
  * each part terminated by the special line "done".
  *
+ * The name of the text input file is the first command line argument (the
+ * default is "graphtest.txt") - any further command line arguments are
+ * options that run every unit test in the file a different way, so the same
+ * expected minimum paths can verify each of them:
+ *
+ *      allPairsIndex   enable the all-pairs shortest path index of each Graph
+ *                      (and check the paths between the input nodes in it)
+ *      landmarks       give each Graph 4 landmarks for A* pair queries
+ *      contractionHierarchy
+ *                      enable the contraction hierarchy of each Graph
+ *      parallel        run the shortest path searches on a thread pool
+ *      builder         rebuild each Graph in bulk with a GraphBuilder
+ *                      before it is searched (or snapshot)
+ *      snapshot        search an immutable snapshot of each Graph (and check
+ *                      that it cannot be changed)
+ *      branchAndBound  skip the combinations of paths that cannot win
+ *      batch           also check that minPathsBatch finds the same paths
+ *                      as minPaths, for the input nodes and for every pair
+ *                      of input nodes next to each other
+ *      graphFile       also check that a graph written to a GraphFile
+ *                      maps back in unchanged, with shortest paths between
+ *                      input nodes next to each other of the same weight,
+ *                      and the same minPaths
+ *      nodeIndex       also check that every node can still be looked up
+ *                      after a copy of the graph gets 1000 more nodes
+ *      spanningEngines also check that every SpanningEngine (and the parallel
+ *                      Boruvka's algorithm) finds a minimum spanning forest
+ *                      as heavy as kruskalForest does
+ *      exact           connect the input nodes with an exact Steiner tree
+ *      approximate     connect the input nodes with a Steiner tree that
+ *                      weighs at most twice as much as an exact one
+ *      voronoi         the same, from a single search of the graph
+ *
+ * A few more options check a part of the graph utility on random graphs
+ * instead, and each counts as one more unit test:
+ *
+ *      dynamicForest   check a DynamicSpanningForest against kruskalForest
+ *                      through random edge changes
+ *      server          check a MinPathsServer under load from many threads,
+ *                      and that it refuses or fails the requests it must
+ *
+ * An exact Steiner tree can be cheaper than the expected minimum paths (and
+ * an equally cheap one can be made of different paths), so with the "exact"
+ * option a unit test passes when the paths found connect all the input nodes
+ * and weigh no more than the expected minimum paths (a unit test with more
+ * input nodes than an exact Steiner tree allows is run the usual way) - with
+ * the "approximate" and "voronoi" options, they may weigh twice as much.
+ *
  * @author Steve Rosen
  */
 
 public class GraphUnitTest {
+    private static HashSet<String> options = new HashSet<String>();
+    private static ExecutorService executor;
 
     /**
      * main
@@ -140,6 +202,13 @@ public class GraphUnitTest {
         	if (args.length > 0) {
         		inputFile = args[0];
         	}
+            for (int i = 1; i < args.length; i++) {
+                options.add(args[i]);
+            }
+            if (options.contains("parallel")) {
+                executor = Executors.newFixedThreadPool(
+                        Runtime.getRuntime().availableProcessors());
+            }
             Scanner fileScanner = new Scanner(new FileReader(inputFile));
 
             // process all the unit tests in this graph test input file...
@@ -160,6 +229,24 @@ public class GraphUnitTest {
                     }
                 }
             }
+
+            // the options that check a part of the graph utility on random
+            // Graphs, rather than on the Graphs of the input file, are run
+            // once each, as one more unit test
+            if (options.contains("dynamicForest")) {
+                if (checkDynamicForest(new Random(1), 2000)) {
+                    passedUnitTests++;
+                } else {
+                    failedUnitTests++;
+                }
+            }
+            if (options.contains("server")) {
+                if (checkMinPathsServer(new Random(1))) {
+                    passedUnitTests++;
+                } else {
+                    failedUnitTests++;
+                }
+            }
             
             // print out the final stats
             int totalUnitTests = passedUnitTests + failedUnitTests;
@@ -171,6 +258,10 @@ public class GraphUnitTest {
             System.out.println("==================================================");
         } catch (IOException e) {
             System.err.println("Error: " + e);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
         }
     }
 
@@ -194,6 +285,9 @@ public class GraphUnitTest {
 
         // create a new Graph object that has no Nodes and no Edges
         Graph graph = new Graph();
+        graph.setAllPairsIndexEnabled(options.contains("allPairsIndex"));
+        graph.setLandmarkCount(options.contains("landmarks") ? 4 : 0);
+        graph.setContractionHierarchyEnabled(options.contains("contractionHierarchy"));
 
         // allocate some space for our input Nodes and expected output Nodes
         ArrayList<Node> inputNodes = new ArrayList<Node>();
@@ -205,12 +299,24 @@ public class GraphUnitTest {
         getAllEdges(graph, fileScanner);
         inputNodes = getInputNodes(graph, fileScanner);
         expectedMinPaths = getExpectedMinPaths(graph, fileScanner);
+        if (options.contains("builder")) {
+            graph = rebuildGraph(graph);
+            for (int i = 0; i < inputNodes.size(); i++) {
+                inputNodes.set(i, graph.nodes().get(inputNodes.get(i).ordinal()));
+            }
+        }
+        if (options.contains("snapshot")) {
+            graph = graph.snapshot();
+            for (int i = 0; i < inputNodes.size(); i++) {
+                inputNodes.set(i, graph.nodes().get(inputNodes.get(i).ordinal()));
+            }
+        }
         
         // print input node paths
         System.out.println("");
         System.out.println("All input node paths:");
         for (Vector<Path> paths : GraphOperations.getInputNodePaths(graph,
-                inputNodes)) {
+                inputNodes, executor)) {
             for (Path path : paths) {
                 System.out.println(path);
             }
@@ -221,8 +327,27 @@ public class GraphUnitTest {
         System.out.println("");
         System.out.println("Paths used to connect all the input Nodes:");
         long time = System.currentTimeMillis();
-        Vector<Path> minPaths = GraphOperations.minPaths(graph, inputNodes);
+        GraphOperations.Engine engine = GraphOperations.Engine.ENUMERATION;
+        if (options.contains("exact")
+                && inputNodes.size() <= GraphOperations.MAX_EXACT_INPUT_NODES) {
+            engine = GraphOperations.Engine.EXACT;
+        } else if (options.contains("approximate")) {
+            engine = GraphOperations.Engine.APPROXIMATE;
+        } else if (options.contains("voronoi")) {
+            engine = GraphOperations.Engine.VORONOI;
+        } else if (options.contains("branchAndBound")) {
+            engine = GraphOperations.Engine.BRANCH_AND_BOUND;
+        }
+        MinPathsQuery query = new MinPathsQuery(graph, inputNodes, engine, executor);
+        Vector<Path> minPaths = GraphOperations.minPaths(query);
         time = System.currentTimeMillis() - time;
+        if (query.searched()) {
+            System.out.println("...minPaths => START finding all the shortest paths");
+            System.out.println("...minPaths => END finding all the shortest paths, numTotalIterations = " + query.numTotalIterations());
+            if (engine == GraphOperations.Engine.BRANCH_AND_BOUND) {
+                System.out.println("...minPaths => numPrunedBranches = " + query.numPrunedBranches());
+            }
+        }
         for (Path path : minPaths) {
             System.out.println(path);
         }
@@ -232,9 +357,15 @@ public class GraphUnitTest {
         System.out.println("");
         System.out.println("Verifying results...");
         boolean actualMinPathsOkay = true;
-        if ( minPaths.size() != expectedMinPaths.size() ) {
+        if (engine != GraphOperations.Engine.ENUMERATION
+                && engine != GraphOperations.Engine.BRANCH_AND_BOUND) {
+            int factor = (engine == GraphOperations.Engine.EXACT) ? 1 : 2;
+            actualMinPathsOkay = verifyMinPathsWeight(graph, inputNodes, minPaths,
+                    expectedMinPaths, factor);
+        } else if ( minPaths.size() != expectedMinPaths.size() ) {
             System.out.println("...BUMMER! The expectedMinPaths != minPaths. This unit test has FAILED!");
             System.out.println("...minPaths size = " + minPaths.size() + ", expectedMinPaths size = " + expectedMinPaths.size());
+            actualMinPathsOkay = false;
         } else {
             for (Path minPath : minPaths) {
                 int minPathIndex = minPaths.indexOf(minPath);
@@ -254,10 +385,726 @@ public class GraphUnitTest {
                 System.out.println("...COOL! The expectedMinPaths == minPaths. This unit test has PASSED!");
             }
         }
+
+        // the options that build an index of the Graph also check the index
+        // itself against a plain search of the Graph
+        if (actualMinPathsOkay && options.contains("allPairsIndex")) {
+            actualMinPathsOkay = verifyAllPairsIndex(graph, inputNodes);
+        }
+        if (actualMinPathsOkay && options.contains("snapshot")) {
+            actualMinPathsOkay = verifySnapshot(graph, minPaths);
+        }
+        if (actualMinPathsOkay && options.contains("batch")) {
+            actualMinPathsOkay = verifyMinPathsBatch(graph, inputNodes, engine);
+        }
+        if (actualMinPathsOkay && options.contains("graphFile")) {
+            actualMinPathsOkay = verifyGraphFile(graph, inputNodes, minPaths, engine, executor);
+        }
+        if (actualMinPathsOkay && options.contains("nodeIndex")) {
+            actualMinPathsOkay = verifyNodeIndex(graph);
+        }
+        if (actualMinPathsOkay && options.contains("spanningEngines")) {
+            actualMinPathsOkay = verifySpanningEngines(graph);
+        }
         
         return actualMinPathsOkay;
     }
 
+    /**
+     * verifyAllPairsIndex
+     * 
+     * Verifies that the next hops of the all-pairs shortest path index of a
+     * Graph lead from each input Node to each other input Node, and that the
+     * Paths they make up are as short as a plain search of the Graph finds
+     * 
+     * @param   graph
+     *          the Graph the index was built for
+     * 
+     * @param   inputNodes
+     *          the input Nodes
+     * 
+     * @return  true if the index has passed
+     */
+    private static boolean verifyAllPairsIndex(Graph graph, ArrayList<Node> inputNodes) {
+        AllPairsIndex index = graph.allPairsIndex();
+        for (Node src : inputNodes) {
+            ShortestPathTree tree = GraphOperations.shortestPathTree(graph, src);
+            for (Node dst : inputNodes) {
+                // a Node the shortest path tree cannot reach must not have a
+                // Path in the index either
+                if (tree.distance(dst) == GraphOperations.INFINITY) {
+                    if (index.path(src, dst) != null) {
+                        System.out.println("...BUMMER! The allPairsIndex has a path from "
+                                + src + " to the unreachable " + dst + ". This unit test has FAILED!");
+                        return false;
+                    }
+                    continue;
+                }
+
+                // follow the next hops first, so a cycle of them is caught
+                // rather than building an endless Path
+                Node curr = src;
+                for (int hops = 0; curr != null && curr != dst && hops < index.numNodes(); hops++) {
+                    curr = index.nextHop(curr, dst);
+                }
+                Path path = (curr == dst) ? index.path(src, dst) : null;
+                if (path == null || path.weight() != tree.distance(dst)) {
+                    System.out.println("...BUMMER! The allPairsIndex has no shortest path from "
+                            + src + " to " + dst + ". This unit test has FAILED!");
+                    return false;
+                }
+            }
+        }
+
+        System.out.println("...COOL! The allPairsIndex has a shortest path between every connected pair of input Nodes!");
+        return true;
+    }
+
+    /**
+     * verifyMinPathsBatch
+     * 
+     * Verifies that minPathsBatch, given the input Nodes and every pair of
+     * input Nodes next to each other in the list, finds the same minimum
+     * Paths for each list as minPaths does on its own
+     * 
+     * @param   graph
+     *          the Graph
+     * 
+     * @param   inputNodes
+     *          the input Nodes
+     * 
+     * @param   engine
+     *          the Engine of the unit test
+     * 
+     * @return  true if the batch has passed
+     */
+    private static boolean verifyMinPathsBatch(Graph graph, ArrayList<Node> inputNodes,
+            GraphOperations.Engine engine) {
+        Vector<ArrayList<Node>> inputNodeLists = new Vector<ArrayList<Node>>();
+        inputNodeLists.add(inputNodes);
+        for (int i = 0; i + 1 < inputNodes.size(); i++) {
+            inputNodeLists.add(new ArrayList<Node>(inputNodes.subList(i, i + 2)));
+        }
+
+        Vector<Vector<Path>> allMinPaths = GraphOperations.minPathsBatch(graph,
+                inputNodeLists, engine, executor);
+        for (int i = 0; i < inputNodeLists.size(); i++) {
+            Vector<Path> minPaths = GraphOperations.minPaths(graph, inputNodeLists.get(i),
+                    engine, executor);
+            if (!allMinPaths.get(i).equals(minPaths)) {
+                System.out.println("...BUMMER! The minPathsBatch != minPaths for the input nodes "
+                        + inputNodeLists.get(i) + ". This unit test has FAILED!");
+                System.out.println("...minPathsBatch = " + allMinPaths.get(i) + ", minPaths = " + minPaths);
+                return false;
+            }
+        }
+
+        System.out.println("...COOL! The minPathsBatch == minPaths for all "
+                + inputNodeLists.size() + " lists of input nodes!");
+        return true;
+    }
+
+    /**
+     * verifyGraphFile
+     * 
+     * Verifies that writing a Graph to a GraphFile and mapping it back in
+     * gives the same FrozenGraph - the same Node names, arcs and weights -
+     * as freezing the Graph does, that the shortest Paths between each
+     * pair of consecutive input Nodes of the mapped GraphFile weigh what
+     * they do in the Graph, and that minPaths of the mapped GraphFile finds
+     * the same minimum Paths
+     * 
+     * @param   graph
+     *          the Graph
+     * 
+     * @param   inputNodes
+     *          the input Nodes
+     * 
+     * @param   minPaths
+     *          the minimum Paths found in the Graph
+     * 
+     * @param   engine
+     *          the Engine the minimum Paths were found with
+     * 
+     * @param   executor
+     *          the Executor the minimum Paths were found on, or null
+     * 
+     * @return  true if the GraphFile has passed
+     */
+    private static boolean verifyGraphFile(Graph graph, ArrayList<Node> inputNodes,
+            Vector<Path> minPaths, GraphOperations.Engine engine, Executor executor) {
+        FrozenGraph expected = graph.freeze();
+        FrozenGraph mapped;
+        File file = null;
+        try {
+            file = File.createTempFile("graphtest", ".graph");
+            GraphFile.write(graph, file);
+            mapped = GraphFile.map(file);
+        } catch (IOException e) {
+            System.out.println("...BUMMER! The GraphFile could not be written and mapped: " + e
+                    + ". This unit test has FAILED!");
+            return false;
+        } finally {
+            if (file != null) {
+                file.delete();
+            }
+        }
+
+        String difference = null;
+        if (mapped.numNodes() != expected.numNodes() || mapped.numArcs() != expected.numArcs()) {
+            difference = "size";
+        } else if (mapped.minWeight() != expected.minWeight()
+                || mapped.maxWeight() != expected.maxWeight()) {
+            difference = "minimum or maximum weight";
+        }
+        for (int v = 0; difference == null && v <= expected.numNodes(); v++) {
+            if (mapped.offsets().get(v) != expected.offsets().get(v)) {
+                difference = "arc offset of Node # " + v;
+            } else if (v < expected.numNodes()
+                    && !mapped.node(v).toString().equals(expected.node(v).toString())) {
+                difference = "name of Node # " + v;
+            }
+        }
+        for (int a = 0; difference == null && a < expected.numArcs(); a++) {
+            if (mapped.targets().get(a) != expected.targets().get(a)
+                    || mapped.weights().get(a) != expected.weights().get(a)) {
+                difference = "arc # " + a;
+            }
+        }
+        if (difference != null) {
+            System.out.println("...BUMMER! The " + difference
+                    + " of the mapped GraphFile != the Graph. This unit test has FAILED!");
+            return false;
+        }
+
+        // the mapped Nodes have no Edges, so the mapped Paths are weighed by
+        // the mapped arcs
+        for (int i = 1; i < inputNodes.size(); i++) {
+            Node src = inputNodes.get(i - 1);
+            Node dst = inputNodes.get(i);
+            int weight = GraphOperations.getPathsWeight(mapped, GraphOperations.shortestPaths(
+                    mapped, mapped.node(src.ordinal()), mapped.node(dst.ordinal())));
+            int expectedWeight = GraphOperations.getPathsWeight(
+                    GraphOperations.shortestPaths(graph, src, dst));
+            if (weight != expectedWeight) {
+                System.out.println("...BUMMER! The shortest Paths from " + src + " to " + dst
+                        + " of the mapped GraphFile weigh " + weight + " rather than "
+                        + expectedWeight + ". This unit test has FAILED!");
+                return false;
+            }
+        }
+
+        // the mapped Nodes stand in for the input Nodes (by ordinal)
+        ArrayList<Node> mappedInputNodes = new ArrayList<Node>();
+        for (Node node : inputNodes) {
+            mappedInputNodes.add(mapped.node(node.ordinal()));
+        }
+        Vector<ArrayList<Node>> mappedInputNodeLists = new Vector<ArrayList<Node>>();
+        mappedInputNodeLists.add(mappedInputNodes);
+        Vector<Path> mappedMinPaths = GraphOperations.minPaths(mapped, mappedInputNodes,
+                engine, executor);
+        Vector<Path> batchMinPaths = GraphOperations.minPathsBatch(mapped,
+                mappedInputNodeLists, engine, executor).get(0);
+        if (!mappedMinPaths.toString().equals(minPaths.toString())
+                || !batchMinPaths.toString().equals(minPaths.toString())) {
+            System.out.println("...BUMMER! The minPaths of the mapped GraphFile are "
+                    + mappedMinPaths + " (" + batchMinPaths
+                    + " in a batch). This unit test has FAILED!");
+            return false;
+        }
+
+        System.out.println("...COOL! The mapped GraphFile == the Graph, and so do its shortest Paths and minPaths!");
+        return true;
+    }
+
+    /**
+     * verifyNodeIndex
+     * 
+     * Verifies that a copy of a Graph still finds every Node by its Object
+     * and by its name after many more Nodes have been added to it (so its
+     * indexes have had to grow), and turns away Nodes it already has
+     * 
+     * @param   graph
+     *          the Graph
+     * 
+     * @return  true if the indexes have passed
+     */
+    private static boolean verifyNodeIndex(Graph graph) {
+        Graph copy = new Graph(graph);
+        if (!copy.nodes().isEmpty()) {
+            // build the index by name before the Nodes are added, too
+            copy.getNodeByName(copy.nodes().get(0).toString());
+        }
+        int numOriginal = copy.nodes().size();
+        for (int i = 0; i < 1000; i++) {
+            copy.addNode(new Node(new MockDataSet("extra" + i)));
+        }
+
+        for (Node node : copy.nodes()) {
+            if (copy.getNode(node.object()) != node
+                    || copy.getNodeByName(node.toString()) != node
+                    || copy.addNode(new Node(node.object()))) {
+                System.out.println("...BUMMER! The Node " + node
+                        + " is not indexed after " + copy.nodes().size()
+                        + " addNode calls. This unit test has FAILED!");
+                return false;
+            }
+        }
+        if (copy.nodes().size() != numOriginal + 1000
+                || copy.getNode(new MockDataSet("extra0")) != null
+                || copy.getNodeByName("extra1000") != null) {
+            System.out.println("...BUMMER! The Node indexes find Nodes that are not in the Graph. This unit test has FAILED!");
+            return false;
+        }
+
+        System.out.println("...COOL! All " + copy.nodes().size() + " Nodes are indexed by Object and by name!");
+        return true;
+    }
+
+    /**
+     * verifySpanningEngines
+     * 
+     * Verifies that every SpanningEngine, and the parallel Boruvka's
+     * algorithm (on the thread pool, if there is one), finds a minimum
+     * spanning forest of a Graph with the same total weight and number of
+     * trees as Kruskal's algorithm (they may pick different Edges of equal
+     * weight)
+     * 
+     * @param   graph
+     *          the Graph
+     * 
+     * @return  true if the spanning forests have passed
+     */
+    private static boolean verifySpanningEngines(Graph graph) {
+        SpanningForest expected = GraphOperations.kruskalForest(graph);
+        GraphOperations.SpanningEngine engines[] = GraphOperations.SpanningEngine.values();
+        for (int i = 0; i <= engines.length; i++) {
+            String engine = (i < engines.length) ? engines[i].toString() : "parallel BORUVKA";
+            SpanningForest forest = (i < engines.length)
+                    ? GraphOperations.minSpanningForest(graph, engines[i])
+                    : GraphOperations.parallelBoruvkaForest(graph, executor);
+            if (forest.totalWeight() != expected.totalWeight()
+                    || forest.numComponents() != expected.numComponents()
+                    || forest.numEdges() != graph.nodes().size() - expected.numComponents()) {
+                System.out.println("...BUMMER! The " + engine + " spanning forest != kruskalForest. This unit test has FAILED!");
+                System.out.println("...forest weight = " + forest.totalWeight()
+                        + ", components = " + forest.numComponents()
+                        + ", kruskalForest weight = " + expected.totalWeight()
+                        + ", components = " + expected.numComponents());
+                return false;
+            }
+        }
+
+        System.out.println("...COOL! Every spanning forest weighs " + expected.totalWeight()
+                + " with " + expected.numComponents() + " components!");
+        return true;
+    }
+
+    /**
+     * verifySnapshot
+     * 
+     * Verifies that neither the list of Nodes of a snapshot nor the list of
+     * Edges of its first Node can be changed (the search has already shown
+     * that the snapshot still holds the Graph), and that the top Node of the
+     * minimum Paths is the same when some of the Paths hold equal Nodes of a
+     * copy of the snapshot
+     * 
+     * @param   snapshot
+     *          the snapshot of the Graph
+     * 
+     * @param   minPaths
+     *          the minimum Paths found in the snapshot
+     * 
+     * @return  true if the snapshot has passed
+     */
+    private static boolean verifySnapshot(Graph snapshot, Vector<Path> minPaths) {
+        boolean changed = false;
+        try {
+            snapshot.nodes().clear();
+            changed = true;
+        } catch (UnsupportedOperationException e) {
+            // as it should be
+        }
+        try {
+            if (!snapshot.nodes().isEmpty()) {
+                snapshot.nodes().get(0).edges().clear();
+                changed = true;
+            }
+        } catch (UnsupportedOperationException e) {
+            // as it should be
+        }
+        if (changed) {
+            System.out.println("...BUMMER! The snapshot could be changed. This unit test has FAILED!");
+            return false;
+        }
+
+        // every other time a Node turns up in the Paths, it is swapped for
+        // the equal (but distinct) Node of a copy of the snapshot - as a
+        // caller's own Nodes would be
+        Graph other = new Graph(snapshot);
+        boolean swap[] = new boolean[snapshot.nodes().size()];
+        Vector<Path> mixedPaths = new Vector<Path>();
+        for (Path minPath : minPaths) {
+            Path path = new Path(minPath);
+            for (int j = 0; j < path.size(); j++) {
+                int ordinal = path.get(j).ordinal();
+                if (swap[ordinal]) {
+                    path.nodes().set(j, other.nodes().get(ordinal));
+                }
+                swap[ordinal] = !swap[ordinal];
+            }
+            mixedPaths.add(path);
+        }
+        Node topNode = GraphOperations.topNode(minPaths);
+        Node mixedTopNode = GraphOperations.topNode(mixedPaths);
+        if (topNode == null ? mixedTopNode != null : !topNode.equals(mixedTopNode)) {
+            System.out.println("...BUMMER! The top Node is " + mixedTopNode + " rather than "
+                    + topNode + " for the Nodes of a copy. This unit test has FAILED!");
+            return false;
+        }
+
+        System.out.println("...COOL! The snapshot cannot be changed!");
+        return true;
+    }
+
+    /**
+     * checkDynamicForest
+     * 
+     * Checks a DynamicSpanningForest against kruskalForest on small random
+     * Graphs (5 Nodes and 8 random Edges, so there are parallel Edges), after
+     * each of 10 random calls to addEdge, removeEdge and setEdgeWeight
+     * 
+     * @param   random
+     *          the source of the random Graphs and calls
+     * 
+     * @param   numTrials
+     *          the number of random Graphs to check
+     * 
+     * @return  true if the forests agreed every time
+     */
+    private static boolean checkDynamicForest(Random random, int numTrials) {
+        System.out.println("");
+        System.out.println("//==========================================================================");
+        System.out.println("// Checking the DynamicSpanningForest on " + numTrials + " random Graphs");
+        System.out.println("//==========================================================================");
+
+        for (int trial = 0; trial < numTrials; trial++) {
+            Graph graph = new Graph();
+            for (int i = 0; i < 5; i++) {
+                graph.addNode(new Node(new MockDataSet("n" + i)));
+            }
+            Vector<Node> nodes = graph.nodes();
+            for (int i = 0; i < 8; i++) {
+                int n1 = random.nextInt(5);
+                int n2 = (n1 + 1 + random.nextInt(4)) % 5;
+                graph.addEdge(nodes.get(n1), nodes.get(n2), random.nextInt(10));
+            }
+
+            DynamicSpanningForest dynamic = new DynamicSpanningForest(graph);
+            for (int call = 0; call <= 10; call++) {
+                String last = "new DynamicSpanningForest";
+                if (call > 0) {
+                    Node n1 = nodes.get(random.nextInt(5));
+                    Node n2 = nodes.get((n1.ordinal() + 1 + random.nextInt(4)) % 5);
+                    int weight = random.nextInt(10);
+                    switch (random.nextInt(3)) {
+                    case 0:
+                        dynamic.addEdge(n1, n2, weight);
+                        last = "addEdge(" + n1 + ", " + n2 + ", " + weight + ")";
+                        break;
+                    case 1:
+                        dynamic.removeEdge(n1, n2);
+                        last = "removeEdge(" + n1 + ", " + n2 + ")";
+                        break;
+                    default:
+                        dynamic.setEdgeWeight(n1, n2, weight);
+                        last = "setEdgeWeight(" + n1 + ", " + n2 + ", " + weight + ")";
+                        break;
+                    }
+                }
+
+                SpanningForest expected = GraphOperations.kruskalForest(graph);
+                SpanningForest forest = dynamic.forest();
+                if (forest.totalWeight() != expected.totalWeight()
+                        || dynamic.totalWeight() != expected.totalWeight()
+                        || forest.numComponents() != expected.numComponents()) {
+                    System.out.println("...BUMMER! After " + last + " in random Graph # " + (trial + 1)
+                            + " the DynamicSpanningForest != kruskalForest. This unit test has FAILED!");
+                    System.out.println("...forest weight = " + forest.totalWeight()
+                            + ", components = " + forest.numComponents()
+                            + ", kruskalForest weight = " + expected.totalWeight()
+                            + ", components = " + expected.numComponents());
+                    return false;
+                }
+            }
+        }
+
+        System.out.println("...COOL! The DynamicSpanningForest == kruskalForest. This unit test has PASSED!");
+        return true;
+    }
+
+    /**
+     * checkMinPathsServer
+     * 
+     * Checks a MinPathsServer on a random Graph: first 8 threads send it 25
+     * requests each at once, and every answer must be the same as minPaths
+     * gives for the request on its own; then its only worker is held up
+     * inside the Executor of a request, and the server must refuse a request
+     * beyond its maximum pending requests, and fail the request that waited
+     * past its deadline
+     * 
+     * @param   random
+     *          the source of the random Graph and requests
+     * 
+     * @return  true if the server did everything it should
+     */
+    private static boolean checkMinPathsServer(final Random random) {
+        System.out.println("");
+        System.out.println("//==========================================================================");
+        System.out.println("// Checking the MinPathsServer on a random Graph");
+        System.out.println("//==========================================================================");
+
+        Graph randomGraph = new Graph();
+        for (int i = 0; i < 40; i++) {
+            randomGraph.addNode(new Node(new MockDataSet("n" + i)));
+        }
+        Vector<Node> nodes = randomGraph.nodes();
+        for (int i = 1; i < 40; i++) {
+            randomGraph.addEdge(nodes.get(i), nodes.get(random.nextInt(i)), 1 + random.nextInt(5));
+            randomGraph.addEdge(nodes.get(i), nodes.get(random.nextInt(40)), 1 + random.nextInt(5));
+        }
+        final Graph graph = randomGraph.snapshot();
+
+        // the load: every client waits for each answer before sending its
+        // next request, so the server never has more than 8 pending
+        final MinPathsServer server = new MinPathsServer(2, 8, 16, null);
+        final AtomicInteger numWrong = new AtomicInteger();
+        Thread clients[] = new Thread[8];
+        for (int c = 0; c < clients.length; c++) {
+            final long seed = random.nextLong();
+            clients[c] = new Thread(new Runnable() {
+                public void run() {
+                    Random clientRandom = new Random(seed);
+                    for (int i = 0; i < 25; i++) {
+                        ArrayList<Node> inputNodes = randomInputNodes(graph, clientRandom, 3);
+                        try {
+                            Vector<Path> minPaths = server.submit(graph, inputNodes,
+                                    GraphOperations.Engine.ENUMERATION, 1, TimeUnit.MINUTES).get();
+                            if (!minPaths.equals(GraphOperations.minPaths(graph, inputNodes))) {
+                                numWrong.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            System.out.println("...request failed: " + e);
+                            numWrong.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            clients[c].start();
+        }
+        try {
+            for (Thread client : clients) {
+                client.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            server.shutdown();
+        }
+        if (numWrong.get() > 0) {
+            System.out.println("...BUMMER! " + numWrong.get() + " of the " + (25 * clients.length)
+                    + " MinPathsServer answers != minPaths. This unit test has FAILED!");
+            return false;
+        }
+        System.out.println("   ...all " + (25 * clients.length) + " MinPathsServer answers == minPaths");
+
+        // the limits: an Executor that holds the worker up until it is let go
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        Executor held = new Executor() {
+            public void execute(Runnable task) {
+                entered.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // the worker runs the task itself when it waits for it
+            }
+        };
+        MinPathsServer limited = new MinPathsServer(1, 2, 1, held);
+        try {
+            ArrayList<Node> inputNodes = randomInputNodes(graph, random, 3);
+            Future<Vector<Path>> running = limited.submit(graph, inputNodes,
+                    GraphOperations.Engine.ENUMERATION, 1, TimeUnit.MINUTES);
+            entered.await();
+            Future<Vector<Path>> late = limited.submit(graph, inputNodes,
+                    GraphOperations.Engine.ENUMERATION, 1, TimeUnit.MILLISECONDS);
+            boolean refused = false;
+            try {
+                limited.submit(graph, inputNodes, GraphOperations.Engine.ENUMERATION,
+                        1, TimeUnit.MINUTES);
+            } catch (RejectedExecutionException e) {
+                refused = true;
+            }
+            Thread.sleep(20);
+            gate.countDown();
+
+            boolean timedOut = false;
+            try {
+                late.get();
+            } catch (ExecutionException e) {
+                timedOut = e.getCause() instanceof TimeoutException;
+            }
+            if (!refused || !timedOut
+                    || !running.get().equals(GraphOperations.minPaths(graph, inputNodes))) {
+                System.out.println("...BUMMER! The MinPathsServer "
+                        + (!refused ? "took more than its maximum pending requests"
+                                : !timedOut ? "answered a request past its deadline"
+                                        : "answered a held up request wrongly")
+                        + ". This unit test has FAILED!");
+                return false;
+            }
+        } catch (Exception e) {
+            System.out.println("...BUMMER! The MinPathsServer failed: " + e + ". This unit test has FAILED!");
+            return false;
+        } finally {
+            gate.countDown();
+            limited.shutdown();
+        }
+
+        System.out.println("   ...the MinPathsServer refused a request over its limit and failed a late one");
+        System.out.println("...COOL! The MinPathsServer answers == minPaths. This unit test has PASSED!");
+        return true;
+    }
+
+    /**
+     * randomInputNodes
+     * 
+     * @param   graph
+     *          a Graph
+     * 
+     * @param   random
+     *          the source of the random Nodes
+     * 
+     * @param   count
+     *          the number of input Nodes (no more than the Graph has)
+     * 
+     * @return  that many different Nodes of the Graph, picked at random
+     */
+    private static ArrayList<Node> randomInputNodes(Graph graph, Random random, int count) {
+        ArrayList<Node> inputNodes = new ArrayList<Node>();
+        while (inputNodes.size() < count) {
+            Node node = graph.nodes().get(random.nextInt(graph.nodes().size()));
+            if (!inputNodes.contains(node)) {
+                inputNodes.add(node);
+            }
+        }
+        return inputNodes;
+    }
+
+    /**
+     * verifyMinPathsWeight
+     * 
+     * Verifies that a vector of minimum Paths connects all the input Nodes
+     * and weighs no more than a given multiple of the expected minimum Paths
+     * 
+     * @param   graph
+     *          the Graph the minimum Paths were found in
+     * 
+     * @param   inputNodes
+     *          the input Nodes
+     * 
+     * @param   minPaths
+     *          the minimum Paths that were found
+     * 
+     * @param   expectedMinPaths
+     *          the expected minimum Paths (by Node name)
+     * 
+     * @param   factor
+     *          how many times the weight of the expected minimum Paths the
+     *          minimum Paths may weigh
+     * 
+     * @return  true if the unit test has passed
+     */
+    private static boolean verifyMinPathsWeight(Graph graph, ArrayList<Node> inputNodes,
+            Vector<Path> minPaths, Vector<Path> expectedMinPaths, int factor) {
+        // no expected minimum Paths means the input Nodes cannot all be
+        // connected, so no Paths should have been found either
+        if (expectedMinPaths.isEmpty()) {
+            if (!minPaths.isEmpty()) {
+                System.out.println("...BUMMER! The input Nodes cannot all be connected, but minPaths were found. This unit test has FAILED!");
+                return false;
+            }
+            System.out.println("...COOL! No minPaths were found for input Nodes that cannot all be connected. This unit test has PASSED!");
+            return true;
+        }
+
+        // look the expected Nodes up by name, so the Edges between them
+        // (and their weights) are the ones in the Graph
+        Vector<Path> expectedGraphPaths = new Vector<Path>();
+        for (Path expectedMinPath : expectedMinPaths) {
+            Path expectedGraphPath = new Path(graph.getNodeByName(
+                    expectedMinPath.get(0).toString()));
+            for (int i = 1; i < expectedMinPath.size(); i++) {
+                Node node = graph.getNodeByName(expectedMinPath.get(i).toString());
+                expectedGraphPath.addNode(node, expectedGraphPath.lastNode().edgeTo(node).weight());
+            }
+            expectedGraphPaths.add(expectedGraphPath);
+        }
+
+        int weight = GraphOperations.getPathsWeight(minPaths);
+        int expectedWeight = GraphOperations.getPathsWeight(expectedGraphPaths);
+        if (!GraphOperations.allNodesInPathVec(inputNodes, minPaths)
+                || !new Graph(minPaths).isConnected()) {
+            System.out.println("...BUMMER! The minPaths do not connect all the input Nodes. This unit test has FAILED!");
+            return false;
+        } else if (weight > factor * expectedWeight) {
+            System.out.println("...BUMMER! The minPaths weigh more than " + factor
+                    + " times the expectedMinPaths. This unit test has FAILED!");
+            System.out.println("...minPaths weight = " + weight + ", expectedMinPaths weight = " + expectedWeight);
+            return false;
+        }
+
+        System.out.println("   ...expectedMinPaths weight = " + expectedWeight + ", minPaths weight = " + weight);
+        System.out.println("...COOL! The minPaths weigh no more than " + factor
+                + " times the expectedMinPaths. This unit test has PASSED!");
+        return true;
+    }
+
+    /**
+     * rebuildGraph
+     * 
+     * Builds a copy of a Graph with a GraphBuilder, from new Nodes wrapping
+     * the same objects, so the "builder" option runs every unit test over a
+     * bulk-built Graph
+     * 
+     * @param   graph
+     *          the Graph to copy
+     * 
+     * @return  the copy
+     */
+    private static Graph rebuildGraph(Graph graph) {
+        GraphBuilder builder = new GraphBuilder();
+        for (Node node : graph.nodes()) {
+            builder.addNode(new Node(node.object()));
+        }
+        for (Node node : graph.nodes()) {
+            for (Edge edge : node.edges()) {
+                if (node.ordinal() <= edge.to().ordinal()) {
+                    builder.addEdge(node.ordinal(), edge.to().ordinal(), edge.weight());
+                }
+            }
+        }
+
+        Graph copy = builder.build();
+        copy.setAllPairsIndexEnabled(graph.isAllPairsIndexEnabled());
+        copy.setLandmarkCount(graph.landmarkCount());
+        copy.setContractionHierarchyEnabled(graph.isContractionHierarchyEnabled());
+        return copy;
+    }
+
     /**
      * getAllNodes
      * 
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+/**
+ * LandmarkIndex class
+ * 
+ * A LandmarkIndex holds the shortest distance from each of a small number of
+ * "landmark" Nodes to every Node of a Graph. By the triangle inequality, for
+ * any landmark L and any two Nodes v and t, the shortest distance from v to
+ * t is at least |distance(L, t) - distance(L, v)| - so the largest of those
+ * differences over all the landmarks is a lower bound on the distance from
+ * v to t that never overestimates it. GraphOperations uses that lower bound
+ * to steer an A* search towards the destination Node of a pair query (the
+ * "ALT" technique: A*, Landmarks and the Triangle inequality).
+ * 
+ * The landmarks are picked "farthest first" - each new landmark is the Node
+ * that is farthest from all the landmarks picked so far (a Node that none of
+ * them can reach at all is the farthest of all, so every unconnected
+ * sub-Graph gets a landmark of its own while landmarks are left to pick).
+ * 
+ * The distances are stored as one flat int array indexed by landmark number
+ * and Node ordinal - distance[l * n + v] is the shortest distance from
+ * landmark l to Node v.
+ * 
+ * A LandmarkIndex is normally not created directly - it is built lazily by
+ * Graph.landmarkIndex, and thrown away by the Graph when Nodes or Edges are
+ * added to it.
+ * 
+ * @author Steve Rosen
+ */
+public class LandmarkIndex {
+    private int numNodes;
+    private int landmarks[];
+    private int distance[];
+
+    /**
+     * LandmarkIndex
+     * 
+     * This constructor picks the landmarks for a Graph and runs one Dijkstra
+     * search from each of them
+     * 
+     * @param   graph
+     *          the Graph to index
+     * 
+     * @param   numLandmarks
+     *          the number of landmarks to pick (at most the number of Nodes
+     *          in the Graph)
+     */
+    public LandmarkIndex(Graph graph, int numLandmarks) {
+        FrozenGraph frozen = graph.freeze();
+        numNodes = frozen.numNodes();
+        numLandmarks = Math.min(numLandmarks, numNodes);
+        landmarks = new int[numLandmarks];
+        distance = new int[numLandmarks * numNodes];
+        if (numLandmarks == 0) {
+            return;
+        }
+
+        // how far each Node is from its closest landmark so far - seeded
+        // with the distances from Node 0, so the first landmark is the
+        // Node farthest from Node 0 (i.e., out on the edge of the Graph)
+        NodeQueue queue = GraphOperations.nodeQueue(frozen, numNodes);
+        int closest[] = GraphOperations.shortestDistances(frozen, queue, 0);
+        for (int l = 0; l < numLandmarks; l++) {
+            int farthest = 0;
+            for (int v = 1; v < numNodes; v++) {
+                if (closest[v] > closest[farthest]) {
+                    farthest = v;
+                }
+            }
+
+            landmarks[l] = farthest;
+            int row[] = GraphOperations.shortestDistances(frozen, queue, farthest);
+            System.arraycopy(row, 0, distance, l * numNodes, numNodes);
+
+            // the landmark itself (and every other Node) is now at most
+            // this far from its closest landmark
+            if (l == 0) {
+                closest = row;
+            } else {
+                for (int v = 0; v < numNodes; v++) {
+                    closest[v] = Math.min(closest[v], row[v]);
+                }
+            }
+        }
+    }
+
+    /**
+     * numLandmarks
+     * 
+     * Gets the number of landmarks in this LandmarkIndex
+     * 
+     * @return  the number of landmarks
+     */
+    public int numLandmarks() {
+        return landmarks.length;
+    }
+
+    /**
+     * landmark
+     * 
+     * Gets the ordinal of a specified landmark
+     * 
+     * @param   l
+     *          the landmark number
+     * 
+     * @return  the Node ordinal of the landmark
+     */
+    public int landmark(int l) {
+        return landmarks[l];
+    }
+
+    /**
+     * lowerBound
+     * 
+     * Gets a lower bound on the shortest distance between two Nodes (by Node
+     * ordinal) - the largest difference between the distances of the two
+     * Nodes from any one landmark. Landmarks that cannot reach either Node
+     * are skipped, so the lower bound is 0 when no landmark knows anything
+     * about the two Nodes.
+     * 
+     * @param   v
+     *          the ordinal of one Node
+     * 
+     * @param   t
+     *          the ordinal of the other Node
+     * 
+     * @return  the lower bound
+     */
+    public int lowerBound(int v, int t) {
+        int bound = 0;
+        for (int base = 0; base < distance.length; base += numNodes) {
+            int dv = distance[base + v];
+            int dt = distance[base + t];
+            if (dv != GraphOperations.INFINITY && dt != GraphOperations.INFINITY) {
+                bound = Math.max(bound, Math.abs(dt - dv));
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * memoryBytes
+     * 
+     * Gets the (approximate) number of bytes of memory held by the arrays of
+     * this LandmarkIndex, for reporting purposes
+     * 
+     * @return  the number of bytes
+     */
+    public long memoryBytes() {
+        return 4L * distance.length + 4L * landmarks.length;
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Vector;
+import java.util.concurrent.Executor;
+
+/**
+ * MinPathsQuery class
+ * 
+ * A MinPathsQuery holds everything one call of GraphOperations.minPaths
+ * works with - its own sorted copy of the input Nodes, the engine and
+ * Executor to use, and the results and statistics of the search - so that
+ * any number of threads can each run their own MinPathsQuery against the
+ * same Graph at once. Nothing a caller passes in (the input Node list, or
+ * the Graph) is changed, and nothing is printed - the statistics are kept
+ * here instead, for the caller to report if it likes.
+ * 
+ * The Graph searched can also be a FrozenGraph (such as a mapped GraphFile,
+ * whose Nodes have no Edges of their own) - everything the search does with
+ * it is done on its arcs.
+ * 
+ * A MinPathsQuery is meant to be used by one thread, for one search.
+ * 
+ * @author Steve Rosen
+ */
+public class MinPathsQuery {
+    private Graph graph;
+    private FrozenGraph frozen;
+    private ArrayList<Node> inputNodes;
+    private GraphOperations.Engine engine;
+    private Executor executor;
+    private Vector<Path> minPaths;
+    private boolean searched;
+    private int numTotalIterations;
+    private int numPrunedBranches;
+
+    /**
+     * MinPathsQuery
+     * 
+     * This constructor sets up a search for the minimum Paths that connect a
+     * list of input Nodes
+     * 
+     * @param   g
+     *          the Graph to search
+     * 
+     * @param   inputNodes
+     *          the input Nodes to connect (the list is copied, not kept), or
+     *          null
+     * 
+     * @param   engine
+     *          the Engine to connect the input Nodes with
+     * 
+     * @param   executor
+     *          the Executor to run the searches on, or null to run them on
+     *          the calling thread
+     */
+    public MinPathsQuery(Graph g, ArrayList<Node> inputNodes,
+            GraphOperations.Engine engine, Executor executor) {
+        this(g, null, inputNodes, engine, executor);
+    }
+
+    /**
+     * MinPathsQuery
+     * 
+     * This constructor sets up a search of a FrozenGraph (which keeps no
+     * indexes, so every pair of input Nodes is searched for - see
+     * GraphOperations.getInputNodeDags) for the minimum Paths that connect
+     * a list of its input Nodes
+     * 
+     * @param   g
+     *          the FrozenGraph to search
+     * 
+     * @param   inputNodes
+     *          the input Nodes to connect (the list is copied, not kept), or
+     *          null
+     * 
+     * @param   engine
+     *          the Engine to connect the input Nodes with
+     * 
+     * @param   executor
+     *          the Executor to run the searches on, or null to run them on
+     *          the calling thread
+     */
+    public MinPathsQuery(FrozenGraph g, ArrayList<Node> inputNodes,
+            GraphOperations.Engine engine, Executor executor) {
+        this(null, g, inputNodes, engine, executor);
+    }
+
+    /**
+     * MinPathsQuery
+     * 
+     * This constructor sets up a search of either a Graph or a FrozenGraph
+     * 
+     * @param   g
+     *          the Graph to search, or null
+     * 
+     * @param   frozen
+     *          the FrozenGraph to search, if there is no Graph
+     * 
+     * @param   inputNodes
+     *          the input Nodes to connect, or null
+     * 
+     * @param   engine
+     *          the Engine to connect the input Nodes with
+     * 
+     * @param   executor
+     *          the Executor to run the searches on, or null
+     */
+    private MinPathsQuery(Graph g, FrozenGraph frozen, ArrayList<Node> inputNodes,
+            GraphOperations.Engine engine, Executor executor) {
+        graph = g;
+        this.frozen = frozen;
+        if (inputNodes != null) {
+            // sort the input Nodes according to their ordinal values so we
+            // always create a consistent set of output results
+            this.inputNodes = new ArrayList<Node>(inputNodes);
+            Collections.sort(this.inputNodes);
+        }
+        this.engine = engine;
+        this.executor = executor;
+    }
+
+    /**
+     * graph
+     * 
+     * @return  the Graph to search, or null if a FrozenGraph is searched
+     */
+    public Graph graph() {
+        return graph;
+    }
+
+    /**
+     * frozenGraph
+     * 
+     * Gets the FrozenGraph to search - the one this query was set up with,
+     * or else the FrozenGraph of its Graph (see Graph.freeze)
+     * 
+     * @return  the FrozenGraph
+     */
+    public FrozenGraph frozenGraph() {
+        return (graph != null) ? graph.freeze() : frozen;
+    }
+
+    /**
+     * inputNodes
+     * 
+     * @return  this query's own copy of the input Nodes, sorted by ordinal
+     *          (or null, if there were none)
+     */
+    public ArrayList<Node> inputNodes() {
+        return inputNodes;
+    }
+
+    /**
+     * engine
+     * 
+     * @return  the Engine to connect the input Nodes with
+     */
+    public GraphOperations.Engine engine() {
+        return engine;
+    }
+
+    /**
+     * executor
+     * 
+     * @return  the Executor to run the searches on, or null
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    /**
+     * minPaths
+     * 
+     * Gets the minimum Paths found, once GraphOperations.minPaths has run
+     * this query
+     * 
+     * @return  the minimum vector of Paths, or null if the query has not
+     *          been run (or had no input Node list)
+     */
+    public Vector<Path> minPaths() {
+        return minPaths;
+    }
+
+    /**
+     * searched
+     * 
+     * Whether or not the combinations of shortest Paths were searched (only
+     * Engine.ENUMERATION and Engine.BRANCH_AND_BOUND search them, and only
+     * for two or more input Nodes)
+     * 
+     * @return  true if they were searched, false if not
+     */
+    public boolean searched() {
+        return searched;
+    }
+
+    /**
+     * numTotalIterations
+     * 
+     * @return  the number of Paths tried by the combination search
+     */
+    public int numTotalIterations() {
+        return numTotalIterations;
+    }
+
+    /**
+     * numPrunedBranches
+     * 
+     * @return  the number of Paths the branch-and-bound search skipped (along
+     *          with everything that would have been built on top of them)
+     */
+    public int numPrunedBranches() {
+        return numPrunedBranches;
+    }
+
+    /**
+     * setMinPaths
+     * 
+     * @param   minPaths
+     *          the minimum vector of Paths found
+     */
+    void setMinPaths(Vector<Path> minPaths) {
+        this.minPaths = minPaths;
+    }
+
+    /**
+     * setSearchStatistics
+     * 
+     * Records that the combinations of shortest Paths were searched, and how
+     * it went
+     * 
+     * @param   numTotalIterations
+     *          the number of Paths tried
+     * 
+     * @param   numPrunedBranches
+     *          the number of Paths skipped by the branch-and-bound search
+     */
+    void setSearchStatistics(int numTotalIterations, int numPrunedBranches) {
+        searched = true;
+        this.numTotalIterations = numTotalIterations;
+        this.numPrunedBranches = numPrunedBranches;
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.util.ArrayList;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * MinPathsServer class
+ * 
+ * A MinPathsServer answers minPaths requests from any number of threads in
+ * the same process (see submit), on a fixed number of worker threads of its
+ * own. A worker that is free takes every request that is waiting (up to a
+ * maximum batch size), and answers the ones for the same Graph and Engine
+ * together with GraphOperations.minPathsBatch, so that the busier the
+ * server is, the more shortest path searches its requests share.
+ * 
+ * Only so many requests can be waiting or running at once - beyond that,
+ * submit refuses new ones straight away (a RejectedExecutionException), so
+ * callers feel the load instead of queueing without end. Every request has
+ * a deadline, and one whose deadline passes before a worker gets to it
+ * fails with a TimeoutException instead of being searched.
+ * 
+ * @author Steve Rosen
+ */
+public class MinPathsServer {
+    private LinkedBlockingQueue<Request> queue;
+    private Semaphore permits;
+    private int maxBatch;
+    private Executor executor;
+    private Thread workers[];
+    private volatile boolean shutdown;
+
+    /**
+     * Request class
+     * 
+     * One minPaths request - the Future its caller waits on, which a worker
+     * completes (so it is never run itself)
+     */
+    static class Request extends FutureTask<Vector<Path>> {
+        private Graph graph;
+        private ArrayList<Node> inputNodes;
+        private GraphOperations.Engine engine;
+        private long deadline;
+        private Semaphore permits;
+        private AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Request
+         * 
+         * @param   g
+         *          the Graph to search
+         * 
+         * @param   inputNodes
+         *          the input Nodes to connect (the list is copied)
+         * 
+         * @param   engine
+         *          the Engine to connect them with
+         * 
+         * @param   deadline
+         *          the System.nanoTime by which the search must start
+         * 
+         * @param   permits
+         *          the Semaphore to give a permit back to when this request
+         *          is done
+         */
+        Request(Graph g, ArrayList<Node> inputNodes, GraphOperations.Engine engine,
+                long deadline, Semaphore permits) {
+            super(new Callable<Vector<Path>>() {
+                public Vector<Path> call() {
+                    throw new IllegalStateException("a request is completed by the server");
+                }
+            });
+            graph = g;
+            this.inputNodes = (inputNodes == null) ? null : new ArrayList<Node>(inputNodes);
+            this.engine = engine;
+            this.deadline = deadline;
+            this.permits = permits;
+        }
+
+        /**
+         * complete
+         * 
+         * @param   minPaths
+         *          the minimum Paths found for this request
+         */
+        void complete(Vector<Path> minPaths) {
+            releasePermit();
+            set(minPaths);
+        }
+
+        /**
+         * fail
+         * 
+         * @param   t
+         *          why this request failed
+         */
+        void fail(Throwable t) {
+            releasePermit();
+            setException(t);
+        }
+
+        /**
+         * done
+         * 
+         * Gives the permit of this request back, however it ended (a
+         * cancelled request only gets here)
+         */
+        protected void done() {
+            releasePermit();
+        }
+
+        /**
+         * releasePermit
+         * 
+         * Gives the permit of this request back, the first time only - a
+         * request that is answered gives it back before its caller can see
+         * the answer, so a caller that sends its next request straight away
+         * is never refused for a permit that is about to come back
+         */
+        private void releasePermit() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * MinPathsServer
+     * 
+     * This constructor starts the worker threads of the server
+     * 
+     * @param   numWorkers
+     *          the number of worker threads
+     * 
+     * @param   maxPending
+     *          the most requests that can be waiting or running at once
+     * 
+     * @param   maxBatch
+     *          the most requests one worker takes at a time
+     * 
+     * @param   executor
+     *          the Executor the workers run each batch's searches on (see
+     *          GraphOperations.minPathsBatch), or null to run them on the
+     *          worker itself - a worker runs any search that the Executor
+     *          has not started yet itself while it waits (see
+     *          GraphOperations.await), so it may be an Executor whose
+     *          threads are all busy, or blocked on requests to this server
+     */
+    public MinPathsServer(int numWorkers, int maxPending, int maxBatch, Executor executor) {
+        if (numWorkers < 1 || maxPending < 1 || maxBatch < 1) {
+            throw new IllegalArgumentException("numWorkers, maxPending and maxBatch must be positive");
+        }
+        queue = new LinkedBlockingQueue<Request>();
+        permits = new Semaphore(maxPending);
+        this.maxBatch = maxBatch;
+        this.executor = executor;
+
+        workers = new Thread[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            workers[i] = new Thread(new Runnable() {
+                public void run() {
+                    work();
+                }
+            }, "MinPathsServer-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * submit
+     * 
+     * Hands a minPaths request to the server
+     * 
+     * @param   g
+     *          the Graph to search (it must not change while the request
+     *          waits or runs - a snapshot is best, see Graph.snapshot)
+     * 
+     * @param   inputNodes
+     *          the input Nodes to connect (the list is copied)
+     * 
+     * @param   engine
+     *          the Engine to connect them with
+     * 
+     * @param   timeout
+     *          how long the request may wait for a worker
+     * 
+     * @param   unit
+     *          the unit of the timeout
+     * 
+     * @return  the Future of the minimum Paths - if the deadline passes
+     *          before a worker gets to the request, getting it throws an
+     *          ExecutionException caused by a TimeoutException
+     * 
+     * @throws  RejectedExecutionException
+     *          if maxPending requests are already waiting or running, or
+     *          the server has been shut down
+     */
+    public Future<Vector<Path>> submit(Graph g, ArrayList<Node> inputNodes,
+            GraphOperations.Engine engine, long timeout, TimeUnit unit) {
+        if (shutdown) {
+            throw new RejectedExecutionException("the server has been shut down");
+        }
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("too many requests are pending");
+        }
+        Request request = new Request(g, inputNodes, engine,
+                System.nanoTime() + unit.toNanos(timeout), permits);
+        queue.add(request);
+        if (shutdown && queue.remove(request)) {
+            request.cancel(false);
+        }
+        return request;
+    }
+
+    /**
+     * shutdown
+     * 
+     * Stops the server - the requests that are running finish, and the ones
+     * still waiting are cancelled
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.cancel(false);
+        }
+    }
+
+    /**
+     * work
+     * 
+     * The loop of a worker thread - take the first waiting request, and any
+     * others waiting behind it, and answer them
+     */
+    private void work() {
+        ArrayList<Request> batch = new ArrayList<Request>();
+        while (!shutdown) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+            answer(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * answer
+     * 
+     * Answers a batch of requests, with one call to minPathsBatch for each
+     * Graph and Engine in the batch
+     * 
+     * @param   batch
+     *          the requests
+     */
+    private void answer(ArrayList<Request> batch) {
+        // drop the requests that were cancelled or are too late
+        long now = System.nanoTime();
+        ArrayList<Request> live = new ArrayList<Request>();
+        for (Request request : batch) {
+            if (request.isDone()) {
+                continue;
+            } else if (shutdown) {
+                request.cancel(false);
+            } else if (now - request.deadline > 0) {
+                request.fail(new TimeoutException("the request waited past its deadline"));
+            } else {
+                live.add(request);
+            }
+        }
+
+        while (!live.isEmpty()) {
+            // take every request for the same Graph and Engine as the first
+            Request first = live.get(0);
+            ArrayList<Request> group = new ArrayList<Request>();
+            Vector<ArrayList<Node>> inputNodeLists = new Vector<ArrayList<Node>>();
+            for (int i = 0; i < live.size(); i++) {
+                Request request = live.get(i);
+                if (request.graph == first.graph && request.engine == first.engine) {
+                    group.add(request);
+                    inputNodeLists.add(request.inputNodes);
+                    live.remove(i--);
+                }
+            }
+
+            try {
+                Vector<Vector<Path>> allMinPaths = GraphOperations.minPathsBatch(
+                        first.graph, inputNodeLists, first.engine, executor);
+                for (int i = 0; i < group.size(); i++) {
+                    group.get(i).complete(allMinPaths.get(i));
+                }
+            } catch (RuntimeException e) {
+                for (Request request : group) {
+                    request.fail(e);
+                }
+            } catch (Error e) {
+                for (Request request : group) {
+                    request.fail(e);
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -21,7 +21,12 @@
 package graphutil;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * Node class
@@ -41,6 +46,7 @@ public class Node implements Comparable<Node> {
     private Object object;
     private ArrayList<Edge> edges;
     private int ordinal;
+    private boolean immutable;
 
     /**
      * Node
@@ -71,7 +77,9 @@ public class Node implements Comparable<Node> {
     /**
      * edges
      * 
-     * Gets the list of Edges attached to this Node
+     * Gets the list of Edges attached to this Node - if this Node is
+     * immutable, any attempt to change the list throws an
+     * UnsupportedOperationException
      * 
      * @return  the list of Edges
      */
@@ -99,9 +107,44 @@ public class Node implements Comparable<Node> {
      *          the ordinal value to set
      */
     public void setOrdinal(int num) {
+        checkMutable();
         ordinal = num;
     }
 
+    /**
+     * isImmutable
+     * 
+     * Whether or not this Node belongs to an immutable Graph (see
+     * Graph.snapshot), so its Edges and ordinal can no longer change
+     * 
+     * @return  true if this Node is immutable, false if not
+     */
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    /**
+     * makeImmutable
+     * 
+     * Stops this Node from changing - used by Graph when it makes a snapshot
+     */
+    void makeImmutable() {
+        edges = new SnapshotEdgeList(edges);
+        immutable = true;
+    }
+
+    /**
+     * checkMutable
+     * 
+     * Throws an UnsupportedOperationException if this Node is immutable
+     */
+    private void checkMutable() {
+        if (immutable) {
+            throw new UnsupportedOperationException("the Node " + this
+                    + " belongs to a Graph snapshot and cannot be changed");
+        }
+    }
+
     /**
      * addEdge
      * 
@@ -116,6 +159,7 @@ public class Node implements Comparable<Node> {
      * @return  true if the Node is in this Path; otherwise false
      */
     public boolean addEdge(Node toNode, int weight) {
+        checkMutable();
         Edge toAdd = new Edge(this, toNode, weight);
 
         // we can only add a new Edge to this Node if we don't
@@ -131,10 +175,35 @@ public class Node implements Comparable<Node> {
         return false;
     }
 
+    /**
+     * removeEdge
+     * 
+     * Removes the Edge from this Node to a specified Node, if one exists
+     * 
+     * @param   toNode
+     *          the Node the Edge is attached to
+     * 
+     * @return  true if an Edge was removed; false if this Node had no Edge to
+     *          the specified Node
+     */
+    public boolean removeEdge(Node toNode) {
+        checkMutable();
+        boolean removed = false;
+        for (int i = edges.size() - 1; i >= 0; i--) {
+            if (edges.get(i).to().equals(toNode)) {
+                edges.remove(i);
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
     /**
      * edgeTo
      * 
-     * Returns the Edge to a specified Node, if one exists
+     * Returns the Edge to a specified Node, if one exists - the lightest
+     * one, if there are parallel Edges to the Node (the Edge the searches
+     * follow), and of those, the first one
      * 
      * @param   n
      *          the Node to search for
@@ -144,18 +213,19 @@ public class Node implements Comparable<Node> {
      */
     public Edge edgeTo(Node n) {
         // search through all the Edges for this Node, looking
-        // for a match (where a match is based on the names of
-        // the Nodes matching)
+        // for the lightest match (where a match is based on the
+        // names of the Nodes matching)
+        Edge lightest = null;
         for (Edge edge : edges) {
-            if (edge.to().equals(n)) {
-                // we found a match, so return this Edge
-                return edge;
+            if (edge.to().equals(n)
+                    && (lightest == null || edge.weight() < lightest.weight())) {
+                lightest = edge;
             }
         }
 
-        // no matching Edge was found for the specified Edge,
-        // so we just return null
-        return null;
+        // if no matching Edge was found for the specified Edge,
+        // we just return null
+        return lightest;
     }
 
     /**
@@ -200,4 +270,84 @@ public class Node implements Comparable<Node> {
     public int compareTo(Node n) {
         return this.ordinal() - n.ordinal();
     }
+
+    /**
+     * SnapshotEdgeList class
+     * 
+     * The list of Edges of an immutable Node - still an ArrayList, so that
+     * edges keeps its signature, but every method that would change it
+     * throws an UnsupportedOperationException
+     */
+    private static class SnapshotEdgeList extends ArrayList<Edge> {
+        private static final long serialVersionUID = 1L;
+
+        SnapshotEdgeList(Collection<Edge> edges) {
+            super(edges);
+        }
+
+        private static UnsupportedOperationException unsupported() {
+            return new UnsupportedOperationException(
+                    "the Edges of a Node of a Graph snapshot cannot be changed");
+        }
+
+        public boolean add(Edge e) {
+            throw unsupported();
+        }
+
+        public void add(int index, Edge e) {
+            throw unsupported();
+        }
+
+        public boolean addAll(Collection<? extends Edge> c) {
+            throw unsupported();
+        }
+
+        public boolean addAll(int index, Collection<? extends Edge> c) {
+            throw unsupported();
+        }
+
+        public Edge set(int index, Edge e) {
+            throw unsupported();
+        }
+
+        public Edge remove(int index) {
+            throw unsupported();
+        }
+
+        public boolean remove(Object o) {
+            throw unsupported();
+        }
+
+        public boolean removeAll(Collection<?> c) {
+            throw unsupported();
+        }
+
+        public boolean retainAll(Collection<?> c) {
+            throw unsupported();
+        }
+
+        public boolean removeIf(Predicate<? super Edge> filter) {
+            throw unsupported();
+        }
+
+        public void replaceAll(UnaryOperator<Edge> operator) {
+            throw unsupported();
+        }
+
+        public void sort(Comparator<? super Edge> c) {
+            throw unsupported();
+        }
+
+        public void clear() {
+            throw unsupported();
+        }
+
+        protected void removeRange(int from, int to) {
+            throw unsupported();
+        }
+
+        public List<Edge> subList(int from, int to) {
+            return Collections.unmodifiableList(super.subList(from, to));
+        }
+    }
 }
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * NodeHeap class
+ * 
+ * A NodeHeap is an indexed binary min-heap of Node ordinals, keyed by an int
+ * (typically the tentative distance of that Node from some source Node). It
+ * is used by the shortest Path engines of the GraphOperations abstract class
+ * in place of a heap of Path objects, so that no objects are allocated as
+ * Nodes are pushed, popped, or have their keys lowered.
+ * 
+ * NodeHeap is the general purpose NodeQueue - see BucketQueue for the one
+ * used on Graphs with small Edge weights.
+ * 
+ * Each ordinal may be in the heap at most once - pushing an ordinal that is
+ * already in the heap with a smaller key simply lowers its key. Ties between
+ * equal keys are broken by the smaller ordinal, so the order in which Nodes
+ * are popped is always deterministic.
+ * 
+ * @author Steve Rosen
+ */
+public class NodeHeap implements NodeQueue {
+    private int heap[];
+    private int position[];
+    private int key[];
+    private int size;
+
+    /**
+     * NodeHeap
+     * 
+     * This constructor creates an empty NodeHeap able to hold the ordinals
+     * 0 through capacity - 1
+     * 
+     * @param   capacity
+     *          the number of Nodes (ordinals) this NodeHeap can hold
+     */
+    public NodeHeap(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        key = new int[capacity];
+        Arrays.fill(position, -1);
+        size = 0;
+    }
+
+    /**
+     * isEmpty
+     * 
+     * Whether or not this NodeHeap holds any ordinals
+     * 
+     * @return  true if this NodeHeap is empty; otherwise false
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * size
+     * 
+     * Gets the number of ordinals currently held in this NodeHeap
+     * 
+     * @return  the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * contains
+     * 
+     * Whether or not a specified ordinal is currently held in this NodeHeap
+     * 
+     * @param   ordinal
+     *          the ordinal to search for
+     * 
+     * @return  true if the ordinal is in this NodeHeap; otherwise false
+     */
+    public boolean contains(int ordinal) {
+        return position[ordinal] >= 0;
+    }
+
+    /**
+     * push
+     * 
+     * Adds an ordinal to this NodeHeap with a specified key - or, if the
+     * ordinal is already in this NodeHeap, lowers its key to the specified
+     * key (a larger key than the current one is ignored)
+     * 
+     * @param   ordinal
+     *          the ordinal to add
+     * 
+     * @param   k
+     *          the key of the ordinal
+     * 
+     * @return  true if the ordinal was added or its key was lowered;
+     *          otherwise false
+     */
+    public boolean push(int ordinal, int k) {
+        int i = position[ordinal];
+        if (i < 0) {
+            i = size++;
+            heap[i] = ordinal;
+            position[ordinal] = i;
+        } else if (k >= key[ordinal]) {
+            return false;
+        }
+
+        key[ordinal] = k;
+        siftUp(i);
+        return true;
+    }
+
+    /**
+     * peekKey
+     * 
+     * Gets the smallest key in this NodeHeap without removing its ordinal
+     * 
+     * @return  the smallest key
+     * 
+     * @throws  NoSuchElementException
+     *          if this NodeHeap is empty
+     */
+    public int peekKey() {
+        if (size == 0) {
+            throw new NoSuchElementException("the NodeHeap is empty");
+        }
+        return key[heap[0]];
+    }
+
+    /**
+     * pop
+     * 
+     * Removes the ordinal with the smallest key from this NodeHeap
+     * 
+     * @return  the ordinal
+     * 
+     * @throws  NoSuchElementException
+     *          if this NodeHeap is empty
+     */
+    public int pop() {
+        if (size == 0) {
+            throw new NoSuchElementException("the NodeHeap is empty");
+        }
+        int top = heap[0];
+        position[top] = -1;
+
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+
+        return top;
+    }
+
+    /**
+     * clear
+     * 
+     * Removes all the ordinals from this NodeHeap so it can be reused
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * less
+     * 
+     * Whether or not the ordinal at heap slot i sorts before the ordinal at
+     * heap slot j (smaller key first, smaller ordinal on a tie)
+     */
+    private boolean less(int i, int j) {
+        int a = heap[i];
+        int b = heap[j];
+        if (key[a] != key[b]) {
+            return key[a] < key[b];
+        }
+        return a < b;
+    }
+
+    /**
+     * swap
+     * 
+     * Swaps the ordinals at heap slots i and j
+     */
+    private void swap(int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+        position[heap[i]] = i;
+        position[heap[j]] = j;
+    }
+
+    /**
+     * siftUp
+     * 
+     * Moves the ordinal at heap slot i up until its parent sorts before it
+     */
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!less(i, parent)) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    /**
+     * siftDown
+     * 
+     * Moves the ordinal at heap slot i down until both its children sort
+     * after it
+     */
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && less(left, smallest)) {
+                smallest = left;
+            }
+            if (right < size && less(right, smallest)) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                break;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.util.Vector;
+
+/**
+ * NodeIndex class
+ * 
+ * A NodeIndex is a hash index from a key to the ordinal of a Node of a Graph
+ * - either the Object the Node wraps (compared by identity, just like
+ * Node.equals), or the name of the Node (its toString). It is used by Graph
+ * to find Nodes in constant time, rather than by looking through its whole
+ * Vector of Nodes.
+ * 
+ * The index is an open-addressing table with linear probing: each slot holds
+ * the ordinal of a Node plus one (0 for an empty slot), next to the hash of
+ * its key, so no objects are allocated as Nodes are added, and the key of a
+ * Node is only looked at when the hashes match. The table is never more than
+ * half full. Nodes are only ever added to a Graph, never removed, so neither
+ * is anything removed from the index. When several Nodes have the same key
+ * (as names can), the index keeps the first of them.
+ * 
+ * @author Steve Rosen
+ */
+class NodeIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Vector<Node> nodes;
+    private boolean byName;
+    private int slots[];
+    private int hashes[];
+    private int size;
+
+    /**
+     * NodeIndex
+     * 
+     * This constructor indexes all the Nodes of a Graph so far
+     * 
+     * @param   nodes
+     *          the Nodes of the Graph, indexed by ordinal
+     * 
+     * @param   byName
+     *          true to index the Nodes by name, false to index them by the
+     *          Object they wrap
+     */
+    NodeIndex(Vector<Node> nodes, boolean byName) {
+        this.nodes = nodes;
+        this.byName = byName;
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < 2 * nodes.size()) {
+            capacity *= 2;
+        }
+        slots = new int[capacity];
+        hashes = new int[capacity];
+        for (int v = 0; v < nodes.size(); v++) {
+            add(v);
+        }
+    }
+
+    /**
+     * find
+     * 
+     * Finds the Node with a specified key
+     * 
+     * @param   key
+     *          the Object the Node wraps, or the name of the Node
+     * 
+     * @return  the ordinal of the Node, or GraphOperations.NO_NEXT if no
+     *          Node has that key
+     */
+    int find(Object key) {
+        int hash = hash(key);
+        int mask = slots.length - 1;
+        for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+            if (hashes[i] == hash && matches(nodes.get(slots[i] - 1), key)) {
+                return slots[i] - 1;
+            }
+        }
+        return GraphOperations.NO_NEXT;
+    }
+
+    /**
+     * add
+     * 
+     * Adds a Node that has just been added to the Graph (unless a Node with
+     * the same key is already indexed)
+     * 
+     * @param   ordinal
+     *          the ordinal of the Node
+     */
+    void add(int ordinal) {
+        Object key = key(nodes.get(ordinal));
+        if (find(key) != GraphOperations.NO_NEXT) {
+            return;
+        }
+        if (2 * (size + 1) > slots.length) {
+            grow();
+        }
+        insert(hash(key), ordinal);
+        size++;
+    }
+
+    /**
+     * insert
+     * 
+     * Puts an ordinal in the first empty slot for its hash
+     */
+    private void insert(int hash, int ordinal) {
+        int mask = slots.length - 1;
+        int i = hash & mask;
+        while (slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = ordinal + 1;
+        hashes[i] = hash;
+    }
+
+    /**
+     * grow
+     * 
+     * Doubles the number of slots, putting every ordinal back in its place
+     * (using the hashes already worked out, so no key is looked at again)
+     */
+    private void grow() {
+        int oldSlots[] = slots;
+        int oldHashes[] = hashes;
+        slots = new int[2 * oldSlots.length];
+        hashes = new int[2 * oldSlots.length];
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] != 0) {
+                insert(oldHashes[i], oldSlots[i] - 1);
+            }
+        }
+    }
+
+    /**
+     * key
+     * 
+     * Gets the key of a Node - its name, or the Object it wraps
+     */
+    private Object key(Node node) {
+        return byName ? node.toString() : node.object();
+    }
+
+    /**
+     * matches
+     * 
+     * Whether or not a Node has a specified key
+     */
+    private boolean matches(Node node, Object key) {
+        return byName ? node.toString().equals(key) : node.object() == key;
+    }
+
+    /**
+     * hash
+     * 
+     * Hashes a key (by value for a name, by identity for an Object), with
+     * the bits mixed so that the low bits used to pick a slot depend on all
+     * of them
+     */
+    private int hash(Object key) {
+        int h = byName ? key.hashCode() : System.identityHashCode(key);
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
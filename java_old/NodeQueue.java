@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+/**
+ * NodeQueue interface
+ * 
+ * A NodeQueue is a priority queue of Node ordinals, keyed by an int (the
+ * tentative distance of each Node from some source Node), as used by the
+ * Dijkstra searches of the GraphOperations abstract class. Each ordinal may
+ * be in the queue at most once - pushing an ordinal that is already queued
+ * with a smaller key simply lowers its key.
+ * 
+ * There are two implementations - NodeHeap, a binary heap that accepts any
+ * keys, and BucketQueue, which is faster but requires the keys to grow
+ * monotonically by no more than a fixed amount (see
+ * GraphOperations.nodeQueue for how one is picked for a Graph).
+ * 
+ * @author Steve Rosen
+ */
+public interface NodeQueue {
+    /**
+     * isEmpty
+     * 
+     * Whether or not this NodeQueue holds any ordinals
+     * 
+     * @return  true if this NodeQueue is empty; otherwise false
+     */
+    public boolean isEmpty();
+
+    /**
+     * push
+     * 
+     * Adds an ordinal to this NodeQueue with a specified key - or, if the
+     * ordinal is already queued, lowers its key to the specified key (a
+     * larger key than the current one is ignored)
+     * 
+     * @param   ordinal
+     *          the ordinal to add
+     * 
+     * @param   k
+     *          the key of the ordinal
+     * 
+     * @return  true if the ordinal was added or its key was lowered;
+     *          otherwise false
+     */
+    public boolean push(int ordinal, int k);
+
+    /**
+     * peekKey
+     * 
+     * Gets the smallest key in this NodeQueue without removing its ordinal
+     * 
+     * @return  the smallest key
+     * 
+     * @throws  NoSuchElementException
+     *          if this NodeQueue is empty
+     */
+    public int peekKey();
+
+    /**
+     * pop
+     * 
+     * Removes an ordinal with the smallest key from this NodeQueue
+     * 
+     * @return  the ordinal
+     * 
+     * @throws  NoSuchElementException
+     *          if this NodeQueue is empty
+     */
+    public int pop();
+
+    /**
+     * clear
+     * 
+     * Removes all the ordinals from this NodeQueue so it can be reused
+     */
+    public void clear();
+}
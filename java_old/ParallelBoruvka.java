@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * ParallelBoruvka class
+ * 
+ * ParallelBoruvka finds a minimum spanning forest with Boruvka's algorithm
+ * (see GraphOperations.boruvkaForest) on many threads at once, for Graphs
+ * with millions of Edges. Every round has three steps:
+ * 
+ * 1. The Edges are cut into one chunk per thread. Each thread looks at the
+ * Edges of its chunk, drops the ones that no longer leave their tree, and
+ * offers each of the rest to the trees at both of its ends - every tree has
+ * one slot in an AtomicIntegerArray for the lightest Edge leaving it, which
+ * is only ever replaced by a lighter Edge through compareAndSet, so no
+ * locks are needed.
+ * 
+ * 2. One thread adds the lightest Edge of every tree to the forest, joining
+ * the trees in a union-find forest over the trees themselves - this only
+ * costs as much as there are trees, which at least halves every round.
+ * 
+ * 3. The Nodes are cut into one chunk per thread, and each thread gives the
+ * Nodes of its chunk the label of the tree they are in now.
+ * 
+ * Edges of equal weight are told apart by their index (the same way as
+ * boruvkaForest and kruskalForest do), so the forest is exactly the one
+ * kruskalForest finds.
+ * 
+ * @author Steve Rosen
+ */
+class ParallelBoruvka {
+    private int numNodes;
+    private int from[];
+    private int to[];
+    private int weights[];
+    private int live[];
+    private int chunkStart[];
+    private int chunkSize[];
+    private int label[];
+    private AtomicIntegerArray lightest;
+    private Executor executor;
+    private int numChunks;
+
+    /**
+     * ParallelBoruvka
+     * 
+     * This constructor sets up the search for a minimum spanning forest of
+     * a set of Edges
+     * 
+     * @param   numNodes
+     *          the number of Nodes (the Edges refer to them by ordinal)
+     * 
+     * @param   from
+     *          the ordinal of one end of each Edge
+     * 
+     * @param   to
+     *          the ordinal of the other end of each Edge
+     * 
+     * @param   weights
+     *          the weight of each Edge
+     * 
+     * @param   executor
+     *          the Executor to run the chunks on, or null to run them on the
+     *          calling thread
+     * 
+     * @param   numChunks
+     *          how many chunks to cut the Edges and Nodes into
+     */
+    ParallelBoruvka(int numNodes, int from[], int to[], int weights[],
+            Executor executor, int numChunks) {
+        this.numNodes = numNodes;
+        this.from = from;
+        this.to = to;
+        this.weights = weights;
+        this.executor = executor;
+        this.numChunks = Math.max(numChunks, 1);
+
+        // the indexes of the Edges still worth looking at - each chunk keeps
+        // its own at the front of its own range
+        live = new int[weights.length];
+        chunkStart = new int[this.numChunks];
+        chunkSize = new int[this.numChunks];
+        for (int i = 0; i < live.length; i++) {
+            live[i] = i;
+        }
+        for (int c = 0; c < this.numChunks; c++) {
+            chunkStart[c] = (int) ((long) weights.length * c / this.numChunks);
+            chunkSize[c] = (int) ((long) weights.length * (c + 1) / this.numChunks) - chunkStart[c];
+        }
+
+        label = new int[numNodes];
+        lightest = new AtomicIntegerArray(numNodes);
+        for (int v = 0; v < numNodes; v++) {
+            label[v] = v;
+            lightest.set(v, GraphOperations.NO_NEXT);
+        }
+    }
+
+    /**
+     * run
+     * 
+     * Runs the rounds until no tree has an Edge leaving it
+     * 
+     * @return  the SpanningForest
+     */
+    SpanningForest run() {
+        int forest[][] = new int[3][Math.max(numNodes - 1, 0)];
+        int numEdges = 0;
+
+        // the labels of the trees that may still have Edges leaving them
+        int trees[] = new int[numNodes];
+        int numTrees = numNodes;
+        for (int v = 0; v < numNodes; v++) {
+            trees[v] = v;
+        }
+        int parent[] = new int[numNodes];
+        for (int v = 0; v < numNodes; v++) {
+            parent[v] = v;
+        }
+
+        while (true) {
+            // 1. offer every Edge to the trees at both of its ends
+            ArrayList<Runnable> chunks = new ArrayList<Runnable>();
+            for (int c = 0; c < numChunks; c++) {
+                final int chunk = c;
+                chunks.add(new Runnable() {
+                    public void run() {
+                        offerEdges(chunk);
+                    }
+                });
+            }
+            runAll(chunks);
+
+            // 2. add the lightest Edge of every tree (a tree with none can
+            // never get one, so it is done)
+            int numJoined = 0;
+            int numLeft = 0;
+            for (int t = 0; t < numTrees; t++) {
+                int i = lightest.get(trees[t]);
+                if (i == GraphOperations.NO_NEXT) {
+                    continue;
+                }
+                trees[numLeft++] = trees[t];
+                int root1 = GraphOperations.root(parent, label[from[i]]);
+                int root2 = GraphOperations.root(parent, label[to[i]]);
+                if (root1 != root2) {
+                    parent[root1] = root2;
+                    forest[0][numEdges] = from[i];
+                    forest[1][numEdges] = to[i];
+                    forest[2][numEdges] = weights[i];
+                    numEdges++;
+                    numJoined++;
+                }
+            }
+            if (numJoined == 0) {
+                break;
+            }
+
+            // every joined tree now points straight at its new label, so
+            // the Nodes can be relabelled without touching the union-find
+            for (int t = 0; t < numLeft; t++) {
+                parent[trees[t]] = GraphOperations.root(parent, trees[t]);
+            }
+            numTrees = 0;
+            for (int t = 0; t < numLeft; t++) {
+                if (parent[trees[t]] == trees[t]) {
+                    trees[numTrees++] = trees[t];
+                }
+            }
+
+            // 3. relabel the Nodes, and empty the slots for the next round
+            final int labels[] = parent;
+            chunks.clear();
+            for (int c = 0; c < numChunks; c++) {
+                final int first = (int) ((long) numNodes * c / numChunks);
+                final int last = (int) ((long) numNodes * (c + 1) / numChunks);
+                chunks.add(new Runnable() {
+                    public void run() {
+                        for (int v = first; v < last; v++) {
+                            label[v] = labels[label[v]];
+                            lightest.set(v, GraphOperations.NO_NEXT);
+                        }
+                    }
+                });
+            }
+            runAll(chunks);
+        }
+
+        return new SpanningForest(Arrays.copyOf(forest[0], numEdges),
+                Arrays.copyOf(forest[1], numEdges), Arrays.copyOf(forest[2], numEdges),
+                numNodes - numEdges);
+    }
+
+    /**
+     * offerEdges
+     * 
+     * Offers every Edge of a chunk that still leaves its tree to the trees
+     * at both of its ends, and drops the ones that do not
+     * 
+     * @param   chunk
+     *          the chunk
+     */
+    private void offerEdges(int chunk) {
+        int start = chunkStart[chunk];
+        int kept = 0;
+        for (int k = 0; k < chunkSize[chunk]; k++) {
+            int i = live[start + k];
+            int tree1 = label[from[i]];
+            int tree2 = label[to[i]];
+            if (tree1 != tree2) {
+                live[start + kept++] = i;
+                offer(tree1, i);
+                offer(tree2, i);
+            }
+        }
+        chunkSize[chunk] = kept;
+    }
+
+    /**
+     * offer
+     * 
+     * Makes an Edge the lightest Edge leaving a tree, unless the tree
+     * already has a lighter one
+     * 
+     * @param   tree
+     *          the label of the tree
+     * 
+     * @param   i
+     *          the index of the Edge
+     */
+    private void offer(int tree, int i) {
+        int current = lightest.get(tree);
+        while (GraphOperations.isLighter(weights, i, current)
+                && !lightest.compareAndSet(tree, current, i)) {
+            current = lightest.get(tree);
+        }
+    }
+
+    /**
+     * runAll
+     * 
+     * Runs every chunk on the Executor (or on the calling thread, if there is
+     * no Executor) and waits for all of them to finish
+     * 
+     * @param   chunks
+     *          the chunks to run
+     */
+    private void runAll(ArrayList<Runnable> chunks) {
+        if (executor == null) {
+            for (Runnable chunk : chunks) {
+                chunk.run();
+            }
+            return;
+        }
+
+        ArrayList<FutureTask<Object>> tasks = new ArrayList<FutureTask<Object>>();
+        for (Runnable chunk : chunks) {
+            FutureTask<Object> task = new FutureTask<Object>(chunk, null);
+            tasks.add(task);
+            executor.execute(task);
+        }
+        for (FutureTask<Object> task : tasks) {
+            GraphOperations.await(task);
+        }
+    }
+}
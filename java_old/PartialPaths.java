@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Vector;
+
+/**
+ * PartialPaths class
+ * 
+ * PartialPaths is the vector of current Paths of the minPaths search, along
+ * with what the search needs to know about them as Paths are added and
+ * removed again (always the last one first) - their weight, which input
+ * Nodes they reach, whether they are connected, and a lower bound on what it
+ * would cost to reach the rest - kept up to date one Path at a time, rather
+ * than worked out again from all the Paths every time. Adding or removing a
+ * Path costs about as much as the Path is long.
+ * 
+ * The weight is the same as GraphOperations.getPathsWeight gives for the
+ * Paths: every Edge is counted once, no matter how many of the Paths use
+ * it. The Edges are kept as the arcs of the FrozenGraph searched (by the
+ * ordinals of their two ends, weighed by FrozenGraph.arcWeight), so the
+ * Nodes need no Edges of their own. The input Nodes not yet reached are kept as a bitset (one bit per
+ * input Node), and the Nodes that are reached are joined up in a union-find
+ * forest (by Node ordinal) that can undo its joins, most recent first - so
+ * the Paths are connected when the number of Nodes reached, less the number
+ * of joins made, is exactly one.
+ * 
+ * @author Steve Rosen
+ */
+class PartialPaths {
+    private FrozenGraph graph;
+    private Vector<Path> paths;
+    private int weights[];
+    private int numJoins[];
+    private HashMap<Long, Integer> edgeCounts;
+    private int inputIndex[];
+    private int inputs[];
+    private int cheapestEdge[];
+    private long missing[];
+    private boolean listedTwice;
+    private int reached[];
+    private int numReached;
+    private int parent[];
+    private int size[];
+    private int joined[];
+    private int numJoined;
+
+    /**
+     * PartialPaths
+     * 
+     * This constructor creates an empty PartialPaths for a FrozenGraph and
+     * its input Nodes
+     * 
+     * @param   graph
+     *          the FrozenGraph being searched
+     * 
+     * @param   inputNodes
+     *          the input Nodes to be connected
+     */
+    PartialPaths(FrozenGraph graph, ArrayList<Node> inputNodes) {
+        int numNodes = graph.numNodes();
+        this.graph = graph;
+        paths = new Vector<Path>();
+        weights = new int[16];
+        numJoins = new int[16];
+        edgeCounts = new HashMap<Long, Integer>();
+        inputIndex = new int[numNodes];
+        reached = new int[numNodes];
+        parent = new int[numNodes];
+        size = new int[numNodes];
+        // every join leaves one tree fewer, so there are never more than
+        // numNodes - 1 joins to undo
+        joined = new int[numNodes];
+        for (int v = 0; v < numNodes; v++) {
+            parent[v] = v;
+            size[v] = 1;
+        }
+
+        // an input Node listed twice is never found the second time (see
+        // GraphOperations.allNodesInPathVec), so keep track of that too
+        int numInputs = 0;
+        inputs = new int[inputNodes.size()];
+        cheapestEdge = new int[inputNodes.size()];
+        Arrays.fill(inputIndex, GraphOperations.NO_NEXT);
+        for (Node node : inputNodes) {
+            if (inputIndex[node.ordinal()] != GraphOperations.NO_NEXT) {
+                listedTwice = true;
+                continue;
+            }
+            inputIndex[node.ordinal()] = numInputs;
+            inputs[numInputs] = node.ordinal();
+            cheapestEdge[numInputs] = GraphOperations.INFINITY;
+            for (int a = graph.offsets().get(node.ordinal());
+                    a < graph.offsets().get(node.ordinal() + 1); a++) {
+                cheapestEdge[numInputs] = Math.min(cheapestEdge[numInputs],
+                        graph.weights().get(a));
+            }
+            numInputs++;
+        }
+        inputs = Arrays.copyOf(inputs, numInputs);
+        cheapestEdge = Arrays.copyOf(cheapestEdge, numInputs);
+
+        // every input Node starts out missing
+        missing = new long[(numInputs + 63) / 64];
+        for (int i = 0; i < numInputs; i++) {
+            missing[i >> 6] |= 1L << i;
+        }
+    }
+
+    /**
+     * paths
+     * 
+     * Gets the vector of current Paths (which must only be changed through
+     * add and removeLast)
+     * 
+     * @return  the vector of Paths
+     */
+    Vector<Path> paths() {
+        return paths;
+    }
+
+    /**
+     * add
+     * 
+     * Adds a Path to the end of the current Paths
+     * 
+     * @param   path
+     *          the Path to add
+     */
+    void add(Path path) {
+        int weight = weight();
+        int joins = 0;
+        for (int i = 0; i < path.size() - 1; i++) {
+            int from = path.get(i).ordinal();
+            int to = path.get(i + 1).ordinal();
+            Long arc = arc(from, to);
+            Integer count = edgeCounts.get(arc);
+            if (count == null) {
+                edgeCounts.put(arc, 1);
+                weight += graph.arcWeight(from, to);
+            } else {
+                edgeCounts.put(arc, count + 1);
+            }
+            if (join(path.get(i).ordinal(), path.get(i + 1).ordinal())) {
+                joins++;
+            }
+        }
+        for (Node node : path.nodes()) {
+            int v = node.ordinal();
+            if (reached[v]++ == 0) {
+                numReached++;
+                if (inputIndex[v] != GraphOperations.NO_NEXT) {
+                    missing[inputIndex[v] >> 6] &= ~(1L << inputIndex[v]);
+                }
+            }
+        }
+
+        // the weight and joins of each Path go on stacks of their own, kept
+        // as deep as the vector of Paths
+        int top = paths.size();
+        if (top == weights.length) {
+            weights = Arrays.copyOf(weights, 2 * top);
+            numJoins = Arrays.copyOf(numJoins, 2 * top);
+        }
+        weights[top] = weight;
+        numJoins[top] = joins;
+        paths.add(path);
+    }
+
+    /**
+     * removeLast
+     * 
+     * Removes the last Path added from the current Paths
+     */
+    void removeLast() {
+        Path path = paths.remove(paths.size() - 1);
+        for (int joins = numJoins[paths.size()]; joins > 0; joins--) {
+            int child = joined[--numJoined];
+            size[parent[child]] -= size[child];
+            parent[child] = child;
+        }
+        for (int i = 0; i < path.size() - 1; i++) {
+            Long arc = arc(path.get(i).ordinal(), path.get(i + 1).ordinal());
+            int count = edgeCounts.get(arc);
+            if (count == 1) {
+                edgeCounts.remove(arc);
+            } else {
+                edgeCounts.put(arc, count - 1);
+            }
+        }
+        for (Node node : path.nodes()) {
+            int v = node.ordinal();
+            if (--reached[v] == 0) {
+                numReached--;
+                if (inputIndex[v] != GraphOperations.NO_NEXT) {
+                    missing[inputIndex[v] >> 6] |= 1L << inputIndex[v];
+                }
+            }
+        }
+    }
+
+    /**
+     * weight
+     * 
+     * Gets the weight of the current Paths
+     * 
+     * @return  the weight
+     */
+    int weight() {
+        return paths.isEmpty() ? 0 : weights[paths.size() - 1];
+    }
+
+    /**
+     * hasAllInputNodes
+     * 
+     * @return  true if the current Paths reach every input Node (the same as
+     *          GraphOperations.allNodesInPathVec)
+     */
+    boolean hasAllInputNodes() {
+        if (listedTwice) {
+            return false;
+        }
+        for (long word : missing) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * isConnected
+     * 
+     * @return  true if the Nodes of the current Paths are all connected to
+     *          one another (the same as building a Graph from the Paths and
+     *          asking it, see Graph.isConnected)
+     */
+    boolean isConnected() {
+        return numReached - numJoined == 1;
+    }
+
+    /**
+     * lowerBound
+     * 
+     * Gets a lower bound on how much weight any Paths added to the current
+     * Paths must add to reach the input Nodes they are still missing - each
+     * missing input Node needs at least its cheapest Edge (none of its Edges
+     * can be on the current Paths yet), and one Edge can reach at most two
+     * missing input Nodes.
+     * 
+     * @return  the lower bound, or GraphOperations.INFINITY if a missing
+     *          input Node has no Edges at all
+     */
+    int lowerBound() {
+        long total = 0;
+        for (int w = 0; w < missing.length; w++) {
+            for (long word = missing[w]; word != 0; word &= word - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                if (cheapestEdge[i] == GraphOperations.INFINITY) {
+                    return GraphOperations.INFINITY;
+                }
+                total += cheapestEdge[i];
+            }
+        }
+        return (int) ((total + 1) / 2);
+    }
+
+    /**
+     * join
+     * 
+     * Joins the union-find trees of two Nodes (the smaller tree goes under
+     * the larger one), remembering the join so it can be undone
+     * 
+     * @param   v
+     *          the ordinal of one Node
+     * 
+     * @param   u
+     *          the ordinal of the other Node
+     * 
+     * @return  true if the Nodes were in different trees
+     */
+    private boolean join(int v, int u) {
+        // no path compression, so that a join only ever changes one parent
+        while (parent[v] != v) {
+            v = parent[v];
+        }
+        while (parent[u] != u) {
+            u = parent[u];
+        }
+        if (v == u) {
+            return false;
+        }
+        if (size[v] < size[u]) {
+            int swap = v;
+            v = u;
+            u = swap;
+        }
+        parent[u] = v;
+        size[v] += size[u];
+        joined[numJoined++] = u;
+        return true;
+    }
+
+    /**
+     * arc
+     * 
+     * @param   from
+     *          the ordinal of the Node an arc leaves
+     * 
+     * @param   to
+     *          the ordinal of the Node the arc goes to
+     * 
+     * @return  the key of the arc (one way only, just as each Edge of a Node
+     *          only goes one way)
+     */
+    private Long arc(int from, int to) {
+        return Long.valueOf((long) from * graph.numNodes() + to);
+    }
+}
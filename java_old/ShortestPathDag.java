@@ -0,0 +1,371 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Vector;
+
+/**
+ * ShortestPathDag class
+ * 
+ * A ShortestPathDag holds ALL the shortest Paths from a source Node to a
+ * destination Node without holding any Path objects - just the Nodes that
+ * lie on at least one of those Paths, and for each of them, the Edges that
+ * lead on to the next Node of one of those Paths (the "tight" Edges). The
+ * number of shortest Paths can grow exponentially with the size of the
+ * Graph (think of all the ways across a grid), but the size of this DAG
+ * (directed acyclic graph) only grows with the number of Edges on them.
+ * 
+ * The Paths themselves are generated one at a time, on demand, by iterating
+ * over the ShortestPathDag - in the same order an exhaustive depth-first
+ * search that visits Edges in Node ordinal order would find them.
+ * 
+ * Internally, the DAG Nodes are numbered in the order they were discovered
+ * (so the source Node is DAG Node 0), and the Edges leaving DAG Node i are
+ * the entries offsets[i] through offsets[i + 1] - 1 of the "targets" (DAG
+ * Node numbers) and "weights" arrays.
+ * 
+ * @author Steve Rosen
+ */
+public class ShortestPathDag implements Iterable<Path> {
+    private Node nodes[];
+    private int offsets[];
+    private int targets[];
+    private int weights[];
+    private int weight;
+    private int destination;
+
+    /**
+     * Remaining interface
+     * 
+     * Tells a ShortestPathDag being built the shortest distance from any Node
+     * to the destination Node (whichever shortest path engine is building
+     * it knows how to work that out).
+     */
+    interface Remaining {
+        /**
+         * remaining
+         * 
+         * @param   node
+         *          the Node
+         * 
+         * @return  the shortest distance from the Node to the destination
+         *          Node, or GraphOperations.INFINITY if there is none (or if
+         *          the Node is known not to be on a shortest Path)
+         */
+        int remaining(Node node);
+    }
+
+    /**
+     * ShortestPathDag
+     * 
+     * This constructor builds the DAG of all the shortest Paths from a source
+     * Node to a destination Node, by walking forwards from the source Node
+     * over every Edge whose weight, plus the remaining distance from its
+     * "to" Node, is exactly the remaining distance from its "from" Node.
+     * 
+     * @param   graph
+     *          the Graph, laid out in CSR form (see Graph.freeze)
+     * 
+     * @param   src
+     *          the source Node
+     * 
+     * @param   dst
+     *          the destination Node
+     * 
+     * @param   remaining
+     *          the remaining distance from each Node to the destination Node
+     */
+    ShortestPathDag(FrozenGraph graph, Node src, Node dst, Remaining remaining) {
+        int total = remaining.remaining(src);
+        weight = total;
+        if (total == GraphOperations.INFINITY) {
+            nodes = new Node[0];
+            offsets = new int[1];
+            targets = new int[0];
+            weights = new int[0];
+            destination = -1;
+            return;
+        }
+
+        // discover the DAG Nodes breadth first, numbering them as we go, and
+        // collect the tight Edges leaving each of them - the DAG Node number
+        // (or -1) and remaining distance of each Node are indexed by ordinal,
+        // and since a remaining distance may be INFINITY, whether it has
+        // been asked for yet is kept apart
+        int number[] = new int[graph.numNodes()];
+        int asked[] = new int[graph.numNodes()];
+        boolean isAsked[] = new boolean[graph.numNodes()];
+        Arrays.fill(number, -1);
+        Vector<Node> found = new Vector<Node>();
+        int foundRemaining[] = new int[4];
+        int edgeCount = 0;
+        int edgeTargets[] = new int[4];
+        int edgeWeights[] = new int[4];
+        int edgeOffsets[] = new int[5];
+
+        number[src.ordinal()] = 0;
+        asked[src.ordinal()] = total;
+        isAsked[src.ordinal()] = true;
+        found.add(src);
+        foundRemaining[0] = total;
+        IntBuffer graphOffsets = graph.offsets();
+        IntBuffer graphTargets = graph.targets();
+        IntBuffer graphWeights = graph.weights();
+        for (int i = 0; i < found.size(); i++) {
+            Node node = found.get(i);
+            if (edgeOffsets.length < i + 2) {
+                edgeOffsets = Arrays.copyOf(edgeOffsets, 2 * edgeOffsets.length);
+            }
+            edgeOffsets[i] = edgeCount;
+            if (node.ordinal() == dst.ordinal()) {
+                continue;
+            }
+
+            int nodeRemaining = foundRemaining[i];
+            int v = node.ordinal();
+            for (int a = graphOffsets.get(v); a < graphOffsets.get(v + 1); a++) {
+                int to = graphTargets.get(a);
+                int edgeWeight = graphWeights.get(a);
+                if (edgeWeight > nodeRemaining) {
+                    continue;
+                }
+
+                // ask for each Node's remaining distance only once
+                if (!isAsked[to]) {
+                    asked[to] = remaining.remaining(graph.node(to));
+                    isAsked[to] = true;
+                }
+                int toRemaining = asked[to];
+                if (toRemaining == GraphOperations.INFINITY
+                        || edgeWeight + toRemaining != nodeRemaining) {
+                    continue;
+                }
+
+                int toNumber = number[to];
+                if (toNumber == -1) {
+                    toNumber = found.size();
+                    number[to] = toNumber;
+                    found.add(graph.node(to));
+                    if (foundRemaining.length == toNumber) {
+                        foundRemaining = Arrays.copyOf(foundRemaining, 2 * toNumber);
+                    }
+                    foundRemaining[toNumber] = toRemaining;
+                }
+
+                if (edgeCount == edgeTargets.length) {
+                    edgeTargets = Arrays.copyOf(edgeTargets, 2 * edgeCount);
+                    edgeWeights = Arrays.copyOf(edgeWeights, 2 * edgeCount);
+                }
+                edgeTargets[edgeCount] = toNumber;
+                edgeWeights[edgeCount] = edgeWeight;
+                edgeCount++;
+            }
+        }
+
+        nodes = found.toArray(new Node[0]);
+        offsets = Arrays.copyOf(edgeOffsets, nodes.length + 1);
+        offsets[nodes.length] = edgeCount;
+        targets = Arrays.copyOf(edgeTargets, edgeCount);
+        weights = Arrays.copyOf(edgeWeights, edgeCount);
+        destination = number[dst.ordinal()];
+    }
+
+    /**
+     * source
+     * 
+     * Gets the source Node of this ShortestPathDag
+     * 
+     * @return  the source Node
+     */
+    public Node source() {
+        return nodes.length > 0 ? nodes[0] : null;
+    }
+
+    /**
+     * weight
+     * 
+     * Gets the weight of every Path in this ShortestPathDag (the shortest
+     * distance from the source Node to the destination Node)
+     * 
+     * @return  the weight, or GraphOperations.INFINITY if the destination
+     *          Node cannot be reached from the source Node
+     */
+    public int weight() {
+        return weight;
+    }
+
+    /**
+     * isEmpty
+     * 
+     * Whether or not this ShortestPathDag holds no Paths at all (i.e., the
+     * destination Node cannot be reached from the source Node)
+     * 
+     * @return  true if there are no Paths; otherwise false
+     */
+    public boolean isEmpty() {
+        return weight == GraphOperations.INFINITY;
+    }
+
+    /**
+     * numNodes
+     * 
+     * Gets the number of Nodes that lie on the Paths of this ShortestPathDag
+     * 
+     * @return  the number of Nodes
+     */
+    public int numNodes() {
+        return nodes.length;
+    }
+
+    /**
+     * numEdges
+     * 
+     * Gets the number of Edges that lie on the Paths of this ShortestPathDag
+     * 
+     * @return  the number of Edges
+     */
+    public int numEdges() {
+        return targets.length;
+    }
+
+    /**
+     * paths
+     * 
+     * Generates ALL the Paths of this ShortestPathDag at once
+     * 
+     * @return  the vector of Paths (empty if there are no Paths)
+     */
+    public Vector<Path> paths() {
+        Vector<Path> paths = new Vector<Path>();
+        for (Path path : this) {
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    /**
+     * iterator
+     * 
+     * Gets an Iterator that generates the Paths of this ShortestPathDag one
+     * at a time - each Path is a new Path object, built only when it is
+     * asked for
+     * 
+     * @return  the Iterator
+     */
+    public Iterator<Path> iterator() {
+        return new PathIterator();
+    }
+
+    /**
+     * PathIterator class
+     * 
+     * Walks the DAG depth first with an explicit stack of (DAG Node, next
+     * Edge to try) pairs, stopping each time the walk reaches the
+     * destination Node. Zero-weight Edges can make the "DAG" contain cycles,
+     * so, just like the original exhaustive search, a Node already on the
+     * current Path is never stepped to again.
+     */
+    private class PathIterator implements Iterator<Path> {
+        private int stackNode[] = new int[nodes.length];
+        private int stackEdge[] = new int[nodes.length];
+        private boolean onPath[] = new boolean[nodes.length];
+        private int depth;
+        private Path next;
+
+        PathIterator() {
+            if (destination >= 0) {
+                stackNode[0] = 0;
+                stackEdge[0] = offsets[0];
+                onPath[0] = true;
+                depth = 1;
+                next = (destination == 0) ? buildPath() : advance();
+            }
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public Path next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Path path = next;
+            next = advance();
+            return path;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * advance
+         * 
+         * Continues the depth first walk until it reaches the destination
+         * Node again
+         * 
+         * @return  the next Path, or null if there are no more
+         */
+        private Path advance() {
+            while (depth > 0) {
+                int top = depth - 1;
+                int n = stackNode[top];
+                if (stackEdge[top] == offsets[n + 1]) {
+                    onPath[n] = false;
+                    depth--;
+                    continue;
+                }
+
+                int to = targets[stackEdge[top]++];
+                if (onPath[to]) {
+                    continue;
+                }
+                stackNode[depth] = to;
+                stackEdge[depth] = offsets[to];
+                onPath[to] = true;
+                depth++;
+                if (to == destination) {
+                    return buildPath();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * buildPath
+         * 
+         * Builds the Path currently on the stack
+         */
+        private Path buildPath() {
+            Path path = new Path(nodes[stackNode[0]]);
+            for (int i = 1; i < depth; i++) {
+                int edge = stackEdge[i - 1] - 1;
+                path.addNode(nodes[stackNode[i]], weights[edge]);
+            }
+            return path;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.nio.IntBuffer;
+import java.util.Vector;
+
+/**
+ * ShortestPathTree class
+ * 
+ * A ShortestPathTree holds the result of a single-source shortest path search
+ * (see GraphOperations.shortestPathTree) - the shortest distance from one
+ * source Node to every other Node of a Graph, indexed by Node ordinal.
+ * 
+ * Since the distances are computed once per source Node, the shortest Paths
+ * from that source Node to any number of destination Nodes can then be
+ * generated without searching the Graph again. When there is more than one
+ * shortest Path to a destination Node (i.e., "alternate" Paths of equal
+ * weight), ALL of them are held in a ShortestPathDag, which generates them
+ * in the same order an exhaustive depth-first search that visits Edges in
+ * Node ordinal order would find them.
+ * 
+ * @author Steve Rosen
+ */
+public class ShortestPathTree {
+    private Graph graph;
+    private FrozenGraph frozen;
+    private Node source;
+    private int distance[];
+
+    /**
+     * ShortestPathTree
+     * 
+     * This constructor creates a ShortestPathTree for a source Node from an
+     * array of shortest distances (indexed by Node ordinal) that has already
+     * been computed for that source Node
+     * 
+     * @param   graph
+     *          the Graph that was searched
+     * 
+     * @param   source
+     *          the source Node of the search
+     * 
+     * @param   distance
+     *          the shortest distance from the source Node to every Node of
+     *          the Graph (GraphOperations.INFINITY if not reachable)
+     */
+    public ShortestPathTree(Graph graph, Node source, int distance[]) {
+        this(graph.freeze(), source, distance);
+        this.graph = graph;
+    }
+
+    /**
+     * ShortestPathTree
+     * 
+     * This constructor creates a ShortestPathTree for a source Node of a
+     * FrozenGraph from an array of shortest distances (indexed by Node
+     * ordinal) that has already been computed for that source Node
+     * 
+     * @param   frozen
+     *          the FrozenGraph that was searched
+     * 
+     * @param   source
+     *          the source Node of the search
+     * 
+     * @param   distance
+     *          the shortest distance from the source Node to every Node of
+     *          the FrozenGraph (GraphOperations.INFINITY if not reachable)
+     */
+    public ShortestPathTree(FrozenGraph frozen, Node source, int distance[]) {
+        this.frozen = frozen;
+        this.source = source;
+        this.distance = distance;
+    }
+
+    /**
+     * graph
+     * 
+     * Gets the Graph that was searched
+     * 
+     * @return  the Graph, or null if a FrozenGraph was searched
+     */
+    public Graph graph() {
+        return graph;
+    }
+
+    /**
+     * frozenGraph
+     * 
+     * Gets the FrozenGraph that was searched (see Graph.freeze)
+     * 
+     * @return  the FrozenGraph
+     */
+    public FrozenGraph frozenGraph() {
+        return frozen;
+    }
+
+    /**
+     * source
+     * 
+     * Gets the source Node of this ShortestPathTree
+     * 
+     * @return  the source Node
+     */
+    public Node source() {
+        return source;
+    }
+
+    /**
+     * distance
+     * 
+     * Gets the shortest distance from the source Node to a specified Node
+     * 
+     * @param   node
+     *          the destination Node
+     * 
+     * @return  the distance, or GraphOperations.INFINITY if the Node cannot
+     *          be reached from the source Node
+     */
+    public int distance(Node node) {
+        return distance[node.ordinal()];
+    }
+
+    /**
+     * isReachable
+     * 
+     * Whether or not a specified Node can be reached from the source Node
+     * 
+     * @param   node
+     *          the destination Node
+     * 
+     * @return  true if the Node can be reached; otherwise false
+     */
+    public boolean isReachable(Node node) {
+        return distance[node.ordinal()] != GraphOperations.INFINITY;
+    }
+
+    /**
+     * pathsTo
+     * 
+     * Gets all the shortest Paths from the source Node to a specified
+     * destination Node (see dagTo).
+     * 
+     * @param   dst
+     *          the destination Node
+     * 
+     * @return  the vector of shortest Paths (empty if the destination Node
+     *          cannot be reached from the source Node)
+     */
+    public Vector<Path> pathsTo(Node dst) {
+        return dagTo(dst).paths();
+    }
+
+    /**
+     * dagTo
+     * 
+     * Gets the ShortestPathDag of all the shortest Paths from the source Node
+     * to a specified destination Node.
+     * 
+     * First, we walk backwards from the destination Node over "tight" Edges
+     * (Edges whose weight is exactly the difference between the shortest
+     * distances of their two Nodes) to mark every Node that lies on SOME
+     * shortest Path to the destination Node. The remaining distance from
+     * each marked Node to the destination Node is then just the difference
+     * of their distances from the source Node, which is all the
+     * ShortestPathDag needs to walk forwards from the source Node.
+     * 
+     * @param   dst
+     *          the destination Node
+     * 
+     * @return  the ShortestPathDag
+     */
+    public ShortestPathDag dagTo(Node dst) {
+        final int total = distance[dst.ordinal()];
+        final boolean onShortestPath[] = (total == GraphOperations.INFINITY)
+                ? new boolean[distance.length] : markShortestPathNodes(dst);
+
+        return new ShortestPathDag(frozen, source, dst, new ShortestPathDag.Remaining() {
+            public int remaining(Node node) {
+                int n = node.ordinal();
+                return onShortestPath[n] ? total - distance[n] : GraphOperations.INFINITY;
+            }
+        });
+    }
+
+    /**
+     * markShortestPathNodes
+     * 
+     * Marks (by Node ordinal) every Node that lies on some shortest Path from
+     * the source Node to a specified destination Node
+     * 
+     * @param   dst
+     *          the destination Node
+     * 
+     * @return  the array of marks, indexed by Node ordinal
+     */
+    private boolean[] markShortestPathNodes(Node dst) {
+        IntBuffer offsets = frozen.offsets();
+        IntBuffer targets = frozen.targets();
+        IntBuffer weights = frozen.weights();
+        boolean marked[] = new boolean[distance.length];
+        int nodesToVisit[] = new int[distance.length];
+        int numToVisit = 0;
+        marked[dst.ordinal()] = true;
+        nodesToVisit[numToVisit++] = dst.ordinal();
+
+        while (numToVisit > 0) {
+            int n = nodesToVisit[--numToVisit];
+            int nDistance = distance[n];
+            for (int a = offsets.get(n); a < offsets.get(n + 1); a++) {
+                int other = targets.get(a);
+                if (!marked[other]
+                        && distance[other] != GraphOperations.INFINITY
+                        && distance[other] + weights.get(a) == nDistance) {
+                    marked[other] = true;
+                    nodesToVisit[numToVisit++] = other;
+                }
+            }
+        }
+
+        return marked;
+    }
+}
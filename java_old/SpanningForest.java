@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+/**
+ * SpanningForest class
+ * 
+ * A SpanningForest is a minimum spanning forest of a Graph - for every
+ * connected piece ("component") of the Graph, a tree of its Edges that
+ * reaches all of its Nodes with the smallest possible total weight (so for
+ * a connected Graph, it is a minimum spanning tree). It is what the minimum
+ * spanning tree engines of GraphOperations build.
+ * 
+ * The Edges are kept as primitive arrays - Edge i of the forest goes from
+ * the Node with ordinal from()[i] to the Node with ordinal to()[i], and
+ * weighs weights()[i] - in the order the engine added them.
+ * 
+ * @author Steve Rosen
+ */
+public class SpanningForest {
+    private int from[];
+    private int to[];
+    private int weights[];
+    private int numComponents;
+    private long totalWeight;
+
+    /**
+     * SpanningForest
+     * 
+     * This constructor creates a SpanningForest from the Edges that make it
+     * up
+     * 
+     * @param   from
+     *          the ordinal of one end of each Edge
+     * 
+     * @param   to
+     *          the ordinal of the other end of each Edge
+     * 
+     * @param   weights
+     *          the weight of each Edge
+     * 
+     * @param   numComponents
+     *          the number of trees in the forest (the number of connected
+     *          pieces of the Graph)
+     */
+    SpanningForest(int from[], int to[], int weights[], int numComponents) {
+        this.from = from;
+        this.to = to;
+        this.weights = weights;
+        this.numComponents = numComponents;
+        for (int weight : weights) {
+            totalWeight += weight;
+        }
+    }
+
+    /**
+     * numEdges
+     * 
+     * Gets the number of Edges in this SpanningForest
+     * 
+     * @return  the number of Edges
+     */
+    public int numEdges() {
+        return weights.length;
+    }
+
+    /**
+     * from
+     * 
+     * Gets the ordinal of one end of every Edge in this SpanningForest
+     * 
+     * @return  the array of ordinals
+     */
+    public int[] from() {
+        return from;
+    }
+
+    /**
+     * to
+     * 
+     * Gets the ordinal of the other end of every Edge in this SpanningForest
+     * 
+     * @return  the array of ordinals
+     */
+    public int[] to() {
+        return to;
+    }
+
+    /**
+     * weights
+     * 
+     * Gets the weight of every Edge in this SpanningForest
+     * 
+     * @return  the array of weights
+     */
+    public int[] weights() {
+        return weights;
+    }
+
+    /**
+     * numComponents
+     * 
+     * Gets the number of trees in this SpanningForest
+     * 
+     * @return  the number of trees (1 if the Graph is connected)
+     */
+    public int numComponents() {
+        return numComponents;
+    }
+
+    /**
+     * totalWeight
+     * 
+     * Gets the total weight of the Edges in this SpanningForest
+     * 
+     * @return  the total weight
+     */
+    public long totalWeight() {
+        return totalWeight;
+    }
+}
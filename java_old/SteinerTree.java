@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Stack;
+import java.util.Vector;
+
+/**
+ * SteinerTree class
+ * 
+ * A SteinerTree is a tree of Edges of a Graph (or of a FrozenGraph) that
+ * connects a set of "terminal" Nodes (the input Nodes of minPaths) to one
+ * another, possibly through other Nodes of the Graph (the "Steiner" Nodes).
+ * It is what the Steiner tree engines of GraphOperations build, and it can
+ * be turned back into the vector of Paths that minPaths returns - the tree
+ * is walked along the arcs of the FrozenGraph, so that works for the Nodes
+ * of a mapped GraphFile too, which have no Edges of their own.
+ * 
+ * @author Steve Rosen
+ */
+public class SteinerTree {
+    private FrozenGraph graph;
+    private Node nodes[];
+    private boolean terminal[];
+    private int degree[];
+    private HashMap<Long, Edge> edgesByKey;
+    private Vector<Edge> edges;
+    private int weight;
+
+    /**
+     * SteinerTree
+     * 
+     * This constructor creates a SteinerTree from the Edges that make it up
+     * - an Edge that is listed more than once (in either direction) is only
+     * counted once.
+     * 
+     * @param   graph
+     *          the FrozenGraph the Edges belong to (see FrozenGraph.edge)
+     * 
+     * @param   terminals
+     *          the terminal Nodes the tree connects
+     * 
+     * @param   treeEdges
+     *          the Edges of the tree
+     */
+    SteinerTree(FrozenGraph graph, ArrayList<Node> terminals, Vector<Edge> treeEdges) {
+        this.graph = graph;
+        nodes = graph.nodes();
+        terminal = new boolean[nodes.length];
+        degree = new int[nodes.length];
+        edgesByKey = new HashMap<Long, Edge>();
+        edges = new Vector<Edge>();
+        weight = 0;
+
+        for (Node node : terminals) {
+            terminal[node.ordinal()] = true;
+        }
+        for (Edge edge : treeEdges) {
+            long key = key(edge.from().ordinal(), edge.to().ordinal());
+            if (!edgesByKey.containsKey(key)) {
+                edgesByKey.put(key, edge);
+                edges.add(edge);
+                degree[edge.from().ordinal()]++;
+                degree[edge.to().ordinal()]++;
+                weight += edge.weight();
+            }
+        }
+    }
+
+    /**
+     * weight
+     * 
+     * Gets the total weight of the Edges of this SteinerTree
+     * 
+     * @return  the weight
+     */
+    public int weight() {
+        return weight;
+    }
+
+    /**
+     * edges
+     * 
+     * Gets the Edges of this SteinerTree
+     * 
+     * @return  the vector of Edges
+     */
+    public Vector<Edge> edges() {
+        return edges;
+    }
+
+    /**
+     * paths
+     * 
+     * Splits this SteinerTree back up into the vector of Paths that minPaths
+     * returns. The tree is walked from its top Node (the Node with the
+     * fewest tree Edges, and of those, the one with the smallest ordinal -
+     * just like Graph.findTopNode), and every Path runs from a terminal Node
+     * or a branching Node to the next terminal Node or branching Node - so
+     * the first Path starts with the top Node, and every Edge of the tree is
+     * on exactly one Path.
+     * 
+     * When the tree does not reach every terminal Node (the terminal Nodes
+     * are not all connected in the Graph), there are no Paths at all - just
+     * as minPaths finds none for input Nodes that cannot all be connected.
+     * 
+     * @return  the vector of Paths (empty if there are no terminal Nodes, or
+     *          they are not all connected by the tree)
+     */
+    public Vector<Path> paths() {
+        Vector<Path> paths = new Vector<Path>();
+
+        // find the top Node - a lone terminal Node has no tree Edges at all
+        Node top = null;
+        for (Node node : nodes) {
+            if ((degree[node.ordinal()] > 0 || terminal[node.ordinal()])
+                    && (top == null || degree[node.ordinal()] < degree[top.ordinal()])) {
+                top = node;
+            }
+        }
+        if (top == null) {
+            return paths;
+        } else if (degree[top.ordinal()] == 0) {
+            if (terminalCount() == 1) {
+                paths.add(new Path(top));
+            }
+            return paths;
+        }
+
+        // walk the tree from the top Node - every Path from a Node is
+        // followed until it reaches the next terminal or branching Node,
+        // which is then pushed so the Paths from it get walked too
+        IntBuffer offsets = graph.offsets();
+        IntBuffer targets = graph.targets();
+        IntBuffer weights = graph.weights();
+        boolean visited[] = new boolean[nodes.length];
+        Stack<Node> nodesToVisit = new Stack<Node>();
+        visited[top.ordinal()] = true;
+        nodesToVisit.push(top);
+        while (!nodesToVisit.isEmpty()) {
+            Node start = nodesToVisit.pop();
+            Stack<Node> ends = new Stack<Node>();
+            int v = start.ordinal();
+            for (int a = offsets.get(v); a < offsets.get(v + 1); a++) {
+                if (!isTreeArc(v, targets.get(a), weights.get(a))
+                        || visited[targets.get(a)]) {
+                    continue;
+                }
+
+                Path path = new Path(start);
+                int next = a;
+                while (next != GraphOperations.NO_NEXT) {
+                    int u = targets.get(next);
+                    path.addNode(nodes[u], weights.get(next));
+                    visited[u] = true;
+                    next = (terminal[u] || degree[u] != 2)
+                            ? GraphOperations.NO_NEXT : nextTreeArc(u, visited);
+                }
+                paths.add(path);
+                ends.push(path.lastNode());
+            }
+
+            // walk on from the end of the first Path first
+            while (!ends.isEmpty()) {
+                nodesToVisit.push(ends.pop());
+            }
+        }
+
+        // a terminal Node the walk never reached is not connected to the rest
+        for (Node node : nodes) {
+            if (terminal[node.ordinal()] && !visited[node.ordinal()]) {
+                return new Vector<Path>();
+            }
+        }
+
+        return paths;
+    }
+
+    /**
+     * terminalCount
+     * 
+     * Counts the (distinct) terminal Nodes of this SteinerTree
+     * 
+     * @return  the number of terminal Nodes
+     */
+    private int terminalCount() {
+        int count = 0;
+        for (boolean isTerminal : terminal) {
+            if (isTerminal) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * isTreeArc
+     * 
+     * @param   from
+     *          the ordinal of the Node an arc of the FrozenGraph leaves
+     * 
+     * @param   to
+     *          the ordinal of the Node the arc goes to
+     * 
+     * @param   weight
+     *          the weight of the arc
+     * 
+     * @return  true if the Edge of the arc (or its reverse) is in this
+     *          SteinerTree
+     */
+    private boolean isTreeArc(int from, int to, int weight) {
+        Edge treeEdge = edgesByKey.get(key(from, to));
+        return treeEdge != null && treeEdge.weight() == weight;
+    }
+
+    /**
+     * nextTreeArc
+     * 
+     * @param   v
+     *          the ordinal of a Node of this SteinerTree
+     * 
+     * @param   visited
+     *          the Nodes (by ordinal) already walked
+     * 
+     * @return  the first tree arc of the Node that leads to a Node not yet
+     *          walked, or GraphOperations.NO_NEXT if there is none
+     */
+    private int nextTreeArc(int v, boolean visited[]) {
+        IntBuffer offsets = graph.offsets();
+        IntBuffer targets = graph.targets();
+        IntBuffer weights = graph.weights();
+        for (int a = offsets.get(v); a < offsets.get(v + 1); a++) {
+            if (isTreeArc(v, targets.get(a), weights.get(a)) && !visited[targets.get(a)]) {
+                return a;
+            }
+        }
+        return GraphOperations.NO_NEXT;
+    }
+
+    /**
+     * key
+     * 
+     * @param   from
+     *          the ordinal of one end of an Edge
+     * 
+     * @param   to
+     *          the ordinal of the other end of the Edge
+     * 
+     * @return  the same key for the Edge in either direction
+     */
+    private long key(int from, int to) {
+        return (long) Math.min(from, to) * nodes.length + Math.max(from, to);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2005 - 2011 Jaspersoft Corporation. All rights reserved.
+ * http://www.jaspersoft.com.
+ *
+ * Unless you have purchased  a commercial license agreement from Jaspersoft,
+ * the following license terms  apply:
+ *
+ * This program is free software: you can redistribute it and/or  modify
+ * it under the terms of the GNU Affero General Public License  as
+ * published by the Free Software Foundation, either version 3 of  the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero  General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public  License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package graphutil;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * VersionedGraph class
+ * 
+ * A VersionedGraph holds the current version of a Graph as an immutable
+ * snapshot (see Graph.snapshot), so any number of threads can search it
+ * without taking any lock, while writers change it copy-on-write: an update
+ * is made on a fresh copy of the current version, which is then frozen and
+ * published in one step. A search that is already running keeps on reading
+ * the version it started with, and never sees half of an update.
+ * 
+ * Writers are serialised with each other (each update copies the whole
+ * Graph, so this is meant for Graphs that are searched far more often than
+ * they change); readers never wait.
+ * 
+ * @author Steve Rosen
+ */
+public class VersionedGraph {
+    private AtomicReference<Graph> current;
+    private long version;
+
+    /**
+     * Update interface
+     * 
+     * A change to make to a Graph - see VersionedGraph.update
+     */
+    public interface Update {
+        /**
+         * apply
+         * 
+         * Makes the change, using the usual Graph (and Node) methods
+         * 
+         * @param   g
+         *          a private copy of the current version of the Graph
+         */
+        void apply(Graph g);
+    }
+
+    /**
+     * VersionedGraph
+     * 
+     * This constructor publishes a snapshot of a Graph as the first version
+     * 
+     * @param   g
+     *          the Graph (it can go on changing; this VersionedGraph does
+     *          not see those changes)
+     */
+    public VersionedGraph(Graph g) {
+        current = new AtomicReference<Graph>(g.snapshot());
+    }
+
+    /**
+     * current
+     * 
+     * Gets the current version of the Graph - a snapshot that never changes,
+     * so a search can keep using it for as long as it runs
+     * 
+     * @return  the current snapshot
+     */
+    public Graph current() {
+        return current.get();
+    }
+
+    /**
+     * version
+     * 
+     * Gets the number of updates published so far
+     * 
+     * @return  the version number (0 for the first version)
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * update
+     * 
+     * Applies a change to a copy of the current version of the Graph, and
+     * publishes the result as the new current version. If the change throws
+     * an exception, nothing is published.
+     * 
+     * @param   update
+     *          the change to make
+     * 
+     * @return  the new current snapshot
+     */
+    public synchronized Graph update(Update update) {
+        Graph next = new Graph(current.get());
+        update.apply(next);
+        next.makeImmutable();
+        current.set(next);
+        version++;
+        return next;
+    }
+}